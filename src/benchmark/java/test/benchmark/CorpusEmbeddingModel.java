@@ -0,0 +1,36 @@
+package test.benchmark;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Embedding model that looks up precomputed query embeddings of a synthetic corpus. */
+public final class CorpusEmbeddingModel implements EmbeddingModel {
+
+    private final Map<String, Embedding> embeddings;
+
+    public CorpusEmbeddingModel(SyntheticCorpus corpus) {
+        embeddings = new HashMap<>();
+        for (int i = 0; i < corpus.queries().size(); i++) {
+            embeddings.put(corpus.queries().get(i), corpus.queryEmbeddings().get(i));
+        }
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<Embedding> embeddingsResponse = new ArrayList<>();
+        for (TextSegment textSegment : textSegments) {
+            Embedding embedding = embeddings.get(textSegment.text());
+            if (embedding == null) {
+                throw new IllegalArgumentException("No precomputed embedding for <" + textSegment.text() + ">");
+            }
+            embeddingsResponse.add(embedding);
+        }
+        return Response.from(embeddingsResponse);
+    }
+}
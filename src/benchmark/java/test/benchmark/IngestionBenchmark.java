@@ -0,0 +1,97 @@
+package test.benchmark;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of adding content to an embedding store, in documents per second, with batches of
+ * text segments and their precomputed embeddings. Each iteration indexes into a new, empty index on
+ * the heap, so that results measure indexing and not storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IngestionBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int BATCH_COUNT = 20;
+
+    @Param({"384", "768"})
+    private int dimension;
+
+    @Param({"50", "400"})
+    private int wordsPerDocument;
+
+    private List<TextSegment> textSegments;
+    private List<Embedding> embeddings;
+    private Directory directory;
+    private LuceneEmbeddingStore embeddingStore;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void generateCorpus() {
+        SyntheticCorpus corpus =
+                new SyntheticCorpus(BATCH_SIZE * BATCH_COUNT, wordsPerDocument, dimension, 16, 0, 42);
+        textSegments = corpus.textSegments();
+        embeddings = corpus.embeddings();
+    }
+
+    @Setup(Level.Iteration)
+    public void openEmbeddingStore() {
+        directory = DirectoryFactory.heapDirectory(0);
+        embeddingStore = LuceneEmbeddingStore.builder().directory(directory).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeEmbeddingStore() throws IOException {
+        embeddingStore.close();
+        directory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void addAll() {
+        int from = (int) (nextId % (BATCH_SIZE * BATCH_COUNT));
+        List<String> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add("doc-" + nextId++);
+        }
+        embeddingStore.addAll(
+                ids, embeddings.subList(from, from + BATCH_SIZE), textSegments.subList(from, from + BATCH_SIZE));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void addAllTextOnly() {
+        int from = (int) (nextId % (BATCH_SIZE * BATCH_COUNT));
+        List<String> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add("doc-" + nextId++);
+        }
+        embeddingStore.addAll(ids, null, textSegments.subList(from, from + BATCH_SIZE));
+    }
+}
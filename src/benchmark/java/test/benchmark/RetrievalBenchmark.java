@@ -0,0 +1,182 @@
+package test.benchmark;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.HybridMode;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.TokenBudgetStrategy;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of retrieving content from an index of a synthetic corpus, in full-text, vector and
+ * hybrid modes, with a token budget, and of searching the embedding store directly. Queries cycle
+ * through a fixed set, with precomputed query embeddings, so that no embedding model is called.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RetrievalBenchmark {
+
+    private static final int QUERY_COUNT = 200;
+
+    @Param({"10000"})
+    private int documentCount;
+
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"100"})
+    private int wordsPerDocument;
+
+    @Param({"16"})
+    private int clusters;
+
+    @Param({"10"})
+    private int maxResults;
+
+    private List<String> queries;
+    private List<Embedding> queryEmbeddings;
+    private Directory directory;
+    private LuceneEmbeddingStore embeddingStore;
+    private LuceneContentRetriever fullTextRetriever;
+    private LuceneContentRetriever combinedRetriever;
+    private LuceneContentRetriever reciprocalRankFusionRetriever;
+    private LuceneContentRetriever greedyBudgetRetriever;
+    private LuceneContentRetriever knapsackBudgetRetriever;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        SyntheticCorpus corpus =
+                new SyntheticCorpus(documentCount, wordsPerDocument, dimension, clusters, QUERY_COUNT, 42);
+        queries = corpus.queries();
+        queryEmbeddings = corpus.queryEmbeddings();
+
+        directory = DirectoryFactory.heapDirectory(0);
+        embeddingStore = LuceneEmbeddingStore.builder().directory(directory).build();
+        embeddingStore.addAll(corpus.ids(), corpus.embeddings(), corpus.textSegments());
+        embeddingStore.commit();
+
+        CorpusEmbeddingModel embeddingModel = new CorpusEmbeddingModel(corpus);
+        fullTextRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .maxResults(maxResults)
+                .build();
+        combinedRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .hybridMode(HybridMode.COMBINED)
+                .maxResults(maxResults)
+                .build();
+        reciprocalRankFusionRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .hybridMode(HybridMode.RECIPROCAL_RANK_FUSION)
+                .maxResults(maxResults)
+                .build();
+        // Budget for about half of the results, so that content is left out
+        int maxTokens = maxResults * wordsPerDocument;
+        greedyBudgetRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .maxResults(maxResults * 2)
+                .maxTokens(maxTokens)
+                .tokenBudgetStrategy(TokenBudgetStrategy.GREEDY)
+                .build();
+        knapsackBudgetRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .maxResults(maxResults * 2)
+                .maxTokens(maxTokens)
+                .tokenBudgetStrategy(TokenBudgetStrategy.KNAPSACK)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeIndex() throws IOException {
+        fullTextRetriever.close();
+        combinedRetriever.close();
+        reciprocalRankFusionRetriever.close();
+        greedyBudgetRetriever.close();
+        knapsackBudgetRetriever.close();
+        embeddingStore.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public List<Content> retrieveFullText() {
+        return fullTextRetriever.retrieve(Query.from(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Content> retrieveHybridCombined() {
+        return combinedRetriever.retrieve(Query.from(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Content> retrieveHybridReciprocalRankFusion() {
+        return reciprocalRankFusionRetriever.retrieve(Query.from(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Content> retrieveGreedyTokenBudget() {
+        return greedyBudgetRetriever.retrieve(Query.from(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Content> retrieveKnapsackTokenBudget() {
+        return knapsackBudgetRetriever.retrieve(Query.from(nextQuery()));
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> searchVector() {
+        return embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(nextQueryEmbedding())
+                .maxResults(maxResults)
+                .build());
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> searchVectorFiltered() {
+        return embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(nextQueryEmbedding())
+                .maxResults(maxResults)
+                .filter(metadataKey("category").isEqualTo("alpha"))
+                .build());
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % QUERY_COUNT;
+        return queries.get(next);
+    }
+
+    private Embedding nextQueryEmbedding() {
+        next = (next + 1) % QUERY_COUNT;
+        return queryEmbeddings.get(next);
+    }
+}
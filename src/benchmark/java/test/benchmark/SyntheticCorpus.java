@@ -0,0 +1,180 @@
+package test.benchmark;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible corpus of generated content, with precomputed embeddings, so that benchmarks do not
+ * need an embedding model. Words follow a Zipf distribution, like natural text, so that full-text
+ * queries match both common and rare terms. Embeddings are either uniformly random, or clustered
+ * around a number of centroids, like embeddings of related content.
+ */
+public final class SyntheticCorpus {
+
+    private static final int VOCABULARY_SIZE = 5_000;
+    private static final String[] CATEGORIES = {"alpha", "beta", "gamma", "delta"};
+
+    private final List<String> ids;
+    private final List<TextSegment> textSegments;
+    private final List<Embedding> embeddings;
+    private final List<String> queries;
+    private final List<Embedding> queryEmbeddings;
+
+    /**
+     * Generate a corpus.
+     *
+     * @param documentCount Number of text segments
+     * @param wordsPerDocument Average number of words in a text segment
+     * @param dimension Embedding dimension
+     * @param clusters Number of embedding clusters, or zero for uniformly random embeddings
+     * @param queryCount Number of queries
+     * @param seed Random seed, so that the same corpus is generated for every run
+     */
+    public SyntheticCorpus(
+            int documentCount, int wordsPerDocument, int dimension, int clusters, int queryCount, long seed) {
+        Random random = new Random(seed);
+        double[] cumulativeWeights = zipfWeights();
+        List<Embedding> centroids = new ArrayList<>();
+        for (int i = 0; i < clusters; i++) {
+            centroids.add(randomEmbedding(random, dimension));
+        }
+
+        ids = new ArrayList<>(documentCount);
+        textSegments = new ArrayList<>(documentCount);
+        embeddings = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            int wordCount = Math.max(1, wordsPerDocument / 2 + random.nextInt(wordsPerDocument + 1));
+            ids.add("doc-" + i);
+            textSegments.add(TextSegment.from(
+                    text(random, cumulativeWeights, wordCount),
+                    Metadata.from("category", CATEGORIES[i % CATEGORIES.length])));
+            embeddings.add(embedding(random, centroids, dimension));
+        }
+
+        queries = new ArrayList<>(queryCount);
+        queryEmbeddings = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(text(random, cumulativeWeights, 2 + random.nextInt(3)));
+            queryEmbeddings.add(embedding(random, centroids, dimension));
+        }
+    }
+
+    /**
+     * Content ids, in the same order as text segments.
+     *
+     * @return Content ids
+     */
+    public List<String> ids() {
+        return ids;
+    }
+
+    /**
+     * Text segments, with a category in their metadata.
+     *
+     * @return Text segments
+     */
+    public List<TextSegment> textSegments() {
+        return textSegments;
+    }
+
+    /**
+     * Normalized embeddings of text segments, in the same order as text segments.
+     *
+     * @return Embeddings
+     */
+    public List<Embedding> embeddings() {
+        return embeddings;
+    }
+
+    /**
+     * Short queries of a few words each.
+     *
+     * @return Queries
+     */
+    public List<String> queries() {
+        return queries;
+    }
+
+    /**
+     * Normalized embeddings of queries, in the same order as queries.
+     *
+     * @return Query embeddings
+     */
+    public List<Embedding> queryEmbeddings() {
+        return queryEmbeddings;
+    }
+
+    private static double[] zipfWeights() {
+        double[] cumulativeWeights = new double[VOCABULARY_SIZE];
+        double total = 0;
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            total = total + 1.0 / (rank + 1);
+            cumulativeWeights[rank] = total;
+        }
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            cumulativeWeights[rank] = cumulativeWeights[rank] / total;
+        }
+        return cumulativeWeights;
+    }
+
+    private static String text(Random random, double[] cumulativeWeights, int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            int rank = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(Math.min(rank, VOCABULARY_SIZE - 1)));
+        }
+        return text.toString();
+    }
+
+    /** Pronounceable word for a rank, such as "bako", so that the analyzer keeps it as one term. */
+    private static String word(int rank) {
+        String consonants = "bdfgklmnprstvz";
+        String vowels = "aeiou";
+        StringBuilder word = new StringBuilder();
+        int remaining = rank;
+        do {
+            word.append(consonants.charAt(remaining % consonants.length()));
+            remaining = remaining / consonants.length();
+            word.append(vowels.charAt(remaining % vowels.length()));
+            remaining = remaining / vowels.length();
+        } while (remaining > 0);
+        return word.toString();
+    }
+
+    private static Embedding embedding(Random random, List<Embedding> centroids, int dimension) {
+        if (centroids.isEmpty()) {
+            return randomEmbedding(random, dimension);
+        }
+        float[] centroid = centroids.get(random.nextInt(centroids.size())).vector();
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = centroid[i] + (float) (random.nextGaussian() * 0.1);
+        }
+        return normalized(vector);
+    }
+
+    private static Embedding randomEmbedding(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return normalized(vector);
+    }
+
+    private static Embedding normalized(float[] vector) {
+        Embedding embedding = Embedding.from(vector);
+        embedding.normalize();
+        return embedding;
+    }
+}
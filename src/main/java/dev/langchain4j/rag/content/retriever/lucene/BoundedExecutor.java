@@ -0,0 +1,94 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fixed-size thread pool with a bounded amount of pending work. Callers submitting work are blocked
+ * while the bound is reached, which applies back-pressure to producers that are faster than the
+ * workers.
+ */
+final class BoundedExecutor implements Closeable {
+
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final int maxCapacity;
+
+    /**
+     * Create a bounded executor.
+     *
+     * @param threadNamePrefix Prefix for worker thread names
+     * @param threads Number of worker threads
+     * @param maxCapacity Maximum units of work that may be queued or in progress
+     */
+    BoundedExecutor(String threadNamePrefix, int threads, int maxCapacity) {
+        ensureNotBlank(threadNamePrefix, "threadNamePrefix");
+        ensureGreaterThanZero(threads, "threads");
+        this.maxCapacity = ensureGreaterThanZero(maxCapacity, "maxCapacity");
+        // Worker threads are started on demand, so an unused executor costs nothing
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new DaemonThreadFactory(threadNamePrefix));
+        capacity = new Semaphore(maxCapacity);
+    }
+
+    /**
+     * Stop accepting work, and wait for work that has already been submitted to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, since submitted work needs to be written before the index is closed
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Maximum units of work that may be queued or in progress. Work submitted in a single call
+     * should not exceed this.
+     *
+     * @return Maximum capacity
+     */
+    int maxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * Submit work, blocking until there is capacity for it.
+     *
+     * @param <T> Type of result
+     * @param units Units of capacity needed by the work, such as a number of documents
+     * @param work Work to run on a worker thread
+     * @return Future for the result of the work
+     * @throws InterruptedException If interrupted while waiting for capacity
+     */
+    <T> CompletableFuture<T> submit(int units, Supplier<T> work) throws InterruptedException {
+        int permits = Math.min(Math.max(1, units), maxCapacity);
+        capacity.acquire(permits);
+        try {
+            return CompletableFuture.supplyAsync(work, executor).whenComplete((result, e) -> capacity.release(permits));
+        } catch (RuntimeException e) {
+            // Rejected because the executor is shut down
+            capacity.release(permits);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Creates named daemon threads, so background work never prevents the JVM from exiting. */
+final class DaemonThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+    private final AtomicInteger threadCount;
+
+    DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = ensureNotBlank(namePrefix, "namePrefix");
+        threadCount = new AtomicInteger();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
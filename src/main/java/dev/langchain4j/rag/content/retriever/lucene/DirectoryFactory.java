@@ -2,15 +2,130 @@ package dev.langchain4j.rag.content.retriever.lucene;
 
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FileSwitchDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.FilterIndexOutput;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
 
 /** Static factory for create Lucene directories. */
 public class DirectoryFactory {
 
+    /** Extensions of vector data, graph, quantized vector and vector metadata files. * */
+    public static final Set<String> VECTOR_EXTENSIONS = Set.of("vec", "vemf", "vex", "vem", "veq", "vemq");
+
+    /** Extensions of term dictionary, term index and term metadata files. * */
+    public static final Set<String> TERM_DICTIONARY_EXTENSIONS = Set.of("tim", "tip", "tmd");
+
+    /**
+     * Heap directory that does not create new files once it holds more than a maximum size. The size
+     * of each file is counted when it is closed, so that checking the size does not list the
+     * directory. Commit and lock files are always created, so that an index that is over the maximum
+     * size can still commit, or delete content and merge to free space.
+     */
+    private static final class BoundedHeapDirectory extends FilterDirectory {
+
+        private final long maxSizeBytes;
+        private final Map<String, Long> fileSizes;
+        private final AtomicLong size;
+
+        BoundedHeapDirectory(long maxSizeBytes) {
+            super(new ByteBuffersDirectory());
+            this.maxSizeBytes = maxSizeBytes;
+            fileSizes = new ConcurrentHashMap<>();
+            size = new AtomicLong();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public IndexOutput createOutput(String name, IOContext context) throws IOException {
+            if (!isCommitOrLockFile(name)) {
+                ensureSize();
+            }
+            return new CountedIndexOutput(super.createOutput(name, context));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) throws IOException {
+            ensureSize();
+            return new CountedIndexOutput(super.createTempOutput(prefix, suffix, context));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void deleteFile(String name) throws IOException {
+            super.deleteFile(name);
+            Long fileSize = fileSizes.remove(name);
+            if (fileSize != null) {
+                size.addAndGet(-fileSize);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void rename(String source, String dest) throws IOException {
+            super.rename(source, dest);
+            Long fileSize = fileSizes.remove(source);
+            if (fileSize != null) {
+                fileSizes.put(dest, fileSize);
+            }
+        }
+
+        private void ensureSize() throws IOException {
+            long currentSize = size.get();
+            if (currentSize > maxSizeBytes) {
+                throw new IOException(String.format(
+                        "Heap directory holds <%d> bytes, which is more than the maximum of <%d> bytes",
+                        currentSize, maxSizeBytes));
+            }
+        }
+
+        private static boolean isCommitOrLockFile(String name) {
+            return name.startsWith(IndexFileNames.SEGMENTS)
+                    || name.startsWith(IndexFileNames.PENDING_SEGMENTS)
+                    || name.equals(IndexWriter.WRITE_LOCK_NAME);
+        }
+
+        /** Output that counts the size of its file when it is closed. */
+        private final class CountedIndexOutput extends FilterIndexOutput {
+
+            private boolean closed;
+
+            CountedIndexOutput(IndexOutput out) {
+                super("CountedIndexOutput(" + out + ")", out.getName(), out);
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                long fileSize = getFilePointer();
+                out.close();
+                fileSizes.put(getName(), fileSize);
+                size.addAndGet(fileSize);
+            }
+        }
+    }
+
     /**
      * Create a memory mapped file-system based directory.
      *
@@ -27,6 +142,69 @@ public class DirectoryFactory {
         }
     }
 
+    /**
+     * Create a memory mapped file-system based directory, which loads index files with the given
+     * extensions into physical memory when they are opened, so that the first queries do not wait
+     * for pages to be read from disk. For example, "vec", "vex" and "veq" are vector data, graph and
+     * quantized vector files, and "tim", "tip" and "doc" are term dictionary, term index and postings
+     * files. Small segments are written as compound "cfs" files, which contain all other files.
+     *
+     * @param directoryPath Path for the directory.
+     * @param preloadExtensions Extensions of index files to preload, without the dot
+     * @return Lucene directory
+     */
+    public static Directory fsDirectory(Path directoryPath, String... preloadExtensions) {
+        ensureNotNull(directoryPath, "directoryPath");
+        ensureNotNull(preloadExtensions, "preloadExtensions");
+        Set<String> extensions = Set.copyOf(Arrays.asList(preloadExtensions));
+        try {
+            MMapDirectory directory = new MMapDirectory(directoryPath);
+            directory.setPreload((fileName, context) -> {
+                String extension = IndexFileNames.getExtension(fileName);
+                return extension != null && extensions.contains(extension);
+            });
+            return directory;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create a directory on the Java heap, for small or ephemeral indexes and for tests. New segment
+     * files cannot be created once the directory holds more than the maximum size, so that flushes
+     * and merges fail rather than exhausting the heap, while commits still succeed. The size can go
+     * over the maximum by the files that are being written when it is reached. Nothing needs to be
+     * preloaded, since all files are in memory.
+     *
+     * @param maxSizeMB Maximum size in megabytes, or zero for no limit other than the heap
+     * @return Lucene directory
+     */
+    public static Directory heapDirectory(double maxSizeMB) {
+        if (maxSizeMB <= 0) {
+            return new ByteBuffersDirectory();
+        }
+        return new BoundedHeapDirectory((long) (maxSizeMB * 1024 * 1024));
+    }
+
+    /**
+     * Wrap a directory so that small segments that are flushed or merged are kept in memory, until
+     * they are merged into larger segments or committed. This suits near-real-time search with
+     * frequent refreshes, since small segments are not written to disk and read back. Preload
+     * settings of the wrapped directory apply to files that are written to it.
+     *
+     * @param directory Directory to wrap, such as one from {@link #fsDirectory(Path, String...)}
+     * @param maxMergeSizeMB Maximum size of a merged segment that is kept in memory, in megabytes
+     * @param maxCachedMB Maximum total size of segments kept in memory, in megabytes
+     * @return Lucene directory
+     */
+    public static Directory nrtCachingDirectory(Directory directory, double maxMergeSizeMB, double maxCachedMB) {
+        ensureNotNull(directory, "directory");
+        if (maxMergeSizeMB <= 0 || maxCachedMB <= 0) {
+            throw new IllegalArgumentException("Maximum sizes of cached segments need to be positive");
+        }
+        return new NRTCachingDirectory(directory, maxMergeSizeMB, maxCachedMB);
+    }
+
     /**
      * Create a memory mapped file-system based directory, in a temporary directory.
      *
@@ -42,6 +220,35 @@ public class DirectoryFactory {
         }
     }
 
+    /**
+     * Create a directory that places index files with the given extensions on fast storage, and all
+     * other files, such as stored fields and commit points, on bulk storage. Files on fast storage
+     * are preloaded into physical memory when they are opened. For example, use {@link
+     * #VECTOR_EXTENSIONS} and {@link #TERM_DICTIONARY_EXTENSIONS} to place files that queries read
+     * randomly on a local SSD. Placement applies only to segments that are not compound files, since
+     * a compound "cfs" file contains all files of a segment; Lucene writes large merged segments as
+     * separate files. The size of fast storage is not bounded, so it needs room for the files of the
+     * whole index with the given extensions, and for merges, which write new files before old ones are
+     * deleted.
+     *
+     * @param fastDirectoryPath Path for the directory on fast storage
+     * @param bulkDirectoryPath Path for the directory on bulk storage
+     * @param fastExtensions Extensions of index files to place on fast storage, without the dot
+     * @return Lucene directory
+     */
+    public static Directory tieredDirectory(
+            Path fastDirectoryPath, Path bulkDirectoryPath, Set<String> fastExtensions) {
+        ensureNotNull(fastDirectoryPath, "fastDirectoryPath");
+        ensureNotNull(bulkDirectoryPath, "bulkDirectoryPath");
+        ensureNotNull(fastExtensions, "fastExtensions");
+        if (fastDirectoryPath.toAbsolutePath().equals(bulkDirectoryPath.toAbsolutePath())) {
+            throw new IllegalArgumentException("Fast and bulk storage need to be different directories");
+        }
+        Directory fastDirectory = fsDirectory(fastDirectoryPath, fastExtensions.toArray(new String[0]));
+        Directory bulkDirectory = fsDirectory(bulkDirectoryPath);
+        return new FileSwitchDirectory(fastExtensions, fastDirectory, bulkDirectory, true);
+    }
+
     private DirectoryFactory() {
         // Prevent instantiation
     }
@@ -0,0 +1,363 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import dev.langchain4j.data.document.Metadata;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.StoredValue;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * Loads content and metadata of hits for a single query. Metadata fields in the schema that have doc
+ * values are read from doc values, and are skipped when stored fields are decoded. Other fields,
+ * such as fields in indexes written before the schema was recorded, are read from stored fields.
+ * Metadata can be limited to a set of fields, so that other stored fields are never decoded.
+ */
+final class DocumentLoader {
+
+    private final List<LeafReaderContext> leaves;
+    private final StoredFields storedFields;
+    private final MetadataSchema schema;
+    private final String contentFieldName;
+    private final Set<String> requiredFields;
+    private final Set<String> metadataFields;
+
+    /**
+     * Create a loader.
+     *
+     * @param reader Index reader that was searched
+     * @param storedFields Stored fields of the index reader
+     * @param schema Metadata schema of the index
+     * @param contentFieldName Name of the content field, which is not metadata
+     * @param requiredFields Names of other stored fields that are always loaded, but are not metadata
+     *     unless they are also metadata fields
+     * @param metadataFields Names of fields returned as metadata, or null for all fields
+     */
+    DocumentLoader(
+            IndexReader reader,
+            StoredFields storedFields,
+            MetadataSchema schema,
+            String contentFieldName,
+            Set<String> requiredFields,
+            Set<String> metadataFields) {
+        leaves = ensureNotNull(reader, "reader").leaves();
+        this.storedFields = ensureNotNull(storedFields, "storedFields");
+        this.schema = ensureNotNull(schema, "schema");
+        this.contentFieldName = ensureNotBlank(contentFieldName, "contentFieldName");
+        this.requiredFields = ensureNotNull(requiredFields, "requiredFields");
+        this.metadataFields = metadataFields; // Can be null
+    }
+
+    /**
+     * Load stored fields of a document, except for metadata fields that are read from doc values.
+     *
+     * @param doc Document id
+     * @return Document with stored fields
+     * @throws IOException On an exception reading stored fields
+     */
+    Document document(int doc) throws IOException {
+        DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor() {
+            @Override
+            public Status needsField(FieldInfo fieldInfo) {
+                String fieldName = fieldInfo.name;
+                if (contentFieldName.equals(fieldName) || requiredFields.contains(fieldName)) {
+                    return Status.YES;
+                }
+                if (isMetadataField(fieldName) && !hasDocValues(fieldInfo)) {
+                    return Status.YES;
+                }
+                return Status.NO;
+            }
+        };
+        storedFields.document(doc, visitor);
+        return visitor.getDocument();
+    }
+
+    /**
+     * Load a single stored field of a document, without decoding the fields stored after it.
+     *
+     * @param doc Document id
+     * @param fieldName Field name
+     * @return Field value, or null if the document does not have the field
+     * @throws IOException On an exception reading stored fields
+     */
+    String stringValue(int doc, String fieldName) throws IOException {
+        String[] value = new String[1];
+        storedFields.document(doc, new StoredFieldVisitor() {
+            @Override
+            public Status needsField(FieldInfo fieldInfo) {
+                if (value[0] != null) {
+                    return Status.STOP;
+                }
+                return fieldName.equals(fieldInfo.name) ? Status.YES : Status.NO;
+            }
+
+            @Override
+            public void stringField(FieldInfo fieldInfo, String stringValue) {
+                value[0] = stringValue;
+            }
+        });
+        return value[0];
+    }
+
+    /**
+     * Read integer values of a field for several documents, from numeric doc values if the field has
+     * them, or otherwise from stored fields. Documents are visited in index order, so that doc values
+     * are read forward in a single pass over each segment.
+     *
+     * @param docs Document ids, in any order
+     * @param fieldName Field name
+     * @param missingValue Value for documents that do not have the field
+     * @return Field values, in the same order as the document ids
+     * @throws IOException On an exception reading doc values or stored fields
+     */
+    int[] intValues(int[] docs, String fieldName, int missingValue) throws IOException {
+        int[] values = new int[docs.length];
+        Integer[] order = new Integer[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> docs[i]));
+
+        int leafIndex = -1;
+        SortedNumericDocValues docValues = null;
+        for (int i : order) {
+            int doc = docs[i];
+            values[i] = missingValue;
+            int subIndex = ReaderUtil.subIndex(doc, leaves);
+            LeafReaderContext leaf = leaves.get(subIndex);
+            if (subIndex != leafIndex) {
+                leafIndex = subIndex;
+                docValues = null;
+                FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(fieldName);
+                if (fieldInfo != null && fieldInfo.getDocValuesType() != DocValuesType.NONE) {
+                    docValues = DocValues.getSortedNumeric(leaf.reader(), fieldName);
+                }
+            }
+            if (docValues == null) {
+                // Segments written without doc values
+                Number value = numericValue(doc, fieldName);
+                if (value != null) {
+                    values[i] = value.intValue();
+                }
+            } else if (docValues.advanceExact(doc - leaf.docBase)) {
+                values[i] = (int) docValues.nextValue();
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Read float vectors of a field for several documents. Documents are visited in index order, so
+     * that vectors are read forward in a single pass over each segment.
+     *
+     * @param docs Document ids, in any order
+     * @param fieldName Vector field name
+     * @return Copies of the vectors, in the same order as the document ids, with null for documents
+     *     that do not have a vector
+     * @throws IOException On an exception reading vectors
+     */
+    float[][] vectors(int[] docs, String fieldName) throws IOException {
+        float[][] vectors = new float[docs.length][];
+        Integer[] order = new Integer[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> docs[i]));
+
+        int leafIndex = -1;
+        FloatVectorValues vectorValues = null;
+        for (int i : order) {
+            int doc = docs[i];
+            int subIndex = ReaderUtil.subIndex(doc, leaves);
+            LeafReaderContext leaf = leaves.get(subIndex);
+            if (subIndex != leafIndex) {
+                leafIndex = subIndex;
+                vectorValues = leaf.reader().getFloatVectorValues(fieldName);
+            }
+            if (vectorValues == null) {
+                continue;
+            }
+            int leafDoc = doc - leaf.docBase;
+            if (vectorValues.docID() < leafDoc) {
+                vectorValues.advance(leafDoc);
+            }
+            if (vectorValues.docID() == leafDoc) {
+                // Vector values reuse their array
+                vectors[i] = vectorValues.vectorValue().clone();
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * Load a single stored numeric field of a document, without decoding the fields stored after it.
+     *
+     * @param doc Document id
+     * @param fieldName Field name
+     * @return Field value, or null if the document does not have the field
+     * @throws IOException On an exception reading stored fields
+     */
+    private Number numericValue(int doc, String fieldName) throws IOException {
+        Number[] value = new Number[1];
+        storedFields.document(doc, new StoredFieldVisitor() {
+            @Override
+            public Status needsField(FieldInfo fieldInfo) {
+                if (value[0] != null) {
+                    return Status.STOP;
+                }
+                return fieldName.equals(fieldInfo.name) ? Status.YES : Status.NO;
+            }
+
+            @Override
+            public void intField(FieldInfo fieldInfo, int intValue) {
+                value[0] = intValue;
+            }
+
+            @Override
+            public void longField(FieldInfo fieldInfo, long longValue) {
+                value[0] = longValue;
+            }
+        });
+        return value[0];
+    }
+
+    /**
+     * Map document fields as metadata, preserving types as much as possible.
+     *
+     * @param doc Document id
+     * @param document Stored fields of the document
+     * @return Text segment metadata
+     * @throws IOException On an exception reading doc values
+     */
+    Metadata metadata(int doc, Document document) throws IOException {
+        Metadata metadata = new Metadata();
+        for (IndexableField field : document) {
+            String fieldName = field.name();
+            if (contentFieldName.equals(fieldName) || !isMetadataField(fieldName)) {
+                continue;
+            }
+            putStoredValue(metadata, fieldName, field.storedValue());
+        }
+
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        LeafReader leafReader = leaf.reader();
+        int leafDoc = doc - leaf.docBase;
+        for (Entry<String, MetadataFieldType> entry : schema.fieldTypes().entrySet()) {
+            String fieldName = entry.getKey();
+            if (!isMetadataField(fieldName)) {
+                continue;
+            }
+            FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(fieldName);
+            if (fieldInfo == null || !hasDocValues(fieldInfo) || contentFieldName.equals(fieldName)) {
+                continue;
+            }
+            if (entry.getValue() == MetadataFieldType.KEYWORD) {
+                SortedSetDocValues docValues = leafReader.getSortedSetDocValues(fieldName);
+                if (docValues != null && docValues.advanceExact(leafDoc)) {
+                    metadata.put(
+                            fieldName, docValues.lookupOrd(docValues.nextOrd()).utf8ToString());
+                }
+            } else {
+                SortedNumericDocValues docValues = leafReader.getSortedNumericDocValues(fieldName);
+                if (docValues != null && docValues.advanceExact(leafDoc)) {
+                    putNumericValue(metadata, fieldName, entry.getValue(), docValues.nextValue());
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Whether a field is returned as metadata.
+     *
+     * @param fieldName Field name
+     * @return True if the field is returned as metadata
+     */
+    private boolean isMetadataField(String fieldName) {
+        return metadataFields == null || metadataFields.contains(fieldName);
+    }
+
+    /**
+     * Whether a field is a metadata field in the schema that is read from doc values.
+     *
+     * @param fieldInfo Field information for a segment
+     * @return True if the field is read from doc values
+     */
+    private boolean hasDocValues(FieldInfo fieldInfo) {
+        MetadataFieldType fieldType = schema.fieldType(fieldInfo.name);
+        if (fieldType == null) {
+            return false;
+        }
+        DocValuesType docValuesType = fieldInfo.getDocValuesType();
+        if (fieldType == MetadataFieldType.KEYWORD) {
+            return docValuesType == DocValuesType.SORTED_SET;
+        }
+        return docValuesType == DocValuesType.SORTED_NUMERIC;
+    }
+
+    private static void putNumericValue(Metadata metadata, String fieldName, MetadataFieldType fieldType, long value) {
+        switch (fieldType) {
+            case INTEGER:
+                metadata.put(fieldName, (int) value);
+                break;
+            case LONG:
+                metadata.put(fieldName, value);
+                break;
+            case FLOAT:
+                metadata.put(fieldName, NumericUtils.sortableIntToFloat((int) value));
+                break;
+            case DOUBLE:
+                metadata.put(fieldName, NumericUtils.sortableLongToDouble(value));
+                break;
+            default:
+                // No-op
+        }
+    }
+
+    private static void putStoredValue(Metadata metadata, String fieldName, StoredValue storedValue) {
+        if (storedValue == null) {
+            return;
+        }
+        switch (storedValue.getType()) {
+            case INTEGER:
+                metadata.put(fieldName, storedValue.getIntValue());
+                break;
+            case LONG:
+                metadata.put(fieldName, storedValue.getLongValue());
+                break;
+            case FLOAT:
+                metadata.put(fieldName, storedValue.getFloatValue());
+                break;
+            case DOUBLE:
+                metadata.put(fieldName, storedValue.getDoubleValue());
+                break;
+            case STRING:
+                metadata.put(fieldName, storedValue.getStringValue());
+                break;
+            default:
+                // No-op
+        }
+    }
+}
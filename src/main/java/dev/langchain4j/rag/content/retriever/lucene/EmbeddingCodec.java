@@ -0,0 +1,39 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene912.Lucene912Codec;
+
+/**
+ * Default Lucene codec, with a configured vectors format for the embedding field. The vectors
+ * format is recorded with each segment, so indexes written with this codec are read by the default
+ * codec, and content retrievers do not need to know how the index was written. Full-precision
+ * vectors are read back from any of the vectors formats, so that hits can be rescored.
+ */
+final class EmbeddingCodec extends Lucene912Codec {
+
+    private final String embeddingFieldName;
+    private final KnnVectorsFormat knnVectorsFormat;
+
+    /**
+     * Create a codec.
+     *
+     * @param embeddingFieldName Name of the embedding field
+     * @param knnVectorsFormat Vectors format for the embedding field
+     */
+    EmbeddingCodec(String embeddingFieldName, KnnVectorsFormat knnVectorsFormat) {
+        this.embeddingFieldName = ensureNotBlank(embeddingFieldName, "embeddingFieldName");
+        this.knnVectorsFormat = ensureNotNull(knnVectorsFormat, "knnVectorsFormat");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+        if (embeddingFieldName.equals(field)) {
+            return knnVectorsFormat;
+        }
+        return super.getKnnVectorsFormatForField(field);
+    }
+}
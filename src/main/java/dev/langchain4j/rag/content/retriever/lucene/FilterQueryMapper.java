@@ -0,0 +1,264 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.FloatField;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Translates LangChain4J metadata filters into Lucene queries over the metadata fields written by
+ * {@link LuceneEmbeddingStore}. Comparison values are first converted to the field type in the
+ * metadata schema. Strings are matched as exact terms, and numbers are matched using the point field
+ * for their type. Other values are matched as strings. As with
+ * LangChain4J filters, a document without the metadata key is neither equal to nor in the compared
+ * values.
+ */
+final class FilterQueryMapper {
+
+    /**
+     * Translate a metadata filter into a Lucene query, which can be used as a filter clause.
+     * Comparison values are converted to the types of fields in the metadata schema.
+     *
+     * @param filter Metadata filter
+     * @param schema Metadata schema of the index
+     * @return Lucene query
+     * @throws IllegalArgumentException For a filter that cannot be translated
+     */
+    static Query toQuery(Filter filter, MetadataSchema schema) {
+        ensureNotNull(filter, "filter");
+        ensureNotNull(schema, "schema");
+        if (filter instanceof And and) {
+            return new BooleanQuery.Builder()
+                    .add(toQuery(and.left(), schema), Occur.FILTER)
+                    .add(toQuery(and.right(), schema), Occur.FILTER)
+                    .build();
+        } else if (filter instanceof Or or) {
+            return new BooleanQuery.Builder()
+                    .add(toQuery(or.left(), schema), Occur.SHOULD)
+                    .add(toQuery(or.right(), schema), Occur.SHOULD)
+                    .build();
+        } else if (filter instanceof Not not) {
+            return negate(toQuery(not.expression(), schema));
+        } else if (filter instanceof IsEqualTo isEqualTo) {
+            return exactQuery(isEqualTo.key(), schema.convert(isEqualTo.key(), isEqualTo.comparisonValue()));
+        } else if (filter instanceof IsNotEqualTo isNotEqualTo) {
+            return negate(
+                    exactQuery(isNotEqualTo.key(), schema.convert(isNotEqualTo.key(), isNotEqualTo.comparisonValue())));
+        } else if (filter instanceof IsIn isIn) {
+            return setQuery(isIn.key(), convert(schema, isIn.key(), isIn.comparisonValues()));
+        } else if (filter instanceof IsNotIn isNotIn) {
+            return negate(setQuery(isNotIn.key(), convert(schema, isNotIn.key(), isNotIn.comparisonValues())));
+        } else if (filter instanceof IsGreaterThan isGreaterThan) {
+            return rangeQuery(
+                    isGreaterThan.key(),
+                    convert(schema, isGreaterThan.key(), isGreaterThan.comparisonValue()),
+                    false,
+                    null,
+                    false);
+        } else if (filter instanceof IsGreaterThanOrEqualTo isGreaterThanOrEqualTo) {
+            return rangeQuery(
+                    isGreaterThanOrEqualTo.key(),
+                    convert(schema, isGreaterThanOrEqualTo.key(), isGreaterThanOrEqualTo.comparisonValue()),
+                    true,
+                    null,
+                    false);
+        } else if (filter instanceof IsLessThan isLessThan) {
+            return rangeQuery(
+                    isLessThan.key(),
+                    null,
+                    false,
+                    convert(schema, isLessThan.key(), isLessThan.comparisonValue()),
+                    false);
+        } else if (filter instanceof IsLessThanOrEqualTo isLessThanOrEqualTo) {
+            return rangeQuery(
+                    isLessThanOrEqualTo.key(),
+                    null,
+                    false,
+                    convert(schema, isLessThanOrEqualTo.key(), isLessThanOrEqualTo.comparisonValue()),
+                    true);
+        }
+        throw new IllegalArgumentException(
+                "Unsupported filter type: " + filter.getClass().getName());
+    }
+
+    private static Comparable<?> convert(MetadataSchema schema, String key, Comparable<?> value) {
+        return (Comparable<?>) schema.convert(key, value);
+    }
+
+    private static Collection<?> convert(MetadataSchema schema, String key, Collection<?> values) {
+        List<Object> converted = new ArrayList<>(values.size());
+        for (Object value : values) {
+            converted.add(schema.convert(key, value));
+        }
+        return converted;
+    }
+
+    private static Query exactQuery(String key, Object value) {
+        if (value instanceof Integer number) {
+            return IntField.newExactQuery(key, number);
+        } else if (value instanceof Long number) {
+            return LongField.newExactQuery(key, number);
+        } else if (value instanceof Float number) {
+            return FloatField.newExactQuery(key, number);
+        } else if (value instanceof Double number) {
+            return DoubleField.newExactQuery(key, number);
+        }
+        return new TermQuery(new Term(key, String.valueOf(value)));
+    }
+
+    /**
+     * Match all documents except those matching a query, including documents without the key.
+     *
+     * @param query Query to negate
+     * @return Negated query
+     */
+    private static Query negate(Query query) {
+        return new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), Occur.FILTER)
+                .add(query, Occur.MUST_NOT)
+                .build();
+    }
+
+    /**
+     * Match a range of values. Each bound can be null for an open range, and the type of the query
+     * is from whichever bound is provided.
+     */
+    private static Query rangeQuery(
+            String key, Comparable<?> lower, boolean includeLower, Comparable<?> upper, boolean includeUpper) {
+        Object value = lower != null ? lower : upper;
+        if (value instanceof Integer) {
+            long min = lower == null ? Integer.MIN_VALUE : ((Integer) lower) + (includeLower ? 0L : 1L);
+            long max = upper == null ? Integer.MAX_VALUE : ((Integer) upper) - (includeUpper ? 0L : 1L);
+            if (min > max) {
+                return new MatchNoDocsQuery();
+            }
+            return IntField.newRangeQuery(key, (int) min, (int) max);
+        } else if (value instanceof Long) {
+            long min = lower == null ? Long.MIN_VALUE : (Long) lower;
+            long max = upper == null ? Long.MAX_VALUE : (Long) upper;
+            if ((lower != null && !includeLower && min == Long.MAX_VALUE)
+                    || (upper != null && !includeUpper && max == Long.MIN_VALUE)) {
+                return new MatchNoDocsQuery();
+            }
+            if (lower != null && !includeLower) {
+                min = min + 1;
+            }
+            if (upper != null && !includeUpper) {
+                max = max - 1;
+            }
+            return LongField.newRangeQuery(key, min, max);
+        } else if (value instanceof Float) {
+            float min = lower == null ? Float.NEGATIVE_INFINITY : (Float) lower;
+            float max = upper == null ? Float.POSITIVE_INFINITY : (Float) upper;
+            if (lower != null && !includeLower) {
+                min = Math.nextUp(min);
+            }
+            if (upper != null && !includeUpper) {
+                max = Math.nextDown(max);
+            }
+            return FloatField.newRangeQuery(key, min, max);
+        } else if (value instanceof Double) {
+            double min = lower == null ? Double.NEGATIVE_INFINITY : (Double) lower;
+            double max = upper == null ? Double.POSITIVE_INFINITY : (Double) upper;
+            if (lower != null && !includeLower) {
+                min = Math.nextUp(min);
+            }
+            if (upper != null && !includeUpper) {
+                max = Math.nextDown(max);
+            }
+            return DoubleField.newRangeQuery(key, min, max);
+        }
+        String min = lower == null ? null : String.valueOf(lower);
+        String max = upper == null ? null : String.valueOf(upper);
+        return TermRangeQuery.newStringRange(key, min, max, includeLower, includeUpper);
+    }
+
+    /** Match any of a set of values, grouped by type, so that each type is a single set query. */
+    private static Query setQuery(String key, Collection<?> values) {
+        List<BytesRef> terms = new ArrayList<>();
+        List<Integer> ints = new ArrayList<>();
+        List<Long> longs = new ArrayList<>();
+        List<Float> floats = new ArrayList<>();
+        List<Double> doubles = new ArrayList<>();
+        for (Object value : values) {
+            if (value instanceof Integer number) {
+                ints.add(number);
+            } else if (value instanceof Long number) {
+                longs.add(number);
+            } else if (value instanceof Float number) {
+                floats.add(number);
+            } else if (value instanceof Double number) {
+                doubles.add(number);
+            } else {
+                terms.add(new BytesRef(String.valueOf(value)));
+            }
+        }
+
+        List<Query> queries = new ArrayList<>();
+        if (!terms.isEmpty()) {
+            queries.add(new TermInSetQuery(key, terms));
+        }
+        if (!ints.isEmpty()) {
+            queries.add(IntField.newSetQuery(
+                    key, ints.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        if (!longs.isEmpty()) {
+            queries.add(LongField.newSetQuery(
+                    key, longs.stream().mapToLong(Long::longValue).toArray()));
+        }
+        if (!floats.isEmpty()) {
+            float[] floatValues = new float[floats.size()];
+            for (int i = 0; i < floatValues.length; i++) {
+                floatValues[i] = floats.get(i);
+            }
+            queries.add(FloatField.newSetQuery(key, floatValues));
+        }
+        if (!doubles.isEmpty()) {
+            queries.add(DoubleField.newSetQuery(
+                    key, doubles.stream().mapToDouble(Double::doubleValue).toArray()));
+        }
+
+        if (queries.isEmpty()) {
+            return new MatchNoDocsQuery();
+        } else if (queries.size() == 1) {
+            return queries.get(0);
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Query query : queries) {
+            builder.add(query, Occur.SHOULD);
+        }
+        return new ConstantScoreQuery(builder.build());
+    }
+
+    private FilterQueryMapper() {
+        // Prevent instantiation
+    }
+}
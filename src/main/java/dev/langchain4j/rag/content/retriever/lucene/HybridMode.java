@@ -0,0 +1,23 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * How full-text and embedding vector searches are combined when the content retriever has an
+ * embedding model.
+ */
+public enum HybridMode {
+    /**
+     * Run a single query with full-text and vector clauses, and add up their scores, even though
+     * they are on different scales.
+     */
+    COMBINED,
+    /**
+     * Run full-text and vector searches separately, concurrently if there is a search executor, and
+     * fuse them by reciprocal rank, so that only the rank of a document in each search matters.
+     */
+    RECIPROCAL_RANK_FUSION,
+    /**
+     * Run full-text and vector searches separately, concurrently if there is a search executor, and
+     * fuse them by a weighted sum of scores, each normalized by the top score of its search.
+     */
+    WEIGHTED_SCORES;
+}
@@ -0,0 +1,233 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Switchable reference to the Lucene embedding store that content retrievers search, so that an
+ * index can be rebuilt from scratch without downtime. A new index generation is built by a separate
+ * embedding store on a side directory while content retrievers built on the alias keep searching
+ * the current one. Swapping the alias moves subsequent queries to the new embedding store at once,
+ * and closes the previous embedding store after queries that are in progress on it complete.
+ */
+public final class IndexAlias implements Closeable {
+
+    /** Embedding store that the alias refers to, with the number of queries in progress on it. */
+    private static final class Target {
+
+        private final LuceneEmbeddingStore embeddingStore;
+        private final AtomicInteger inFlight;
+        private final CompletableFuture<Void> drained;
+        private volatile boolean retired;
+
+        Target(LuceneEmbeddingStore embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            inFlight = new AtomicInteger();
+            drained = new CompletableFuture<>();
+        }
+
+        /** Stop counting queries on this embedding store, and complete once none are in progress. */
+        void retire() {
+            retired = true;
+            if (inFlight.get() == 0) {
+                drained.complete(null);
+            }
+        }
+
+        void release() {
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                drained.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Embedding store acquired for a single query, which stays open until the lease is closed, even
+     * if the alias is swapped in the meantime.
+     */
+    static final class Lease implements AutoCloseable {
+
+        private final Target target;
+        private boolean closed;
+
+        private Lease(Target target) {
+            this.target = target;
+        }
+
+        /**
+         * Release the embedding store, so that it can be closed if it is no longer current.
+         * Releasing more than once has no effect.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            target.release();
+        }
+
+        /**
+         * Embedding store for the query.
+         *
+         * @return Embedding store
+         */
+        LuceneEmbeddingStore embeddingStore() {
+            return target.embeddingStore;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(IndexAlias.class);
+
+    /**
+     * Create an alias that refers to an embedding store, and takes ownership of it.
+     *
+     * @param embeddingStore Lucene embedding store to search
+     * @return New alias
+     */
+    public static IndexAlias from(LuceneEmbeddingStore embeddingStore) {
+        return new IndexAlias(embeddingStore);
+    }
+
+    private final ExecutorService closeExecutor;
+    private volatile Target current;
+    private long swapCount;
+    private boolean closed;
+
+    private IndexAlias(LuceneEmbeddingStore embeddingStore) {
+        current = new Target(ensureNotNull(embeddingStore, "embeddingStore"));
+        // Idle threads end after a minute, so the executor does not need to be shut down
+        closeExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("lucene-alias-close"));
+    }
+
+    /**
+     * Close the current embedding store, once queries in progress on it complete. If there are
+     * none, it is closed before this returns, and otherwise in the background. Previous embedding
+     * stores are closed when their queries complete. The Lucene directories are not closed, since
+     * they were provided by calling code.
+     *
+     * @throws IOException On an exception closing the current embedding store
+     */
+    @Override
+    public void close() throws IOException {
+        Target target;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            target = current;
+        }
+        target.retire();
+        if (target.drained.isDone()) {
+            target.embeddingStore.close();
+        } else {
+            closeWhenDrained(target);
+        }
+    }
+
+    /**
+     * Embedding store that the alias currently refers to, for adding and removing content. Queries
+     * through content retrievers should not hold on to it, since it is closed after the next swap.
+     *
+     * @return Current embedding store
+     */
+    public LuceneEmbeddingStore embeddingStore() {
+        return current.embeddingStore;
+    }
+
+    /**
+     * Number of times the alias has been swapped to a new embedding store.
+     *
+     * @return Swap count
+     */
+    public synchronized long swapCount() {
+        return swapCount;
+    }
+
+    /**
+     * Atomically switch the alias to a new index generation. Content in the new embedding store is
+     * committed and made visible first, so the first query after the swap sees the complete index.
+     * The previous embedding store is closed in the background once queries in progress on it
+     * complete, after which its directory can be closed and deleted by calling code.
+     *
+     * @param embeddingStore Lucene embedding store with the new index generation, which the alias
+     *     takes ownership of
+     * @return Future that completes when the previous embedding store is closed
+     */
+    public CompletableFuture<Void> swap(LuceneEmbeddingStore embeddingStore) {
+        ensureNotNull(embeddingStore, "embeddingStore");
+
+        // Make the complete new index visible before any query is sent to it
+        embeddingStore.commit();
+        try {
+            embeddingStore.searcherProvider().refresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Target previous;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Index alias is closed");
+            }
+            if (current.embeddingStore == embeddingStore) {
+                throw new IllegalArgumentException("Index alias already refers to the embedding store");
+            }
+            previous = current;
+            current = new Target(embeddingStore);
+            swapCount = swapCount + 1;
+        }
+        log.info(String.format("Swapped index alias to generation <%d>", swapCount()));
+
+        previous.retire();
+        return closeWhenDrained(previous);
+    }
+
+    /**
+     * Close the embedding store of a retired target on the close executor, once queries in progress
+     * on it complete, since closing commits and waits for merges.
+     *
+     * @param target Retired target
+     * @return Future that completes when the embedding store is closed
+     */
+    private CompletableFuture<Void> closeWhenDrained(Target target) {
+        return target.drained.thenRunAsync(
+                () -> {
+                    try {
+                        target.embeddingStore.close();
+                    } catch (IOException e) {
+                        log.error("Could not close embedding store", e);
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                closeExecutor);
+    }
+
+    /**
+     * Acquire the current embedding store for a single query. The lease needs to be closed when the
+     * query completes.
+     *
+     * @return Lease on the current embedding store
+     */
+    Lease acquire() {
+        while (true) {
+            Target target = current;
+            target.inFlight.incrementAndGet();
+            if (target == current) {
+                return new Lease(target);
+            }
+            // Swapped in the meantime, so do not hold up closing the previous embedding store
+            target.release();
+        }
+    }
+}
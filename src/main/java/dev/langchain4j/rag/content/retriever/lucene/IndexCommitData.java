@@ -0,0 +1,81 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * Index-wide settings recorded in the user data of each Lucene commit, so that content retrievers
+ * can interpret the index consistently with how it was written.
+ */
+final class IndexCommitData {
+
+    /** Types of metadata fields. * */
+    static final String METADATA_SCHEMA = "metadata-schema";
+
+    /** Range of id hashes routed to a shard of a sharded embedding store. * */
+    static final String SHARD_RANGE = "shard-range";
+
+    /** Name of the token estimator used for token counts. * */
+    static final String TOKEN_ESTIMATOR = "token-estimator";
+
+    /** Quantization of embedding vectors. * */
+    static final String VECTOR_QUANTIZATION = "vector-quantization";
+
+    /**
+     * Read commit user data from an index reader.
+     *
+     * @param reader Index reader
+     * @return Commit user data, which is empty if the reader is not on a directory
+     * @throws IOException On an exception reading the commit
+     */
+    static Map<String, String> read(IndexReader reader) throws IOException {
+        if (reader instanceof DirectoryReader directoryReader) {
+            return directoryReader.getIndexCommit().getUserData();
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Read live commit user data from an index writer, which includes values that have not been
+     * committed yet.
+     *
+     * @param writer Index writer
+     * @return Commit user data
+     */
+    static Map<String, String> read(IndexWriter writer) {
+        Map<String, String> commitData = new HashMap<>();
+        Iterable<Entry<String, String>> liveCommitData = writer.getLiveCommitData();
+        if (liveCommitData != null) {
+            for (Entry<String, String> entry : liveCommitData) {
+                commitData.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return commitData;
+    }
+
+    /**
+     * Set a value in the live commit user data of an index writer, to be written with the next
+     * commit.
+     *
+     * @param writer Index writer
+     * @param key Key
+     * @param value Value
+     */
+    static synchronized void write(IndexWriter writer, String key, String value) {
+        Map<String, String> commitData = read(writer);
+        if (value.equals(commitData.get(key))) {
+            return;
+        }
+        commitData.put(key, value);
+        writer.setLiveCommitData(commitData.entrySet());
+    }
+
+    private IndexCommitData() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,373 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares a long-lived, reference-counted index searcher between concurrent queries. A searcher on a
+ * directory is opened lazily, once the directory contains an index, and is refreshed according to
+ * the refresh policy. A near-real-time searcher on an index writer sees changes that have not been
+ * committed yet, and is refreshed in the background. A searcher on the shards of a sharded index
+ * searches the near-real-time searchers of all shards together.
+ */
+final class IndexSearcherProvider implements Closeable {
+
+    /** Searcher over the readers of all shards, which is reused until a shard reader changes. */
+    private record ShardedSearcher(List<IndexReader> shardReaders, IndexSearcher searcher) {}
+
+    /** Default time to wait for an index generation to become visible to searches. */
+    static final Duration DEFAULT_GENERATION_WAIT = Duration.ofSeconds(30);
+
+    private static final double MIN_STALE_SECONDS = 0.01;
+    private static final double DEFAULT_MAX_STALE_SECONDS = 1.0;
+
+    private static final Logger log = LoggerFactory.getLogger(IndexSearcherProvider.class);
+
+    private final Directory directory;
+    private final RefreshPolicy refreshPolicy;
+    private final SearcherFactory searcherFactory;
+    private final ScheduledExecutorService refreshScheduler;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final IndexWriter indexWriter;
+    private final Supplier<List<IndexSearcherProvider>> shards;
+    private final Executor shardExecutor;
+    private volatile SearcherManager searcherManager;
+    private ShardedSearcher shardedSearcher;
+    private volatile boolean closed;
+
+    /**
+     * Create a searcher provider for a Lucene directory.
+     *
+     * @param directory Lucene directory
+     * @param refreshPolicy When to refresh the searcher
+     * @param refreshInterval Interval between refreshes, used only for timed refreshes
+     * @param searcherFactory Factory for new searchers, called whenever the searcher is refreshed
+     */
+    IndexSearcherProvider(
+            Directory directory,
+            RefreshPolicy refreshPolicy,
+            Duration refreshInterval,
+            SearcherFactory searcherFactory) {
+        this.directory = ensureNotNull(directory, "directory");
+        this.refreshPolicy = ensureNotNull(refreshPolicy, "refreshPolicy");
+        this.searcherFactory = ensureNotNull(searcherFactory, "searcherFactory");
+
+        if (refreshPolicy == RefreshPolicy.TIMED) {
+            long intervalMillis = Math.max(
+                    1, ensureNotNull(refreshInterval, "refreshInterval").toMillis());
+            refreshScheduler =
+                    Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("lucene-searcher-refresh"));
+            refreshScheduler.scheduleWithFixedDelay(
+                    this::refreshQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            refreshScheduler = null;
+        }
+        reopenThread = null;
+        indexWriter = null;
+        shards = null;
+        shardExecutor = null;
+    }
+
+    /**
+     * Create a near-real-time searcher provider for an index writer. Generations returned by the
+     * index writer can be waited on using {@link #waitForGeneration(long, Duration)}.
+     *
+     * @param indexWriter Index writer
+     * @param refreshInterval Maximum time before changes become visible to searches, or zero if the
+     *     writer refreshes the searcher itself after every change
+     * @param searcherFactory Factory for new searchers, called whenever the searcher is refreshed
+     * @throws IOException On an exception opening a reader on the index writer
+     */
+    IndexSearcherProvider(IndexWriter indexWriter, Duration refreshInterval, SearcherFactory searcherFactory)
+            throws IOException {
+        this.indexWriter = ensureNotNull(indexWriter, "indexWriter");
+        this.searcherFactory = ensureNotNull(searcherFactory, "searcherFactory");
+        directory = indexWriter.getDirectory();
+        refreshPolicy = RefreshPolicy.TIMED;
+        refreshScheduler = null;
+        shards = null;
+        shardExecutor = null;
+
+        double maxStaleSeconds;
+        if (ensureNotNull(refreshInterval, "refreshInterval").isZero()) {
+            // Background refreshes are only a fallback, and waits for a generation are still honored
+            maxStaleSeconds = DEFAULT_MAX_STALE_SECONDS;
+        } else {
+            maxStaleSeconds = refreshInterval.toMillis() / 1000.0;
+        }
+        double minStaleSeconds = Math.min(maxStaleSeconds, MIN_STALE_SECONDS);
+        searcherManager = new SearcherManager(indexWriter, searcherFactory);
+        reopenThread =
+                new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, maxStaleSeconds, minStaleSeconds);
+        reopenThread.setName("lucene-nrt-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    /**
+     * Create a searcher provider over the shards of a sharded index, which searches all shards as a
+     * single multi-reader, so that full-text scores use term statistics of the whole index and are
+     * comparable across shards. The searcher is rebuilt whenever the searcher of a shard changes, or
+     * shards are added.
+     *
+     * @param shards Searcher providers of the current shards, which are not closed by this provider
+     * @param shardExecutor Executor that searches shards concurrently - can be null
+     */
+    IndexSearcherProvider(Supplier<List<IndexSearcherProvider>> shards, Executor shardExecutor) {
+        this.shards = ensureNotNull(shards, "shards");
+        this.shardExecutor = shardExecutor; // Can be null
+        directory = null;
+        refreshPolicy = RefreshPolicy.ON_DEMAND;
+        searcherFactory = null;
+        refreshScheduler = null;
+        reopenThread = null;
+        indexWriter = null;
+    }
+
+    /**
+     * Acquire the current searcher, which must be released after use. Refreshes the searcher first
+     * if the refresh policy is to refresh on each commit.
+     *
+     * @return Current searcher, or null if the directory does not have an index yet
+     * @throws IOException On an exception opening or refreshing the searcher
+     */
+    IndexSearcher acquire() throws IOException {
+        if (shards != null) {
+            return acquireSharded();
+        }
+        SearcherManager manager = searcherManager();
+        if (manager == null) {
+            return null;
+        }
+        if (refreshPolicy == RefreshPolicy.ON_COMMIT) {
+            // Does not block if another thread is already refreshing
+            manager.maybeRefresh();
+        }
+        return manager.acquire();
+    }
+
+    /**
+     * Index-wide settings recorded in commit user data, for the index that a searcher was acquired
+     * on. Near-real-time searchers see settings that have not been committed yet.
+     *
+     * @param searcher Searcher acquired from this provider
+     * @return Commit user data
+     * @throws IOException On an exception reading the commit
+     */
+    Map<String, String> commitData(IndexSearcher searcher) throws IOException {
+        if (shards != null) {
+            return shardCommitData();
+        }
+        if (indexWriter != null) {
+            return IndexCommitData.read(indexWriter);
+        }
+        return IndexCommitData.read(searcher.getIndexReader());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+        }
+        if (reopenThread != null) {
+            reopenThread.close();
+        }
+        // Searchers that are still in use are closed when they are released
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (shardedSearcher != null) {
+            shardedSearcher.searcher().getIndexReader().decRef();
+            shardedSearcher = null;
+        }
+    }
+
+    /**
+     * Refresh the searcher, waiting for the refresh to complete if another thread is refreshing.
+     *
+     * @throws IOException On an exception refreshing the searcher
+     */
+    void refresh() throws IOException {
+        if (shards != null) {
+            for (IndexSearcherProvider shard : shards.get()) {
+                shard.refresh();
+            }
+            return;
+        }
+        SearcherManager manager = searcherManager();
+        if (manager != null) {
+            manager.maybeRefreshBlocking();
+        }
+    }
+
+    /**
+     * Release a searcher previously obtained from {@link #acquire()}.
+     *
+     * @param searcher Searcher to release, can be null
+     * @throws IOException On an exception closing an index reader that is no longer in use
+     */
+    void release(IndexSearcher searcher) throws IOException {
+        if (searcher == null) {
+            return;
+        }
+        // The reader's reference count is independent of whether this provider is closed
+        searcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Wait until an index generation is visible to searches. Generations are only tracked for
+     * near-real-time searchers, so other searchers are simply refreshed.
+     *
+     * @param generation Index generation returned when content was indexed
+     * @param timeout Maximum time to wait
+     * @return True if the generation is visible, false if the wait timed out
+     * @throws IOException On an exception refreshing the searcher
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean waitForGeneration(long generation, Duration timeout) throws IOException, InterruptedException {
+        if (reopenThread == null) {
+            refresh();
+            return true;
+        }
+        int maxMillis = (int)
+                Math.min(Integer.MAX_VALUE, ensureNotNull(timeout, "timeout").toMillis());
+        return reopenThread.waitForGeneration(generation, maxMillis);
+    }
+
+    /**
+     * Acquire the searcher over all shards, rebuilding it if the searcher of any shard has changed.
+     *
+     * @return Searcher over all shards, or null if no shard has an index yet
+     * @throws IOException On an exception acquiring a shard searcher
+     */
+    private IndexSearcher acquireSharded() throws IOException {
+        List<IndexSearcher> shardSearchers = new ArrayList<>();
+        try {
+            for (IndexSearcherProvider shard : shards.get()) {
+                IndexSearcher shardSearcher = shard.acquire();
+                if (shardSearcher != null) {
+                    shardSearchers.add(shardSearcher);
+                }
+            }
+            if (shardSearchers.isEmpty()) {
+                return null;
+            }
+            List<IndexReader> shardReaders = new ArrayList<>();
+            for (IndexSearcher shardSearcher : shardSearchers) {
+                shardReaders.add(shardSearcher.getIndexReader());
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    throw new AlreadyClosedException("Searcher provider is closed");
+                }
+                ShardedSearcher current = shardedSearcher;
+                if (current == null || !current.shardReaders().equals(shardReaders)) {
+                    // The multi-reader holds a reference to each shard reader until it is closed
+                    MultiReader reader = new MultiReader(shardReaders.toArray(new IndexReader[0]), false);
+                    if (current != null) {
+                        current.searcher().getIndexReader().decRef();
+                    }
+                    current = new ShardedSearcher(shardReaders, new IndexSearcher(reader, shardExecutor));
+                    shardedSearcher = current;
+                }
+                current.searcher().getIndexReader().incRef();
+                return current.searcher();
+            }
+        } finally {
+            for (IndexSearcher shardSearcher : shardSearchers) {
+                release(shardSearcher);
+            }
+        }
+    }
+
+    /**
+     * Index-wide settings of all shards, with the metadata schemas of the shards combined. Other
+     * settings are taken from the first shard that records them.
+     *
+     * @return Commit user data
+     */
+    private Map<String, String> shardCommitData() {
+        Map<String, String> commitData = new HashMap<>();
+        MetadataSchema schema = new MetadataSchema();
+        for (IndexSearcherProvider shard : shards.get()) {
+            if (shard.indexWriter == null) {
+                continue;
+            }
+            Map<String, String> shardData = IndexCommitData.read(shard.indexWriter);
+            for (Entry<String, MetadataFieldType> entry :
+                    MetadataSchema.read(shardData).fieldTypes().entrySet()) {
+                schema.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            shardData.forEach(commitData::putIfAbsent);
+        }
+        commitData.put(IndexCommitData.METADATA_SCHEMA, schema.format());
+        commitData.remove(IndexCommitData.SHARD_RANGE);
+        return commitData;
+    }
+
+    private void refreshQuietly() {
+        try {
+            SearcherManager manager = searcherManager();
+            if (manager != null) {
+                manager.maybeRefresh();
+            }
+        } catch (AlreadyClosedException e) {
+            log.debug("Not refreshing a closed searcher");
+        } catch (Exception e) {
+            log.warn("Could not refresh searcher", e);
+        }
+    }
+
+    /**
+     * Lazily open the searcher manager, since the index may not have been created yet.
+     *
+     * @return Searcher manager, or null if the directory does not have an index yet
+     * @throws IOException On an exception opening the index
+     */
+    private SearcherManager searcherManager() throws IOException {
+        SearcherManager manager = searcherManager;
+        if (manager != null) {
+            return manager;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new AlreadyClosedException("Searcher provider is closed");
+            }
+            if (searcherManager == null && DirectoryReader.indexExists(directory)) {
+                searcherManager = new SearcherManager(directory, searcherFactory);
+            }
+            return searcherManager;
+        }
+    }
+}
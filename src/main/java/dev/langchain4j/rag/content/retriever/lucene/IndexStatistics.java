@@ -0,0 +1,77 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * Size of an index at a point in time, for monitoring. Document and segment counts are as seen by
+ * near-real-time searches, so they do not include content that is not yet visible to searches.
+ */
+public final class IndexStatistics {
+
+    static final IndexStatistics EMPTY = new IndexStatistics(0, 0, 0, 0, 0);
+
+    private final int documentCount;
+    private final int deletedDocumentCount;
+    private final int segmentCount;
+    private final long ramBytes;
+    private final long diskBytes;
+
+    IndexStatistics(int documentCount, int deletedDocumentCount, int segmentCount, long ramBytes, long diskBytes) {
+        this.documentCount = documentCount;
+        this.deletedDocumentCount = deletedDocumentCount;
+        this.segmentCount = segmentCount;
+        this.ramBytes = ramBytes;
+        this.diskBytes = diskBytes;
+    }
+
+    /**
+     * Number of deleted documents that still take space in segments.
+     *
+     * @return Number of deleted documents
+     */
+    public int deletedDocumentCount() {
+        return deletedDocumentCount;
+    }
+
+    /**
+     * Total size of the files in the directory.
+     *
+     * @return Size in bytes
+     */
+    public long diskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Number of live documents in the index.
+     *
+     * @return Number of documents
+     */
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Heap used by the index writer for buffered documents and deletions that are not yet flushed.
+     *
+     * @return Size in bytes
+     */
+    public long ramBytes() {
+        return ramBytes;
+    }
+
+    /**
+     * Number of segments in the index.
+     *
+     * @return Number of segments
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(
+                "IndexStatistics[documents=%d, deleted=%d, segments=%d, ram=%d, disk=%d]",
+                documentCount, deletedDocumentCount, segmentCount, ramBytes, diskBytes);
+    }
+}
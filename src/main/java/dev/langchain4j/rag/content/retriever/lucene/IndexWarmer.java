@@ -0,0 +1,179 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warming queries that a content retriever runs before it is ready for traffic, so that index
+ * files are paged in and vector graphs are loaded before the first user queries. The queries are
+ * run in rounds, until the time for a round stops improving. Combine with a directory that preloads
+ * index files, from {@link DirectoryFactory#fsDirectory(Path, String...)}.
+ */
+public final class IndexWarmer {
+
+    /** Builder for `IndexWarmer`. */
+    public static class IndexWarmerBuilder {
+
+        private final List<String> queries;
+        private double latencyTolerance;
+        private int maxRounds;
+
+        private IndexWarmerBuilder() {
+            // Set defaults
+            queries = new ArrayList<>();
+            latencyTolerance = 0.2;
+            maxRounds = 10;
+        }
+
+        /**
+         * Build an instance of `IndexWarmer` using internal builder field values.
+         *
+         * @return New instance of `IndexWarmer`
+         */
+        public IndexWarmer build() {
+            return new IndexWarmer(queries, latencyTolerance, maxRounds);
+        }
+
+        /**
+         * Sets how much the time for a round of warming queries can differ from the time for the
+         * previous round, for latency to be considered stable. For example, 0.2 allows a round to be
+         * 20% faster or slower. A round that is much faster shows that the index is still warming.
+         *
+         * @param latencyTolerance Fraction of the time of the previous round
+         * @return Builder
+         */
+        public IndexWarmerBuilder latencyTolerance(double latencyTolerance) {
+            if (latencyTolerance >= 0) {
+                this.latencyTolerance = latencyTolerance;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of rounds of warming queries. Warm-up stops after this many rounds
+         * even if latency is not stable.
+         *
+         * @param maxRounds Maximum number of rounds
+         * @return Builder
+         */
+        public IndexWarmerBuilder maxRounds(int maxRounds) {
+            if (maxRounds > 0) {
+                this.maxRounds = maxRounds;
+            }
+            return this;
+        }
+
+        /**
+         * Adds warming queries. Queries should be representative of user queries, so that the same
+         * index files are read.
+         *
+         * @param queries Query texts
+         * @return Builder
+         */
+        public IndexWarmerBuilder queries(Collection<String> queries) {
+            ensureNotNull(queries, "queries");
+            for (String query : queries) {
+                if (query != null && !query.isBlank()) {
+                    this.queries.add(query);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds warming queries from a saved sample of user queries, which is a UTF-8 text file with
+         * one query on each line. Blank lines are ignored.
+         *
+         * @param querySample Path of the query sample file
+         * @return Builder
+         */
+        public IndexWarmerBuilder querySample(Path querySample) {
+            ensureNotNull(querySample, "querySample");
+            try {
+                return queries(Files.readAllLines(querySample, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(IndexWarmer.class);
+
+    /**
+     * Instantiate a builder for `IndexWarmer`.
+     *
+     * @return Builder for `IndexWarmer`
+     */
+    public static IndexWarmerBuilder builder() {
+        return new IndexWarmerBuilder();
+    }
+
+    private final List<String> queries;
+    private final double latencyTolerance;
+    private final int maxRounds;
+
+    /**
+     * Initialize all fields.
+     *
+     * @param queries Warming query texts
+     * @param latencyTolerance How much the time for a stable round can differ from the previous round
+     * @param maxRounds Maximum number of rounds
+     */
+    private IndexWarmer(List<String> queries, double latencyTolerance, int maxRounds) {
+        this.queries = List.copyOf(queries);
+        this.latencyTolerance = Math.max(0, latencyTolerance);
+        this.maxRounds = Math.max(1, maxRounds);
+    }
+
+    /**
+     * Warming query texts.
+     *
+     * @return Query texts
+     */
+    public List<String> queries() {
+        return queries;
+    }
+
+    /**
+     * Run rounds of warming queries until the time for a round is within the tolerance of the time
+     * for the previous round, or until the maximum number of rounds.
+     *
+     * @param search Runs a single query, bypassing any cache of results
+     * @return Whether latency became stable
+     */
+    boolean warm(Consumer<String> search) {
+        if (queries.isEmpty()) {
+            return true;
+        }
+
+        long previousNanos = -1;
+        for (int round = 1; round <= maxRounds; round++) {
+            long start = System.nanoTime();
+            for (String query : queries) {
+                search.accept(query);
+            }
+            long nanos = System.nanoTime() - start;
+            log.debug(String.format(
+                    "Warming round <%d> of <%d> queries took <%d> ms", round, queries.size(), nanos / 1_000_000));
+
+            if (previousNanos >= 0 && Math.abs(nanos - previousNanos) <= latencyTolerance * previousNanos) {
+                log.info(String.format("Warm-up latency is stable after <%d> rounds", round));
+                return true;
+            }
+            previousNanos = nanos;
+        }
+        log.warn(String.format("Warm-up latency is not stable after <%d> rounds", maxRounds));
+        return false;
+    }
+}
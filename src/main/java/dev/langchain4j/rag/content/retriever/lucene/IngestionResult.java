@@ -0,0 +1,65 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Outcome of indexing a batch of content asynchronously, including failures of individual items. */
+public final class IngestionResult {
+
+    private final long generation;
+    private final List<String> ids;
+    private final Map<Integer, Exception> failures;
+
+    IngestionResult(long generation, List<String> ids, Map<Integer, Exception> failures) {
+        this.generation = generation;
+        this.ids = Collections.unmodifiableList(ensureNotNull(ids, "ids"));
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(ensureNotNull(failures, "failures")));
+    }
+
+    /**
+     * Failures of individual items, keyed by the position of the item in the submitted batch.
+     *
+     * @return Failures, which is empty if all items were indexed
+     */
+    public Map<Integer, Exception> failures() {
+        return failures;
+    }
+
+    /**
+     * Index generation that includes the batch, which searches can wait for.
+     *
+     * @return Index generation, or -1 if nothing was indexed
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Whether any item in the batch could not be indexed.
+     *
+     * @return True if there were failures
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Ids of all items in the batch, in the order submitted, including ids that were generated.
+     *
+     * @return Content ids
+     */
+    public List<String> ids() {
+        return ids;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(
+                "IngestionResult[generation=%d, items=%d, failures=%d]", generation, ids.size(), failures.size());
+    }
+}
@@ -11,18 +11,25 @@ import dev.langchain4j.model.output.Response;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.ContentMetadata;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.StoredValue;
-import org.apache.lucene.document.StoredValue.Type;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause.Occur;
@@ -33,19 +40,21 @@ import org.apache.lucene.search.KnnFloatVectorQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /** Full-text content retrieval using Apache Lucene for LangChain4J RAG. */
-public final class LuceneContentRetriever implements ContentRetriever {
+public final class LuceneContentRetriever implements ContentRetriever, Closeable {
 
     /** Builder for `LuceneContentRetriever`. */
     public static class LuceneContentRetrieverBuilder {
 
         private Directory directory;
+        private LuceneEmbeddingStore embeddingStore;
         private EmbeddingModel embeddingModel;
         private boolean onlyMatches;
         private int maxResults;
@@ -53,7 +62,29 @@ public final class LuceneContentRetriever implements ContentRetriever {
         private double minScore;
         private String contentFieldName;
         private String tokenCountFieldName;
+        private TokenEstimator tokenEstimator;
         private String embeddingFieldName;
+        private RefreshPolicy refreshPolicy;
+        private Duration refreshInterval;
+        private HybridMode hybridMode;
+        private IndexAlias indexAlias;
+        private IndexWarmer indexWarmer;
+        private ShardedEmbeddingStore shardedStore;
+        private int fullTextMaxResults;
+        private int vectorMaxResults;
+        private double fullTextWeight;
+        private double vectorWeight;
+        private int rankConstant;
+        private Executor searchExecutor;
+        private int maxDocsPerSlice;
+        private int maxSegmentsPerSlice;
+        private QueryEmbeddingCache queryEmbeddingCache;
+        private RetrievalResultCache resultCache;
+        private Filter filter;
+        private Set<String> metadataFields;
+        private TokenBudgetStrategy tokenBudgetStrategy;
+        private int tokenBudgetCandidates;
+        private LuceneMetrics metrics;
 
         private LuceneContentRetrieverBuilder() {
             // Set defaults
@@ -64,6 +95,16 @@ public final class LuceneContentRetriever implements ContentRetriever {
             contentFieldName = LuceneDocumentFields.CONTENT_FIELD_NAME.fieldName();
             tokenCountFieldName = LuceneDocumentFields.TOKEN_COUNT_FIELD_NAME.fieldName();
             embeddingFieldName = LuceneDocumentFields.EMBEDDING_FIELD_NAME.fieldName();
+            refreshPolicy = RefreshPolicy.ON_COMMIT;
+            refreshInterval = Duration.ofSeconds(1);
+            hybridMode = HybridMode.COMBINED;
+            fullTextWeight = 1;
+            vectorWeight = 1;
+            rankConstant = ScoreFusion.DEFAULT_RANK_CONSTANT;
+            maxDocsPerSlice = SlicedIndexSearcher.DEFAULT_MAX_DOCS_PER_SLICE;
+            maxSegmentsPerSlice = SlicedIndexSearcher.DEFAULT_MAX_SEGMENTS_PER_SLICE;
+            tokenBudgetStrategy = TokenBudgetStrategy.GREEDY;
+            metrics = LuceneMetrics.NOOP;
         }
 
         /**
@@ -72,11 +113,12 @@ public final class LuceneContentRetriever implements ContentRetriever {
          * @return New instance of `LuceneContentRetriever`
          */
         public LuceneContentRetriever build() {
-            if (directory == null) {
+            if (directory == null && embeddingStore == null && indexAlias == null && shardedStore == null) {
                 directory = DirectoryFactory.tempDirectory();
             }
             return new LuceneContentRetriever(
                     directory,
+                    embeddingStore,
                     embeddingModel,
                     onlyMatches,
                     maxResults,
@@ -84,7 +126,29 @@ public final class LuceneContentRetriever implements ContentRetriever {
                     minScore,
                     contentFieldName,
                     tokenCountFieldName,
-                    embeddingFieldName);
+                    embeddingFieldName,
+                    refreshPolicy,
+                    refreshInterval,
+                    tokenEstimator,
+                    hybridMode,
+                    fullTextMaxResults,
+                    vectorMaxResults,
+                    fullTextWeight,
+                    vectorWeight,
+                    rankConstant,
+                    searchExecutor,
+                    maxDocsPerSlice,
+                    maxSegmentsPerSlice,
+                    queryEmbeddingCache,
+                    resultCache,
+                    filter,
+                    metadataFields,
+                    tokenBudgetStrategy,
+                    tokenBudgetCandidates,
+                    indexAlias,
+                    indexWarmer,
+                    shardedStore,
+                    metrics);
         }
 
         /**
@@ -131,6 +195,21 @@ public final class LuceneContentRetriever implements ContentRetriever {
             return this;
         }
 
+        /**
+         * Sets the Lucene embedding store to search using its near-real-time searcher, which sees
+         * content before it is committed. If set, the directory and refresh policy are not used, and
+         * the embedding store needs to be closed separately from the content retriever. An index
+         * alias takes precedence over the embedding store.
+         *
+         * @param embeddingStore Lucene embedding store
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder embeddingStore(LuceneEmbeddingStore embeddingStore) {
+            // Can be null
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
         /**
          * Sets the EmbeddingModel. If null, only full-text search is available, since the query is not
          * embedded.
@@ -144,6 +223,105 @@ public final class LuceneContentRetriever implements ContentRetriever {
             return this;
         }
 
+        /**
+         * Sets a filter on metadata, so that only matching documents are retrieved. The filter is
+         * applied while searching, including while traversing the nearest neighbor graph, so that the
+         * maximum number of results can be found among matching documents. If null, documents are not
+         * filtered.
+         *
+         * @param filter Metadata filter
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder filter(Filter filter) {
+            // Can be null
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Filter on metadata that has been set, so that it can be combined with another filter.
+         *
+         * @return Metadata filter, or null if documents are not filtered
+         */
+        Filter filter() {
+            return filter;
+        }
+
+        /**
+         * Sets the number of full-text matches considered for fusion, when full-text and vector
+         * searches are run separately. By default, this is the maximum number of results.
+         *
+         * @param fullTextMaxResults Number of full-text matches, or zero for the default
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder fullTextMaxResults(int fullTextMaxResults) {
+            if (fullTextMaxResults >= 0) {
+                this.fullTextMaxResults = fullTextMaxResults;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the weight of full-text matches, when full-text and vector searches are run separately
+         * and fused.
+         *
+         * @param fullTextWeight Full-text weight
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder fullTextWeight(double fullTextWeight) {
+            if (fullTextWeight >= 0) {
+                this.fullTextWeight = fullTextWeight;
+            }
+            return this;
+        }
+
+        /**
+         * Sets how full-text and vector searches are combined. By default, they are combined into a
+         * single query. Note that fused scores are on a different scale from Lucene scores, so the
+         * minimum score needs to be set accordingly.
+         *
+         * @param hybridMode Hybrid search mode
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder hybridMode(HybridMode hybridMode) {
+            if (hybridMode == null) {
+                this.hybridMode = HybridMode.COMBINED;
+            } else {
+                this.hybridMode = hybridMode;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the index alias to search, so that the index can be rebuilt and swapped without
+         * downtime. Each query searches the embedding store that the alias refers to when the query
+         * starts, using its near-real-time searcher. If set, the directory, embedding store and
+         * refresh policy are not used, and the alias needs to be closed separately from the content
+         * retriever.
+         *
+         * @param indexAlias Index alias
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder indexAlias(IndexAlias indexAlias) {
+            // Can be null
+            this.indexAlias = indexAlias;
+            return this;
+        }
+
+        /**
+         * Sets warming queries to run before the content retriever is ready for traffic. If set, the
+         * content retriever is not ready until {@link LuceneContentRetriever#warmUp()} is called, and
+         * latency becomes stable.
+         *
+         * @param indexWarmer Warming queries
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder indexWarmer(IndexWarmer indexWarmer) {
+            // Can be null
+            this.indexWarmer = indexWarmer;
+            return this;
+        }
+
         /**
          * Provides documents until the number of max results, even if there is no good match.
          *
@@ -180,6 +358,39 @@ public final class LuceneContentRetriever implements ContentRetriever {
             return this;
         }
 
+        /**
+         * Sets the metadata fields returned with content, so that other stored fields are not decoded.
+         * If not set, all metadata is returned, and if set with no field names, no metadata is
+         * returned.
+         *
+         * @param metadataFields Names of metadata fields to return
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder metadataFields(String... metadataFields) {
+            if (metadataFields == null) {
+                this.metadataFields = null;
+            } else {
+                this.metadataFields = new HashSet<>(Arrays.asList(metadataFields));
+            }
+            return this;
+        }
+
+        /**
+         * Sets where metrics of retrieval are recorded, such as latencies of each stage, hit counts
+         * and cache lookups. By default, metrics are discarded.
+         *
+         * @param metrics Metrics
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder metrics(LuceneMetrics metrics) {
+            if (metrics == null) {
+                this.metrics = LuceneMetrics.NOOP;
+            } else {
+                this.metrics = metrics;
+            }
+            return this;
+        }
+
         /**
          * Returns values above a certain score.
          *
@@ -203,6 +414,159 @@ public final class LuceneContentRetriever implements ContentRetriever {
             return this;
         }
 
+        /**
+         * Sets a cache of query embeddings, so that repeated queries do not call the embedding model
+         * again. The cache can be shared by content retrievers that use the same embedding model. If
+         * null, every query is embedded.
+         *
+         * @param queryEmbeddingCache Query embedding cache
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder queryEmbeddingCache(QueryEmbeddingCache queryEmbeddingCache) {
+            // Can be null
+            this.queryEmbeddingCache = queryEmbeddingCache;
+            return this;
+        }
+
+        /**
+         * Sets the rank constant for reciprocal rank fusion. Larger values give lower ranked matches
+         * relatively more weight.
+         *
+         * @param rankConstant Rank constant
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder rankConstant(int rankConstant) {
+            if (rankConstant > 0) {
+                this.rankConstant = rankConstant;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the interval between searcher refreshes, used when the refresh policy is timed.
+         *
+         * @param refreshInterval Refresh interval
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder refreshInterval(Duration refreshInterval) {
+            if (refreshInterval != null && !refreshInterval.isNegative() && !refreshInterval.isZero()) {
+                this.refreshInterval = refreshInterval;
+            }
+            return this;
+        }
+
+        /**
+         * Sets when the shared index searcher is refreshed to see changes to the index. By default,
+         * the searcher is refreshed when a new commit is found before a query.
+         *
+         * @param refreshPolicy Refresh policy
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+            if (refreshPolicy == null) {
+                this.refreshPolicy = RefreshPolicy.ON_COMMIT;
+            } else {
+                this.refreshPolicy = refreshPolicy;
+            }
+            return this;
+        }
+
+        /**
+         * Sets a cache of retrieved content, so that repeated queries do not search the index again
+         * until it changes. Identical concurrent queries are searched only once. A result cache needs
+         * to be used by only one content retriever. If null, every query searches the index.
+         *
+         * @param resultCache Result cache
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder resultCache(RetrievalResultCache resultCache) {
+            // Can be null
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        /**
+         * Sets the executor used to search groups of index segments concurrently within a single
+         * query, for both full-text and vector searches, and to run the separate searches of a fused
+         * hybrid query concurrently. If null, each query searches all segments on the calling thread.
+         * The executor is not shut down when the content retriever is closed. See
+         * {@link SearchExecutors} for ready-made executors, including virtual threads.
+         *
+         * @param searchExecutor Executor for concurrent segment search
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder searchExecutor(Executor searchExecutor) {
+            // Can be null
+            this.searchExecutor = searchExecutor;
+            return this;
+        }
+
+        /**
+         * Sets how index segments are grouped into slices for concurrent search, where each slice is
+         * searched by one task. Smaller slices give more parallelism, at the cost of more tasks per
+         * query. A segment larger than the maximum number of documents is a slice on its own. The
+         * defaults are the same as Lucene's.
+         *
+         * @param maxDocsPerSlice Maximum number of documents in a slice
+         * @param maxSegmentsPerSlice Maximum number of segments in a slice
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder searchSlices(int maxDocsPerSlice, int maxSegmentsPerSlice) {
+            if (maxDocsPerSlice > 0) {
+                this.maxDocsPerSlice = maxDocsPerSlice;
+            }
+            if (maxSegmentsPerSlice > 0) {
+                this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the sharded embedding store to search. All shards are searched together through
+         * their near-real-time searchers, so full-text scores use term statistics of the whole
+         * index and are comparable across shards, and shards are searched in parallel. If set, the
+         * directory, embedding store and refresh policy are not used, and the sharded embedding store
+         * needs to be closed separately from the content retriever. An index alias takes precedence
+         * over the sharded embedding store.
+         *
+         * @param shardedStore Sharded embedding store
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder shardedStore(ShardedEmbeddingStore shardedStore) {
+            // Can be null
+            this.shardedStore = shardedStore;
+            return this;
+        }
+
+        /**
+         * Sets the number of top matching documents that are considered when fitting content within the
+         * maximum number of tokens, since some of them may be skipped. If not set, twice the maximum
+         * number of results are considered. This is used only if the maximum number of tokens is set.
+         *
+         * @param tokenBudgetCandidates Number of top matching documents to consider
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder tokenBudgetCandidates(int tokenBudgetCandidates) {
+            this.tokenBudgetCandidates = Math.max(0, tokenBudgetCandidates);
+            return this;
+        }
+
+        /**
+         * Sets how matching documents are chosen to fit within the maximum number of tokens. By default,
+         * documents are taken in descending order of score, skipping those that do not fit.
+         *
+         * @param tokenBudgetStrategy Token budget strategy
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder tokenBudgetStrategy(TokenBudgetStrategy tokenBudgetStrategy) {
+            if (tokenBudgetStrategy == null) {
+                this.tokenBudgetStrategy = TokenBudgetStrategy.GREEDY;
+            } else {
+                this.tokenBudgetStrategy = tokenBudgetStrategy;
+            }
+            return this;
+        }
+
         /**
          * Sets the name of the token count field.
          *
@@ -218,8 +582,54 @@ public final class LuceneContentRetriever implements ContentRetriever {
 
             return this;
         }
+
+        /**
+         * Sets the token estimator that the index is expected to have been built with. It is used to
+         * estimate token counts for documents that do not have one, and a warning is logged if the
+         * index records a different estimator. If null, documents without token counts are not
+         * limited by the maximum number of tokens.
+         *
+         * @param tokenEstimator Token estimator
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder tokenEstimator(TokenEstimator tokenEstimator) {
+            // Can be null
+            this.tokenEstimator = tokenEstimator;
+            return this;
+        }
+
+        /**
+         * Sets the number of nearest neighbors considered for fusion, when full-text and vector
+         * searches are run separately. By default, this is the maximum number of results.
+         *
+         * @param vectorMaxResults Number of nearest neighbors, or zero for the default
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder vectorMaxResults(int vectorMaxResults) {
+            if (vectorMaxResults >= 0) {
+                this.vectorMaxResults = vectorMaxResults;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the weight of nearest neighbors, when full-text and vector searches are run separately
+         * and fused.
+         *
+         * @param vectorWeight Vector weight
+         * @return Builder
+         */
+        public LuceneContentRetrieverBuilder vectorWeight(double vectorWeight) {
+            if (vectorWeight >= 0) {
+                this.vectorWeight = vectorWeight;
+            }
+            return this;
+        }
     }
 
+    /** Settings of an index reader, with the metadata filter translated for its schema. */
+    private record IndexState(IndexReader reader, MetadataSchema schema, Query filterQuery) {}
+
     private static final Logger log = LoggerFactory.getLogger(LuceneContentRetriever.class);
 
     /**
@@ -231,7 +641,11 @@ public final class LuceneContentRetriever implements ContentRetriever {
         return new LuceneContentRetrieverBuilder();
     }
 
-    private final Directory directory;
+    private final IndexSearcherProvider searcherProvider;
+    private final boolean ownsSearcherProvider;
+    private final IndexAlias indexAlias;
+    private final IndexWarmer indexWarmer;
+    private volatile boolean ready;
     private EmbeddingModel embeddingModel;
     private final boolean onlyMatches;
     private final int maxResults;
@@ -240,12 +654,34 @@ public final class LuceneContentRetriever implements ContentRetriever {
     private final String contentFieldName;
     private final String tokenCountFieldName;
     private final String embeddingFieldName;
+    private final TokenEstimator tokenEstimator;
+    private final HybridMode hybridMode;
+    private final int fullTextMaxResults;
+    private final int vectorMaxResults;
+    private final double[] weights;
+    private final int rankConstant;
+    private final Executor searchExecutor;
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+    // Concurrent searcher for the most recently searched index reader
+    private volatile SlicedIndexSearcher slicedSearcher;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final RetrievalResultCache resultCache;
+    private final Filter filter;
+    private final Set<String> metadataFields;
+    private final TokenBudgetStrategy tokenBudgetStrategy;
+    private final int tokenBudgetCandidates;
+    private final LuceneMetrics metrics;
+    private final List<Closeable> metricsBindings;
+    private volatile IndexState indexState;
 
     /**
      * Initialize all fields, and do one more round of validation (even though the builder has
      * validated the fields).
      *
-     * @param directory Lucene directory
+     * @param directory Lucene directory - can be null if an embedding store, index alias or sharded
+     *     embedding store is provided
+     * @param embeddingStore Lucene embedding store with a near-real-time searcher - can be null
      * @param embeddingModel Embedding model - can be null
      * @param onlyMatches Whether to only consider matching documents
      * @param maxResults Return only the first n matches
@@ -253,9 +689,35 @@ public final class LuceneContentRetriever implements ContentRetriever {
      * @param contentFieldName Name of the Lucene field with the text
      * @param tokenCountFieldName Name of the Lucene field with token counts
      * @param embeddingFieldName Name of the Lucene field with embedding vector
+     * @param refreshPolicy When to refresh the shared index searcher
+     * @param refreshInterval Interval between timed searcher refreshes
+     * @param tokenEstimator Token estimator for documents without token counts - can be null
+     * @param hybridMode How full-text and vector searches are combined
+     * @param fullTextMaxResults Number of full-text matches to fuse, or zero for max results
+     * @param vectorMaxResults Number of nearest neighbors to fuse, or zero for max results
+     * @param fullTextWeight Weight of full-text matches when fusing
+     * @param vectorWeight Weight of nearest neighbors when fusing
+     * @param rankConstant Rank constant for reciprocal rank fusion
+     * @param searchExecutor Executor for concurrent segment search - can be null
+     * @param maxDocsPerSlice Maximum number of documents in a concurrently searched slice
+     * @param maxSegmentsPerSlice Maximum number of segments in a concurrently searched slice
+     * @param queryEmbeddingCache Cache of query embeddings - can be null
+     * @param resultCache Cache of retrieved content - can be null
+     * @param filter Metadata filter - can be null
+     * @param metadataFields Names of metadata fields to return - can be null for all fields
+     * @param tokenBudgetStrategy How documents are chosen to fit within the maximum number of tokens
+     * @param tokenBudgetCandidates Number of top matching documents to consider for the maximum number
+     *     of tokens, or zero for twice the maximum number of results
+     * @param indexAlias Index alias to search instead of the directory or embedding store - can be
+     *     null
+     * @param indexWarmer Warming queries to run before the content retriever is ready - can be null
+     * @param shardedStore Sharded embedding store to search instead of the directory or embedding
+     *     store - can be null
+     * @param metrics Metrics of retrieval
      */
     private LuceneContentRetriever(
             Directory directory,
+            LuceneEmbeddingStore embeddingStore,
             EmbeddingModel embeddingModel,
             boolean onlyMatches,
             int maxResults,
@@ -263,8 +725,29 @@ public final class LuceneContentRetriever implements ContentRetriever {
             double minScore,
             String contentFieldName,
             String tokenCountFieldName,
-            String embeddingFieldName) {
-        this.directory = ensureNotNull(directory, "directory");
+            String embeddingFieldName,
+            RefreshPolicy refreshPolicy,
+            Duration refreshInterval,
+            TokenEstimator tokenEstimator,
+            HybridMode hybridMode,
+            int fullTextMaxResults,
+            int vectorMaxResults,
+            double fullTextWeight,
+            double vectorWeight,
+            int rankConstant,
+            Executor searchExecutor,
+            int maxDocsPerSlice,
+            int maxSegmentsPerSlice,
+            QueryEmbeddingCache queryEmbeddingCache,
+            RetrievalResultCache resultCache,
+            Filter filter,
+            Set<String> metadataFields,
+            TokenBudgetStrategy tokenBudgetStrategy,
+            int tokenBudgetCandidates,
+            IndexAlias indexAlias,
+            IndexWarmer indexWarmer,
+            ShardedEmbeddingStore shardedStore,
+            LuceneMetrics metrics) {
         this.embeddingModel = embeddingModel; // Can be null
         this.onlyMatches = onlyMatches;
         this.maxResults = Math.max(0, maxResults);
@@ -272,12 +755,118 @@ public final class LuceneContentRetriever implements ContentRetriever {
         this.minScore = Math.max(0, minScore);
         this.contentFieldName = ensureNotBlank(contentFieldName, "contentFieldName");
         this.tokenCountFieldName = ensureNotBlank(tokenCountFieldName, "tokenCountFieldName");
+        this.tokenEstimator = tokenEstimator; // Can be null
         this.embeddingFieldName = ensureNotBlank(embeddingFieldName, "embeddingFieldName");
+        this.hybridMode = ensureNotNull(hybridMode, "hybridMode");
+        this.fullTextMaxResults = fullTextMaxResults > 0 ? fullTextMaxResults : this.maxResults;
+        this.vectorMaxResults = vectorMaxResults > 0 ? vectorMaxResults : this.maxResults;
+        this.weights = new double[] {Math.max(0, fullTextWeight), Math.max(0, vectorWeight)};
+        this.rankConstant = Math.max(1, rankConstant);
+        this.searchExecutor = searchExecutor; // Can be null
+        this.maxDocsPerSlice = Math.max(1, maxDocsPerSlice);
+        this.maxSegmentsPerSlice = Math.max(1, maxSegmentsPerSlice);
+        this.queryEmbeddingCache = queryEmbeddingCache; // Can be null
+        this.resultCache = resultCache; // Can be null
+        this.filter = filter; // Can be null
+        if (metadataFields == null) {
+            this.metadataFields = null;
+        } else {
+            this.metadataFields = Set.copyOf(metadataFields);
+        }
+        this.tokenBudgetStrategy = ensureNotNull(tokenBudgetStrategy, "tokenBudgetStrategy");
+        if (tokenBudgetCandidates > 0) {
+            this.tokenBudgetCandidates = Math.max(tokenBudgetCandidates, this.maxResults);
+        } else {
+            this.tokenBudgetCandidates = (int) Math.min(Integer.MAX_VALUE, 2L * this.maxResults);
+        }
+        if (filter != null) {
+            // Fail early on filters that cannot be translated
+            FilterQueryMapper.toQuery(filter, new MetadataSchema());
+        }
+        this.indexWarmer = indexWarmer; // Can be null
+        this.ready = indexWarmer == null;
+        this.metrics = ensureNotNull(metrics, "metrics");
+        metricsBindings = new ArrayList<>();
+        if (queryEmbeddingCache != null) {
+            metricsBindings.add(metrics.bindCache(
+                    "query-embedding", queryEmbeddingCache::hitCount, queryEmbeddingCache::missCount));
+        }
+        if (resultCache != null) {
+            metricsBindings.add(metrics.bindCache("retrieval-result", resultCache::hitCount, resultCache::missCount));
+        }
+        this.indexAlias = indexAlias; // Can be null
+        if (indexAlias != null) {
+            // Searcher provider of the current embedding store is acquired for each query
+            searcherProvider = null;
+            ownsSearcherProvider = false;
+        } else if (shardedStore != null) {
+            searcherProvider = shardedStore.searcherProvider();
+            ownsSearcherProvider = false;
+        } else if (embeddingStore != null) {
+            searcherProvider = embeddingStore.searcherProvider();
+            ownsSearcherProvider = false;
+        } else {
+            ensureNotNull(directory, "directory");
+            searcherProvider =
+                    new IndexSearcherProvider(directory, refreshPolicy, refreshInterval, new SearcherFactory());
+            ownsSearcherProvider = true;
+        }
+    }
+
+    /**
+     * Release the shared index searcher, unless it belongs to an embedding store, and unbind cache
+     * metrics. Queries that are in progress complete normally.
+     *
+     * @throws IOException On an exception closing the index reader
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(metricsBindings);
+        } finally {
+            if (ownsSearcherProvider) {
+                searcherProvider.close();
+            }
+        }
+    }
+
+    /**
+     * Refresh the shared index searcher, so that subsequent queries see the latest commit to the
+     * index. This is needed only if the refresh policy is to refresh on demand.
+     */
+    public void refresh() {
+        try (IndexAlias.Lease lease = acquireLease()) {
+            searcherProvider(lease).refresh();
+        } catch (IOException e) {
+            log.error("Could not refresh index searcher", e);
+        }
+    }
+
+    /**
+     * Whether the content retriever is ready for traffic, which is after warm-up if there are warming
+     * queries. Use this for a readiness check, so that queries are routed to this instance only once
+     * latency is stable.
+     *
+     * @return Whether the content retriever is ready
+     */
+    public boolean isReady() {
+        return ready;
     }
 
     /** {@inheritDoc} */
     @Override
     public List<Content> retrieve(dev.langchain4j.rag.query.Query query) {
+        return retrieveUsing(query, resultCache);
+    }
+
+    /**
+     * Retrieve content, optionally using a cache of results.
+     *
+     * @param query Query
+     * @param cache Cache of retrieved content - can be null
+     * @return Retrieved content
+     */
+    private List<Content> retrieveUsing(dev.langchain4j.rag.query.Query query, RetrievalResultCache cache) {
         String queryText;
         if (query == null) {
             queryText = null;
@@ -285,57 +874,220 @@ public final class LuceneContentRetriever implements ContentRetriever {
             queryText = query.text();
         }
 
-        int docCount = 0;
-        int tokenCount = 0;
-        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        long startNanos = System.nanoTime();
+        IndexAlias.Lease lease = null;
+        IndexSearcherProvider provider = null;
+        IndexSearcher searcher = null;
+        try {
+            lease = acquireLease();
+            provider = searcherProvider(lease);
+            searcher = provider.acquire();
+            if (searcher == null) {
+                log.debug("No index found");
+                return Collections.emptyList();
+            }
+
+            final IndexState state = indexState(provider, searcher);
+            if (cache == null) {
+                return search(searcher, state, queryText);
+            }
+            final IndexSearcher acquiredSearcher = searcher;
+            return cache.get(
+                    searcher.getIndexReader(),
+                    queryText,
+                    maxResults,
+                    maxTokens,
+                    minScore,
+                    onlyMatches,
+                    filter,
+                    hybridMode,
+                    metadataFields,
+                    () -> search(acquiredSearcher, state, queryText));
+        } catch (Throwable e) {
+            // Catch Throwable, since Lucene can throw AssertionError
+            log.error(String.format("Could not query <%s>", query), e);
+            return Collections.emptyList();
+        } finally {
+            release(provider, searcher);
+            if (lease != null) {
+                lease.close();
+            }
+            metrics.recordTime(MetricsStage.RETRIEVE, System.nanoTime() - startNanos);
+        }
+    }
 
-            Embedding embedding = embedQuery(queryText);
-            Query luceneQuery = buildQuery(queryText, embedding);
+    /**
+     * Search the index, and choose hits within the limits on results and tokens using token counts
+     * from doc values. Content and metadata are loaded only for the chosen hits.
+     *
+     * @param searcher Acquired searcher
+     * @param state Index settings for the searcher
+     * @param queryText Query text
+     * @return Retrieved content
+     * @throws IOException On an exception searching the index
+     */
+    private List<Content> search(IndexSearcher searcher, IndexState state, String queryText) throws IOException {
+        IndexSearcher querySearcher = querySearcher(searcher);
+        boolean limitTokens = maxTokens < Integer.MAX_VALUE;
+        ScoreDoc[] scoreDocs =
+                topDocs(querySearcher, state, queryText, limitTokens ? tokenBudgetCandidates : maxResults);
 
-            IndexSearcher searcher = new IndexSearcher(reader);
-            TopFieldDocs topDocs = searcher.search(luceneQuery, maxResults, Sort.RELEVANCE, true);
-            List<Content> hits = new ArrayList<>();
-            StoredFields storedFields = reader.storedFields();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                if (scoreDoc.score < minScore) {
+        List<ScoreDoc> candidates = new ArrayList<>();
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            if (scoreDoc.score >= minScore) {
+                candidates.add(scoreDoc);
+            }
+        }
+        int candidateCount = candidates.size();
+        int[] docs = new int[candidateCount];
+        float[] scores = new float[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            docs[i] = candidates.get(i).doc;
+            scores[i] = candidates.get(i).score;
+        }
+
+        long loadStartNanos = System.nanoTime();
+        DocumentLoader documentLoader = new DocumentLoader(
+                querySearcher.getIndexReader(),
+                querySearcher.storedFields(),
+                state.schema(),
+                contentFieldName,
+                Collections.emptySet(),
+                metadataFields);
+        Document[] documents = new Document[candidateCount];
+        int[] tokenCounts = new int[candidateCount];
+        if (limitTokens) {
+            tokenCounts = documentLoader.intValues(docs, tokenCountFieldName, -1);
+            for (int i = 0; i < candidateCount; i++) {
+                if (tokenCounts[i] >= 0) {
                     continue;
                 }
-                // Retrieve document contents
-                Document document = storedFields.document(scoreDoc.doc);
-                String content = document.get(contentFieldName);
-                if (content == null || content.isBlank()) {
-                    continue;
+                // Documents indexed without token counts
+                if (tokenEstimator != null) {
+                    documents[i] = documentLoader.document(docs[i]);
+                    tokenCounts[i] = tokenEstimator.estimate(documents[i].get(contentFieldName));
+                } else {
+                    tokenCounts[i] = 0;
                 }
+            }
+        }
 
-                // Check if number of documents is exceeded
-                docCount = docCount + 1;
-                if (docCount > maxResults) {
-                    break;
+        // Documents without content, such as embeddings only, are found only when they are loaded, so
+        // choose again without them
+        boolean[] excluded = new boolean[candidateCount];
+        int[] chosen;
+        boolean complete;
+        do {
+            chosen = TokenBudget.choose(tokenBudgetStrategy, scores, tokenCounts, excluded, maxResults, maxTokens);
+            complete = true;
+            for (int i : chosen) {
+                if (documents[i] == null) {
+                    documents[i] = documentLoader.document(docs[i]);
                 }
-
-                // Check token count
-                IndexableField tokenCountField = document.getField(tokenCountFieldName);
-                if (tokenCountField != null) {
-                    int docTokens = tokenCountField.numericValue().intValue();
-                    if (tokenCount + docTokens > maxTokens) {
-                        continue;
-                        // There may be smaller documents to come after this that we can accommodate
-                    }
-                    tokenCount = tokenCount + docTokens;
+                String content = documents[i].get(contentFieldName);
+                if (content == null || content.isBlank()) {
+                    excluded[i] = true;
+                    complete = false;
                 }
+            }
+        } while (!complete);
+        metrics.recordTime(MetricsStage.LOAD_STORED_FIELDS, System.nanoTime() - loadStartNanos);
 
-                // Add all other document fields to metadata
-                Metadata metadata = createTextSegmentMetadata(document);
+        long convertStartNanos = System.nanoTime();
+        List<Content> hits = new ArrayList<>();
+        for (int i : chosen) {
+            String content = documents[i].get(contentFieldName);
+            Metadata metadata = documentLoader.metadata(docs[i], documents[i]);
+            TextSegment textSegment = TextSegment.from(content, metadata);
+            hits.add(Content.from(textSegment, withScore(candidates.get(i))));
+        }
+        metrics.recordTime(MetricsStage.CONVERT_METADATA, System.nanoTime() - convertStartNanos);
 
-                // Finally, add text segment to the list
-                TextSegment textSegment = TextSegment.from(content, metadata);
-                hits.add(Content.from(textSegment, withScore(scoreDoc)));
+        metrics.countHits(hits.size());
+        if (limitTokens) {
+            int available = 0;
+            for (boolean isExcluded : excluded) {
+                if (!isExcluded) {
+                    available = available + 1;
+                }
             }
-            return hits;
-        } catch (Throwable e) {
-            // Catch Throwable, since Lucene can throw AssertionError
-            log.error(String.format("Could not query <%s>", query), e);
+            metrics.countBudgetSkipped(Math.max(0, Math.min(available, maxResults) - hits.size()));
+        }
+        return hits;
+    }
+
+    /**
+     * Retrieve content after waiting for an index generation to become visible, so that the query
+     * reads content that was just indexed. Generations are returned by {@link
+     * LuceneEmbeddingStore#indexAll(List, List, List)}, and are tracked only if this content
+     * retriever was built on that embedding store, or on an index alias that refers to it.
+     *
+     * @param query Query
+     * @param generation Index generation returned when content was indexed
+     * @return Retrieved content
+     */
+    public List<Content> retrieve(dev.langchain4j.rag.query.Query query, long generation) {
+        try (IndexAlias.Lease lease = acquireLease()) {
+            if (!searcherProvider(lease).waitForGeneration(generation, IndexSearcherProvider.DEFAULT_GENERATION_WAIT)) {
+                log.warn(String.format("Index generation <%d> is not visible to query <%s>", generation, query));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return Collections.emptyList();
+        } catch (Exception e) {
+            log.error(String.format("Could not wait for index generation <%d>", generation), e);
+        }
+        return retrieve(query);
+    }
+
+    /**
+     * Run the warming queries, bypassing the cache of results, and then mark the content retriever
+     * as ready if latency became stable. Call this after the content retriever is built, and before
+     * it receives traffic. If latency did not become stable within the maximum number of warming
+     * rounds, the content retriever stays not ready, and a warning is logged, so that a readiness
+     * check does not route traffic to it yet. Call this again to run more warming rounds.
+     *
+     * @return Whether latency became stable within the maximum number of warming rounds
+     */
+    public boolean warmUp() {
+        boolean stable = true;
+        if (indexWarmer != null) {
+            stable =
+                    indexWarmer.warm(queryText -> retrieveUsing(dev.langchain4j.rag.query.Query.from(queryText), null));
+        }
+        if (stable) {
+            ready = true;
+        } else {
+            log.warn("Content retriever is not ready, since warm-up latency is not stable");
+        }
+        return stable;
+    }
+
+    /**
+     * Search the index for the top matching documents, either with a combined query, or with
+     * separate full-text and vector searches that are fused.
+     *
+     * @param querySearcher Searcher for the query
+     * @param state Index settings for the searcher
+     * @param queryText Query text
+     * @param numHits Number of top matching documents
+     * @return Top matching documents, in descending order of score
+     * @throws IOException On an exception searching the index
+     */
+    private ScoreDoc[] topDocs(IndexSearcher querySearcher, IndexState state, String queryText, int numHits)
+            throws IOException {
+        long embedStartNanos = System.nanoTime();
+        Embedding embedding = embedQuery(queryText);
+        long searchStartNanos = System.nanoTime();
+        metrics.recordTime(MetricsStage.EMBED_QUERY, searchStartNanos - embedStartNanos);
+        try {
+            if (hybridMode == HybridMode.COMBINED) {
+                Query luceneQuery = buildQuery(queryText, embedding, state.filterQuery(), numHits);
+                return querySearcher.search(luceneQuery, numHits, Sort.RELEVANCE, true).scoreDocs;
+            }
+            return searchAndFuse(querySearcher, queryText, embedding, state.filterQuery(), numHits);
+        } finally {
+            metrics.recordTime(MetricsStage.SEARCH, System.nanoTime() - searchStartNanos);
         }
     }
 
@@ -344,26 +1096,21 @@ public final class LuceneContentRetriever implements ContentRetriever {
      *
      * @param query User prompt
      * @param embedding User prompt embedding vector, or null if not available
+     * @param filterQuery Metadata filter query, or null if documents are not filtered
+     * @param numHits Number of nearest neighbors
      * @return Lucene query
-     * @throws ParseException When the query cannot be parsed into terms
      */
-    private Query buildQuery(String query, Embedding embedding) {
+    private Query buildQuery(String query, Embedding embedding, Query filterQuery, int numHits) {
         Builder builder = new BooleanQuery.Builder();
 
-        if (query != null && !query.isBlank()) {
-            try {
-                QueryParser parser = new QueryParser(contentFieldName, new StandardAnalyzer());
-                Query fullTextQuery = parser.parse(query);
-                builder.add(fullTextQuery, Occur.SHOULD);
-            } catch (ParseException e) {
-                log.warn(String.format("Could not create query <%s>", query), e);
-            }
-        } else {
-            log.debug("Query text not provided");
+        Query fullTextQuery = parseFullTextQuery(query);
+        if (fullTextQuery != null) {
+            builder.add(fullTextQuery, Occur.SHOULD);
         }
 
         if (embedding != null && embedding.vector().length > 0) {
-            final Query vectorQuery = new KnnFloatVectorQuery(embeddingFieldName, embedding.vector(), maxResults);
+            final Query vectorQuery =
+                    new KnnFloatVectorQuery(embeddingFieldName, embedding.vector(), numHits, filterQuery);
             builder.add(vectorQuery, Occur.SHOULD);
         } else {
             log.debug("Query embedding vector not provided", query);
@@ -374,52 +1121,156 @@ public final class LuceneContentRetriever implements ContentRetriever {
             log.debug("Returning all documents, not just matches", query);
         }
 
+        if (filterQuery != null) {
+            builder.add(filterQuery, Occur.FILTER);
+            // Otherwise, every document that matches the filter would match
+            builder.setMinimumNumberShouldMatch(1);
+        }
+
         BooleanQuery combinedQuery = builder.build();
         return combinedQuery;
     }
 
     /**
-     * Map Lucene document fields as metadata, preserving types as much as possible.
+     * Parse the user prompt into a Lucene full-text query.
      *
-     * @param document Lucene document
-     * @return Text segment metadata
+     * @param query User prompt
+     * @return Lucene query, or null if the prompt is blank or cannot be parsed
      */
-    private Metadata createTextSegmentMetadata(Document document) {
-        Metadata metadata = new Metadata();
-        for (IndexableField field : document) {
-            String fieldName = field.name();
-            if (contentFieldName.equals(fieldName)) {
-                continue;
-            }
-
-            StoredValue storedValue = field.storedValue();
-            Type type = storedValue.getType();
-            switch (type) {
-                case INTEGER:
-                    metadata.put(fieldName, storedValue.getIntValue());
-                    break;
-                case LONG:
-                    metadata.put(fieldName, storedValue.getLongValue());
-                    break;
-                case FLOAT:
-                    metadata.put(fieldName, storedValue.getFloatValue());
-                    break;
-                case DOUBLE:
-                    metadata.put(fieldName, storedValue.getDoubleValue());
-                    break;
-                case STRING:
-                    metadata.put(fieldName, storedValue.getStringValue());
-                    break;
-                default:
-                    // No-op
-            }
-        }
-        return metadata;
+    private Query parseFullTextQuery(String query) {
+        if (query == null || query.isBlank()) {
+            log.debug("Query text not provided");
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            QueryParser parser = new QueryParser(contentFieldName, new StandardAnalyzer());
+            return parser.parse(query);
+        } catch (ParseException e) {
+            log.warn(String.format("Could not create query <%s>", query), e);
+            return null;
+        } finally {
+            metrics.recordTime(MetricsStage.PARSE_QUERY, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Run full-text and embedding vector searches as independent top-k searches on the same
+     * searcher, and fuse the results. The vector search runs in the background while the full-text
+     * search runs on the calling thread.
+     *
+     * @param searcher Acquired searcher
+     * @param query User prompt
+     * @param embedding User prompt embedding vector, or null if not available
+     * @param filterQuery Metadata filter query, or null if documents are not filtered
+     * @param numHits Number of fused results
+     * @return Fused results
+     * @throws IOException On an exception searching the index
+     */
+    private ScoreDoc[] searchAndFuse(
+            IndexSearcher searcher, String query, Embedding embedding, Query filterQuery, int numHits)
+            throws IOException {
+        CompletableFuture<ScoreDoc[]> vectorSearch = null;
+        if (embedding != null && embedding.vector().length > 0) {
+            Query vectorQuery =
+                    new KnnFloatVectorQuery(embeddingFieldName, embedding.vector(), vectorMaxResults, filterQuery);
+            // Without a search executor, the vector search runs on the calling thread, before the
+            // full-text search, rather than on the common pool
+            if (searchExecutor == null) {
+                vectorSearch =
+                        CompletableFuture.completedFuture(searcher.search(vectorQuery, vectorMaxResults).scoreDocs);
+            } else {
+                vectorSearch = CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return searcher.search(vectorQuery, vectorMaxResults).scoreDocs;
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        },
+                        searchExecutor);
+            }
+        } else {
+            log.debug("Query embedding vector not provided", query);
+        }
+
+        Query fullTextQuery = parseFullTextQuery(query);
+        if (!onlyMatches) {
+            Builder builder = new BooleanQuery.Builder();
+            if (fullTextQuery != null) {
+                builder.add(fullTextQuery, Occur.SHOULD);
+            }
+            builder.add(new MatchAllDocsQuery(), Occur.SHOULD);
+            fullTextQuery = builder.build();
+        }
+        if (fullTextQuery != null && filterQuery != null) {
+            fullTextQuery = new BooleanQuery.Builder()
+                    .add(fullTextQuery, Occur.MUST)
+                    .add(filterQuery, Occur.FILTER)
+                    .build();
+        }
+        ScoreDoc[] fullTextScoreDocs = new ScoreDoc[0];
+        if (fullTextQuery != null) {
+            fullTextScoreDocs = searcher.search(fullTextQuery, fullTextMaxResults).scoreDocs;
+        }
+
+        ScoreDoc[] vectorScoreDocs = new ScoreDoc[0];
+        if (vectorSearch != null) {
+            try {
+                vectorScoreDocs = vectorSearch.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException uncheckedException) {
+                    throw uncheckedException.getCause();
+                }
+                throw e;
+            }
+        }
+
+        List<ScoreDoc[]> results = Arrays.asList(fullTextScoreDocs, vectorScoreDocs);
+        if (hybridMode == HybridMode.RECIPROCAL_RANK_FUSION) {
+            return ScoreFusion.reciprocalRank(results, weights, rankConstant, numHits);
+        } else {
+            return ScoreFusion.weightedScores(results, weights, numHits);
+        }
+    }
+
+    /**
+     * Index settings recorded in the commit data of an index reader, which are read only once for
+     * each reader. A warning is logged if the index records a different token estimator from the one
+     * configured, since token counts would not be consistent with the maximum number of tokens.
+     *
+     * @param provider Searcher provider that the searcher was acquired from
+     * @param searcher Acquired searcher
+     * @return Index settings
+     * @throws IOException On an exception reading the index commit
+     */
+    private IndexState indexState(IndexSearcherProvider provider, IndexSearcher searcher) throws IOException {
+        IndexReader reader = searcher.getIndexReader();
+        IndexState state = indexState;
+        if (state != null && state.reader() == reader) {
+            return state;
+        }
+
+        Map<String, String> commitData = provider.commitData(searcher);
+        String recordedName = commitData.get(IndexCommitData.TOKEN_ESTIMATOR);
+        if (tokenEstimator != null && recordedName != null && !recordedName.equals(tokenEstimator.name())) {
+            log.warn(String.format(
+                    "Index token counts were estimated with <%s>, but the content retriever expects <%s>",
+                    recordedName, tokenEstimator.name()));
+        }
+        MetadataSchema schema = MetadataSchema.read(commitData);
+        Query filterQuery = filter == null ? null : FilterQueryMapper.toQuery(filter, schema);
+
+        state = new IndexState(reader, schema, filterQuery);
+        indexState = state;
+        return state;
     }
 
     private Embedding embedQuery(String queryText) {
         Embedding embedding = null;
-        if (embeddingModel != null) {
+        if (embeddingModel != null && queryEmbeddingCache != null) {
+            embedding = queryEmbeddingCache.embed(queryText, embeddingModel);
+        } else if (embeddingModel != null) {
             Response<Embedding> embeddingResponse = embeddingModel.embed(queryText);
             if (embeddingResponse != null) {
                 embedding = embeddingResponse.content();
@@ -428,6 +1279,71 @@ public final class LuceneContentRetriever implements ContentRetriever {
         return embedding;
     }
 
+    /**
+     * Searcher for a single query, which searches segments concurrently if there is a search
+     * executor. The concurrent searcher shares the index reader of the acquired searcher, so only the
+     * acquired searcher needs to be released. It is reused by all queries on the same index reader,
+     * so that slices are computed once for each reader, and replaced when a query sees a new reader.
+     *
+     * @param searcher Acquired searcher
+     * @return Searcher for the query
+     */
+    private IndexSearcher querySearcher(IndexSearcher searcher) {
+        if (searchExecutor == null) {
+            return searcher;
+        }
+        SlicedIndexSearcher querySearcher = slicedSearcher;
+        if (querySearcher == null || querySearcher.getIndexReader() != searcher.getIndexReader()) {
+            querySearcher = new SlicedIndexSearcher(
+                    searcher.getIndexReader(), searchExecutor, maxDocsPerSlice, maxSegmentsPerSlice);
+            slicedSearcher = querySearcher;
+        }
+        return querySearcher;
+    }
+
+    /**
+     * Acquire the current embedding store of the index alias for a single query.
+     *
+     * @return Lease on the current embedding store, or null if there is no index alias
+     */
+    private IndexAlias.Lease acquireLease() {
+        if (indexAlias == null) {
+            return null;
+        }
+        return indexAlias.acquire();
+    }
+
+    /**
+     * Searcher provider for a single query, which is the one of the leased embedding store if there
+     * is an index alias.
+     *
+     * @param lease Lease on the current embedding store of the index alias, can be null
+     * @return Searcher provider
+     */
+    private IndexSearcherProvider searcherProvider(IndexAlias.Lease lease) {
+        if (lease == null) {
+            return searcherProvider;
+        }
+        return lease.embeddingStore().searcherProvider();
+    }
+
+    /**
+     * Release an acquired searcher, logging rather than throwing any exception.
+     *
+     * @param provider Searcher provider that the searcher was acquired from, can be null
+     * @param searcher Searcher to release, can be null
+     */
+    private void release(IndexSearcherProvider provider, IndexSearcher searcher) {
+        if (provider == null) {
+            return;
+        }
+        try {
+            provider.release(searcher);
+        } catch (IOException e) {
+            log.error("Could not release index searcher", e);
+        }
+    }
+
     /**
      * Create content metadata with hit score.
      *
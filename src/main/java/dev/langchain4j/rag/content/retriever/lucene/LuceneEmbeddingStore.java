@@ -2,54 +2,132 @@ package dev.langchain4j.rag.content.retriever.lucene;
 
 import static dev.langchain4j.internal.Utils.isNullOrEmpty;
 import static dev.langchain4j.internal.Utils.randomUUID;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 
-import com.knuddels.jtokkit.Encodings;
-import com.knuddels.jtokkit.api.Encoding;
-import com.knuddels.jtokkit.api.EncodingRegistry;
-import com.knuddels.jtokkit.api.EncodingType;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.rag.content.Content;
-import dev.langchain4j.rag.content.ContentMetadata;
-import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.KeywordField;
 import org.apache.lucene.document.KnnFloatVectorField;
 import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOConsumer;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Lucene indexer for LangChain4J content (in the form of `TextSegment`). */
-public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
+/**
+ * Lucene indexer for LangChain4J content (in the form of `TextSegment`). The indexer owns a single
+ * index writer for its lifetime, which is shared by concurrent callers, and so the indexer needs to
+ * be closed after use. <br>
+ * Visibility of new content to searches is independent of durability. By default, every write is
+ * committed to the directory and is immediately visible to searches. If a refresh interval is set,
+ * new content becomes visible to near-real-time searches within that interval, and if a commit
+ * interval is set, new content is committed within that interval.
+ */
+public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment>, Closeable {
 
     /** Builder for `LuceneEmbeddingStore`. */
     public static class LuceneEmbeddingStoreBuilder {
 
         private Directory directory;
+        private Duration refreshInterval;
+        private Duration commitInterval;
+        private int ingestionThreads;
+        private int ingestionQueueSize;
+        private TokenEstimator tokenEstimator;
+        private final Map<String, MetadataFieldType> metadataFields;
+        private VectorQuantization vectorQuantization;
+        private int hnswMaxConnections;
+        private int hnswBeamWidth;
+        private int mergeWorkers;
+        private ExecutorService mergeExecutor;
+        private double mergeSegmentsPerTier;
+        private double mergeMaxSegmentSizeMB;
+        private double mergeDeletesPercentAllowed;
+        private LuceneMetrics metrics;
+        private int rescoreOversample;
 
         private LuceneEmbeddingStoreBuilder() {
             // Set defaults
+            refreshInterval = Duration.ZERO;
+            commitInterval = Duration.ZERO;
+            ingestionThreads = Runtime.getRuntime().availableProcessors();
+            ingestionQueueSize = 10_000;
+            tokenEstimator = TokenEstimatorFactory.cl100k();
+            metadataFields = new LinkedHashMap<>();
+            hnswMaxConnections = Lucene99HnswVectorsFormat.DEFAULT_MAX_CONN;
+            hnswBeamWidth = Lucene99HnswVectorsFormat.DEFAULT_BEAM_WIDTH;
+            mergeWorkers = Lucene99HnswVectorsFormat.DEFAULT_NUM_MERGE_WORKER;
+            TieredMergePolicy defaultMergePolicy = new TieredMergePolicy();
+            mergeSegmentsPerTier = defaultMergePolicy.getSegmentsPerTier();
+            mergeMaxSegmentSizeMB = defaultMergePolicy.getMaxMergedSegmentMB();
+            mergeDeletesPercentAllowed = defaultMergePolicy.getDeletesPctAllowed();
+            metrics = LuceneMetrics.NOOP;
         }
 
         /**
@@ -61,7 +139,40 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
             if (directory == null) {
                 directory = DirectoryFactory.tempDirectory();
             }
-            return new LuceneEmbeddingStore(directory);
+            return new LuceneEmbeddingStore(
+                    directory,
+                    refreshInterval,
+                    commitInterval,
+                    ingestionThreads,
+                    ingestionQueueSize,
+                    tokenEstimator,
+                    metadataFields,
+                    vectorQuantization,
+                    hnswMaxConnections,
+                    hnswBeamWidth,
+                    mergeWorkers,
+                    mergeExecutor,
+                    mergeSegmentsPerTier,
+                    mergeMaxSegmentSizeMB,
+                    mergeDeletesPercentAllowed,
+                    metrics,
+                    rescoreOversample);
+        }
+
+        /**
+         * Sets the interval between commits to the directory, which make indexed content durable.
+         * If zero or null, every write is committed immediately, which is the default.
+         *
+         * @param commitInterval Commit interval
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder commitInterval(Duration commitInterval) {
+            if (commitInterval == null || commitInterval.isNegative()) {
+                this.commitInterval = Duration.ZERO;
+            } else {
+                this.commitInterval = commitInterval;
+            }
+            return this;
         }
 
         /**
@@ -75,6 +186,234 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
             this.directory = directory;
             return this;
         }
+
+        /**
+         * Sets the number of candidate neighbors tracked while inserting a vector into the HNSW
+         * graph. Larger values build a better graph, with higher recall, but indexing and merging are
+         * slower. Defaults to Lucene's default of 100.
+         *
+         * @param hnswBeamWidth HNSW beam width
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder hnswBeamWidth(int hnswBeamWidth) {
+            if (hnswBeamWidth > 0) {
+                this.hnswBeamWidth = hnswBeamWidth;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections of each vector in the HNSW graph. Larger values give
+         * higher recall, but take more memory and make indexing slower. Defaults to Lucene's default
+         * of 16.
+         *
+         * @param hnswMaxConnections Maximum number of HNSW connections
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder hnswMaxConnections(int hnswMaxConnections) {
+            if (hnswMaxConnections > 0) {
+                this.hnswMaxConnections = hnswMaxConnections;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of content items that may be queued or in progress for
+         * asynchronous indexing. Callers submitting more content are blocked until there is space.
+         *
+         * @param ingestionQueueSize Maximum number of queued content items
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder ingestionQueueSize(int ingestionQueueSize) {
+            if (ingestionQueueSize > 0) {
+                this.ingestionQueueSize = ingestionQueueSize;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that build Lucene documents in parallel for asynchronous
+         * indexing. Defaults to the number of available processors.
+         *
+         * @param ingestionThreads Number of ingestion threads
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder ingestionThreads(int ingestionThreads) {
+            if (ingestionThreads > 0) {
+                this.ingestionThreads = ingestionThreads;
+            }
+            return this;
+        }
+
+        /**
+         * Declares the type of a metadata field, so that values are indexed consistently, and are
+         * converted to the type if needed. Metadata fields that are not declared are typed from the
+         * first value that is indexed, and keep that type for the lifetime of the index.
+         *
+         * @param fieldName Metadata field name
+         * @param fieldType Metadata field type
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder metadataField(String fieldName, MetadataFieldType fieldType) {
+            ensureNotBlank(fieldName, "fieldName");
+            ensureNotNull(fieldType, "fieldType");
+            metadataFields.put(fieldName, fieldType);
+            return this;
+        }
+
+        /**
+         * Sets the maximum percentage of deleted documents in the index, beyond which segments with
+         * deletions are merged more eagerly. Lower values reclaim space sooner, at the cost of more
+         * merging. Defaults to Lucene's default of 20%, and must be between 5% and 50%.
+         *
+         * @param mergeDeletesPercentAllowed Maximum percentage of deleted documents
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder mergeDeletesPercentAllowed(double mergeDeletesPercentAllowed) {
+            this.mergeDeletesPercentAllowed = mergeDeletesPercentAllowed;
+            return this;
+        }
+
+        /**
+         * Sets the executor for threads that build HNSW graphs when segments are merged. If not set,
+         * and there is more than one merge worker, the embedding store creates its own thread pool,
+         * which is shut down when the store is closed. An executor that is provided is not shut down.
+         *
+         * @param mergeExecutor Merge executor
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder mergeExecutor(ExecutorService mergeExecutor) {
+            // Can be null
+            this.mergeExecutor = mergeExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a segment produced by normal merging. Larger segments mean fewer
+         * segments to search, but larger merges. Defaults to Lucene's default of 5 GB.
+         *
+         * @param mergeMaxSegmentSizeMB Maximum merged segment size in megabytes
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder mergeMaxSegmentSizeMB(double mergeMaxSegmentSizeMB) {
+            if (mergeMaxSegmentSizeMB > 0) {
+                this.mergeMaxSegmentSizeMB = mergeMaxSegmentSizeMB;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the number of segments of about the same size that are allowed before they are merged.
+         * Smaller values mean fewer segments to search, but more merging while indexing. Defaults to
+         * Lucene's default of 10, and must be at least 2.
+         *
+         * @param mergeSegmentsPerTier Number of segments per tier
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder mergeSegmentsPerTier(double mergeSegmentsPerTier) {
+            this.mergeSegmentsPerTier = mergeSegmentsPerTier;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that build the HNSW graph of each merged segment, which is
+         * usually the slowest part of a merge. Defaults to a single thread.
+         *
+         * @param mergeWorkers Number of merge threads
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder mergeWorkers(int mergeWorkers) {
+            if (mergeWorkers > 0) {
+                this.mergeWorkers = mergeWorkers;
+            }
+            return this;
+        }
+
+        /**
+         * Sets where metrics of indexing are recorded, such as latencies of each stage, and index
+         * size. By default, metrics are discarded.
+         *
+         * @param metrics Metrics
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder metrics(LuceneMetrics metrics) {
+            if (metrics == null) {
+                this.metrics = LuceneMetrics.NOOP;
+            } else {
+                this.metrics = metrics;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum time before indexed content becomes visible to near-real-time searches,
+         * whether or not it has been committed. If zero or null, every write is visible to searches
+         * immediately, which is the default.
+         *
+         * @param refreshInterval Near-real-time refresh interval
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder refreshInterval(Duration refreshInterval) {
+            if (refreshInterval == null || refreshInterval.isNegative()) {
+                this.refreshInterval = Duration.ZERO;
+            } else {
+                this.refreshInterval = refreshInterval;
+            }
+            return this;
+        }
+
+        /**
+         * Sets how many more nearest neighbors than requested are searched for in the HNSW graph,
+         * and then rescored with the full-precision vectors kept on disk, keeping the requested
+         * number of best matches. With quantized vectors, this gives exact scores, and recovers
+         * nearest neighbors that quantization ranks too low, at the cost of reading a full-precision
+         * vector for each candidate. If zero, which is the default, hits are not rescored. Applies to
+         * searches of this embedding store, and not to content retrievers, which search the index
+         * directly.
+         *
+         * @param rescoreOversample Multiple of the maximum number of results to rescore, or zero not
+         *     to rescore
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder rescoreOversample(int rescoreOversample) {
+            if (rescoreOversample >= 0) {
+                this.rescoreOversample = rescoreOversample;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the estimator for token counts of content. Defaults to an exact count using the CL100K
+         * encoding. Use the same estimator for the lifetime of an index, since token counts from
+         * different estimators are not comparable.
+         *
+         * @param tokenEstimator Token estimator
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder tokenEstimator(TokenEstimator tokenEstimator) {
+            if (tokenEstimator == null) {
+                this.tokenEstimator = TokenEstimatorFactory.cl100k();
+            } else {
+                this.tokenEstimator = tokenEstimator;
+            }
+            return this;
+        }
+
+        /**
+         * Sets how embedding vectors are quantized in the HNSW graph that is searched, to reduce the
+         * memory needed for vector search. Full-precision vectors are kept on disk in any case. If
+         * not set, an existing index keeps the quantization recorded when it was written, and a new
+         * index is not quantized. The quantization applies to segments written from now on, and older
+         * segments are converted when they are merged.
+         *
+         * @param vectorQuantization Vector quantization
+         * @return Builder
+         */
+        public LuceneEmbeddingStoreBuilder vectorQuantization(VectorQuantization vectorQuantization) {
+            // Can be null
+            this.vectorQuantization = vectorQuantization;
+            return this;
+        }
     }
 
     private static final String ID_FIELD_NAME = LuceneDocumentFields.ID_FIELD_NAME.fieldName();
@@ -82,6 +421,9 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
     private static final String TOKEN_COUNT_FIELD_NAME = LuceneDocumentFields.TOKEN_COUNT_FIELD_NAME.fieldName();
     private static final String EMBEDDING_FIELD_NAME = LuceneDocumentFields.EMBEDDING_FIELD_NAME.fieldName();
 
+    private static final int INGESTION_CHUNK_SIZE = 128;
+    private static final Duration MAINTENANCE_PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
     private static final Logger log = LoggerFactory.getLogger(LuceneEmbeddingStore.class);
 
     /**
@@ -94,17 +436,175 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
     }
 
     private final Directory directory;
-    private final Encoding encoding;
+    private final TokenEstimator tokenEstimator;
+    private final IndexWriter indexWriter;
+    private final IndexSearcherProvider searcherProvider;
+    private final ScheduledExecutorService commitScheduler;
+    private final BoundedExecutor ingestionExecutor;
+    private final ExecutorService ownedMergeExecutor;
+    private final ExecutorService maintenanceExecutor;
+    private final boolean refreshOnWrite;
+    private final MetadataSchema metadataSchema;
+    private final Set<String> fieldsWithoutDocValues;
+    private final LuceneMetrics metrics;
+    private final Closeable metricsBinding;
+    private final int rescoreOversample;
+    private boolean closed;
 
     /**
      * Instantiate a new indexer to add content to an index based on a Lucene directory.
      *
      * @param directory Lucene directory
+     * @param refreshInterval Maximum time before indexed content is visible to searches, or zero to
+     *     refresh searches after every write
+     * @param commitInterval Interval between commits, or zero to commit every write
+     * @param ingestionThreads Number of threads for asynchronous indexing
+     * @param ingestionQueueSize Maximum number of content items queued for asynchronous indexing
+     * @param tokenEstimator Estimator for token counts of content
+     * @param metadataFields Declared types of metadata fields
+     * @param vectorQuantization Quantization of embedding vectors, or null to keep the recorded
+     *     quantization
+     * @param hnswMaxConnections Maximum number of connections of each vector in the HNSW graph
+     * @param hnswBeamWidth Number of candidates tracked while building the HNSW graph
+     * @param mergeWorkers Number of threads that build HNSW graphs of merged segments
+     * @param mergeExecutor Executor for merge threads - can be null
+     * @param mergeSegmentsPerTier Number of segments of about the same size allowed before merging
+     * @param mergeMaxSegmentSizeMB Maximum size of a merged segment in megabytes
+     * @param mergeDeletesPercentAllowed Maximum percentage of deleted documents before eager merging
+     * @param metrics Metrics of indexing
+     * @param rescoreOversample Multiple of the maximum number of results that are rescored with
+     *     full-precision vectors, or zero not to rescore
      */
-    private LuceneEmbeddingStore(Directory directory) {
+    private LuceneEmbeddingStore(
+            Directory directory,
+            Duration refreshInterval,
+            Duration commitInterval,
+            int ingestionThreads,
+            int ingestionQueueSize,
+            TokenEstimator tokenEstimator,
+            Map<String, MetadataFieldType> metadataFields,
+            VectorQuantization vectorQuantization,
+            int hnswMaxConnections,
+            int hnswBeamWidth,
+            int mergeWorkers,
+            ExecutorService mergeExecutor,
+            double mergeSegmentsPerTier,
+            double mergeMaxSegmentSizeMB,
+            double mergeDeletesPercentAllowed,
+            LuceneMetrics metrics,
+            int rescoreOversample) {
         this.directory = ensureNotNull(directory, "directory");
-        EncodingRegistry registry = Encodings.newDefaultEncodingRegistry();
-        encoding = registry.getEncoding(EncodingType.CL100K_BASE);
+        this.rescoreOversample = rescoreOversample;
+        this.metrics = ensureNotNull(metrics, "metrics");
+        ensureNotNull(refreshInterval, "refreshInterval");
+        ensureNotNull(commitInterval, "commitInterval");
+        refreshOnWrite = refreshInterval.isZero();
+        ingestionExecutor = new BoundedExecutor("lucene-ingestion", ingestionThreads, ingestionQueueSize);
+        ensureGreaterThanZero(mergeWorkers, "mergeWorkers");
+        if (mergeWorkers == 1) {
+            // Lucene does not allow an executor for a single merge worker
+            mergeExecutor = null;
+            ownedMergeExecutor = null;
+        } else if (mergeExecutor == null) {
+            mergeExecutor = Executors.newFixedThreadPool(mergeWorkers, new DaemonThreadFactory("lucene-merge"));
+            ownedMergeExecutor = mergeExecutor;
+        } else {
+            ownedMergeExecutor = null;
+        }
+        this.tokenEstimator = ensureNotNull(tokenEstimator, "tokenEstimator");
+
+        IndexWriter writer = null;
+        try {
+            if (vectorQuantization == null) {
+                vectorQuantization = recordedVectorQuantization(directory);
+            }
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+            config.setCodec(new EmbeddingCodec(
+                    EMBEDDING_FIELD_NAME,
+                    vectorQuantization.knnVectorsFormat(
+                            hnswMaxConnections, hnswBeamWidth, mergeWorkers, mergeExecutor)));
+            config.setMergePolicy(new TieredMergePolicy()
+                    .setSegmentsPerTier(mergeSegmentsPerTier)
+                    .setMaxMergedSegmentMB(mergeMaxSegmentSizeMB)
+                    .setDeletesPctAllowed(mergeDeletesPercentAllowed));
+            writer = new IndexWriter(directory, config);
+            searcherProvider = new IndexSearcherProvider(writer, refreshInterval, new SearcherFactory());
+        } catch (IOException | RuntimeException e) {
+            // Release the write lock if the index was opened
+            IOUtils.closeWhileHandlingException(writer);
+            ingestionExecutor.close();
+            if (ownedMergeExecutor != null) {
+                ownedMergeExecutor.shutdownNow();
+            }
+            if (e instanceof RuntimeException runtimeException) {
+                // Such as invalid HNSW parameters
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        indexWriter = writer;
+        maintenanceExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("lucene-maintenance"));
+        recordTokenEstimator();
+        recordVectorQuantization(vectorQuantization);
+        metadataSchema = recordMetadataSchema(ensureNotNull(metadataFields, "metadataFields"));
+        fieldsWithoutDocValues = fieldsWithoutDocValues();
+
+        if (commitInterval.isZero()) {
+            commitScheduler = null;
+        } else {
+            long intervalMillis = Math.max(1, commitInterval.toMillis());
+            commitScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("lucene-commit"));
+            commitScheduler.scheduleWithFixedDelay(
+                    this::commitQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        metricsBinding = metrics.bindIndex(this::indexStatistics);
+    }
+
+    /**
+     * Commit pending changes and close the index writer. The Lucene directory is not closed, since
+     * it was provided by calling code.
+     *
+     * @throws IOException On an exception committing or closing the index writer
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOUtils.closeWhileHandlingException(metricsBinding);
+        // Finish indexing content that was already submitted
+        ingestionExecutor.close();
+        if (commitScheduler != null) {
+            commitScheduler.shutdownNow();
+        }
+        // Maintenance in progress stops when the index writer is closed, which waits for running merges
+        maintenanceExecutor.shutdown();
+        try {
+            searcherProvider.close();
+        } finally {
+            try {
+                // The index writer commits when it is closed
+                writeMetadataSchema();
+                indexWriter.close();
+            } finally {
+                if (ownedMergeExecutor != null) {
+                    ownedMergeExecutor.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Commit all indexed content to the directory, so that it is durable, without waiting for the
+     * commit interval.
+     */
+    public void commit() {
+        try {
+            timedCommit();
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not commit index", e);
+        }
     }
 
     /** {@inheritDoc} */
@@ -174,9 +674,46 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
         return ids;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * Add content to the index, replacing content with the same ids. Each item is added or replaced
+     * on its own, so an item that cannot be indexed, such as an embedding with a different dimension
+     * from the index, is logged, and does not prevent other items from being indexed.
+     *
+     * @param ids Content ids, can be null
+     * @param embeddings Content embeddings, can be null
+     * @param embedded Content, can be null
+     */
     @Override
-    public void addAll(List<String> idsArg, List<Embedding> embeddingsArg, List<TextSegment> embeddedArg) {
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        indexAll(ids, embeddings, embedded);
+    }
+
+    /**
+     * Index content in the same way as {@link #addAll(List, List, List)}, and return the index
+     * generation that includes it. Searches can wait for the generation to become visible, to read
+     * their own writes.
+     *
+     * @param idsArg Content ids, can be null
+     * @param embeddingsArg Content embeddings, can be null
+     * @param embeddedArg Content, can be null
+     * @return Index generation, or -1 if the content could not be indexed
+     */
+    public long indexAll(List<String> idsArg, List<Embedding> embeddingsArg, List<TextSegment> embeddedArg) {
+        return indexAll(idsArg, embeddingsArg, embeddedArg, null);
+    }
+
+    /**
+     * Index content, replacing only content with the same ids that matches a filter, so that
+     * partitions of a shared index can use the same ids without replacing each other's content.
+     *
+     * @param idsArg Content ids, can be null
+     * @param embeddingsArg Content embeddings, can be null
+     * @param embeddedArg Content, can be null
+     * @param scope Filter for content that can be replaced, or null to replace any content with the
+     *     same ids
+     * @return Index generation, or -1 if the content could not be indexed
+     */
+    long indexAll(List<String> idsArg, List<Embedding> embeddingsArg, List<TextSegment> embeddedArg, Filter scope) {
 
         int maxSize = maxSize(idsArg, embeddingsArg, embeddedArg);
 
@@ -184,69 +721,752 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
         List<Embedding> embeddings = ensureSize(embeddingsArg, maxSize);
         List<TextSegment> embedded = ensureSize(embeddedArg, maxSize);
 
-        List<Document> documents = new ArrayList<>();
-        for (int i = 0; i < maxSize; i++) {
-            // Create Lucene documents list allowing other documents to be created even if any fail
-            try {
-                documents.add(toDocument(ids.get(i), embeddings.get(i), embedded.get(i)));
-            } catch (Exception e) {
-                log.error("Could not create Lucene document", e);
+        Query scopeQuery = scope == null ? null : FilterQueryMapper.toQuery(scope, metadataSchema);
+        long startNanos = System.nanoTime();
+        Map<Integer, Exception> failures = new ConcurrentHashMap<>();
+        try {
+            long generation = writeDocuments(ids, embeddings, embedded, 0, maxSize, scopeQuery, failures);
+            afterWrite();
+            return generation;
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not index documents", e);
+            return -1;
+        } finally {
+            metrics.recordTime(MetricsStage.INDEX, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Index content asynchronously. Lucene documents are built in parallel by ingestion threads,
+     * and written using the shared index writer. If the ingestion queue is full, the caller is
+     * blocked until there is space. Items that cannot be indexed are reported in the result, and do
+     * not prevent other items from being indexed.
+     *
+     * @param idsArg Content ids, can be null
+     * @param embeddingsArg Content embeddings, can be null
+     * @param embeddedArg Content, can be null
+     * @return Future that completes when all items have been indexed or have failed
+     * @throws InterruptedException If interrupted while waiting for space in the ingestion queue
+     */
+    public CompletableFuture<IngestionResult> addAllAsync(
+            List<String> idsArg, List<Embedding> embeddingsArg, List<TextSegment> embeddedArg)
+            throws InterruptedException {
+
+        int maxSize = maxSize(idsArg, embeddingsArg, embeddedArg);
+
+        List<String> ids = ensureIds(ensureSize(idsArg, maxSize));
+        List<Embedding> embeddings = ensureSize(embeddingsArg, maxSize);
+        List<TextSegment> embedded = ensureSize(embeddedArg, maxSize);
+
+        Map<Integer, Exception> failures = new ConcurrentHashMap<>();
+        int chunkSize = Math.min(INGESTION_CHUNK_SIZE, ingestionExecutor.maxCapacity());
+        List<CompletableFuture<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < maxSize; start = start + chunkSize) {
+            int from = start;
+            int to = Math.min(maxSize, start + chunkSize);
+            chunks.add(ingestionExecutor.submit(to - from, () -> {
+                try {
+                    return writeDocuments(ids, embeddings, embedded, from, to, null, failures);
+                } catch (RuntimeException e) {
+                    log.error("Could not index documents", e);
+                    for (int i = from; i < to; i++) {
+                        failures.putIfAbsent(i, e);
+                    }
+                    return -1L;
+                }
+            }));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    long generation = -1;
+                    for (CompletableFuture<Long> chunk : chunks) {
+                        generation = Math.max(generation, chunk.join());
+                    }
+                    try {
+                        afterWrite();
+                    } catch (IOException | AlreadyClosedException e) {
+                        log.error("Could not commit or refresh index", e);
+                    }
+                    return new IngestionResult(generation, ids, failures);
+                });
+    }
+
+    /**
+     * Merge the index down to at most a number of segments, in the background. Searches are not
+     * blocked, and see merged segments as they become available. Force-merging to a single segment
+     * gives the fastest searches on an index that no longer changes, but is expensive, and is best
+     * run off-peak. Only one maintenance operation runs at a time, and others wait for it.
+     *
+     * @param maxSegments Maximum number of segments
+     * @param progressListener Listener for progress, which is called periodically while merging and
+     *     once when done - can be null
+     * @return Future that completes with the final progress when merging is done
+     */
+    public CompletableFuture<MaintenanceProgress> forceMerge(
+            int maxSegments, Consumer<MaintenanceProgress> progressListener) {
+        ensureGreaterThanZero(maxSegments, "maxSegments");
+        return maintain(doWait -> indexWriter.forceMerge(maxSegments, doWait), progressListener);
+    }
+
+    /**
+     * Merge segments with deleted documents, in the background, so that the space taken by deleted
+     * documents is reclaimed. Searches are not blocked. Only one maintenance operation runs at a
+     * time, and others wait for it.
+     *
+     * @param progressListener Listener for progress, which is called periodically while merging and
+     *     once when done - can be null
+     * @return Future that completes with the final progress when merging is done
+     */
+    public CompletableFuture<MaintenanceProgress> expungeDeletes(Consumer<MaintenanceProgress> progressListener) {
+        return maintain(indexWriter::forceMergeDeletes, progressListener);
+    }
+
+    /**
+     * Remove content by id. Removal is visible to searches and durable in the same way as indexed
+     * content. An exception writing to the index is logged, and not thrown, as for {@link
+     * #removeAll(Collection)}.
+     *
+     * @param id Content id
+     */
+    @Override
+    public void remove(String id) {
+        ensureNotBlank(id, "id");
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Remove content by ids. An exception writing to the index, such as a failure of the directory,
+     * is logged, and not thrown, in the same way as for indexing, so callers that need to know that
+     * content was removed should check with a search. Exceptions for invalid arguments are thrown.
+     *
+     * @param ids Content ids
+     */
+    @Override
+    public void removeAll(Collection<String> ids) {
+        ensureNotEmpty(ids, "ids");
+        List<Term> terms = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (!isBlank(id)) {
+                terms.add(new Term(ID_FIELD_NAME, id));
             }
         }
+        try {
+            indexWriter.deleteDocuments(terms.toArray(new Term[0]));
+            afterWrite();
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not remove documents", e);
+        }
+    }
 
-        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-        try (IndexWriter writer = new IndexWriter(directory, config); ) {
-            writer.addDocuments(documents);
-        } catch (IOException e) {
-            log.error("Could not index documents", e);
+    /**
+     * Remove content by ids, only where it matches a filter, so that a partition of a shared index
+     * cannot remove content of other partitions with the same ids.
+     *
+     * @param ids Content ids
+     * @param scope Filter for content that can be removed, or null to remove any content with the ids
+     */
+    void removeAll(Collection<String> ids, Filter scope) {
+        if (scope == null) {
+            removeAll(ids);
+            return;
+        }
+        ensureNotEmpty(ids, "ids");
+        List<BytesRef> terms = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (!isBlank(id)) {
+                terms.add(new BytesRef(id));
+            }
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(new TermInSetQuery(ID_FIELD_NAME, terms), Occur.FILTER)
+                .add(FilterQueryMapper.toQuery(scope, metadataSchema), Occur.FILTER)
+                .build();
+        try {
+            indexWriter.deleteDocuments(query);
+            afterWrite();
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not remove documents", e);
         }
     }
 
-    /** {@inheritDoc} */
+    /**
+     * Remove content with metadata that matches a filter. An exception writing to the index is
+     * logged, and not thrown, as for {@link #removeAll(Collection)}.
+     *
+     * @param filter Metadata filter
+     */
+    @Override
+    public void removeAll(Filter filter) {
+        ensureNotNull(filter, "filter");
+        Query query = FilterQueryMapper.toQuery(filter, metadataSchema);
+        try {
+            indexWriter.deleteDocuments(query);
+            afterWrite();
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not remove documents", e);
+        }
+    }
+
+    /**
+     * Remove all content. Settings recorded in the index, such as metadata field types, are kept. An
+     * exception writing to the index is logged, and not thrown, as for {@link
+     * #removeAll(Collection)}.
+     */
+    @Override
+    public void removeAll() {
+        try {
+            indexWriter.deleteAll();
+            // Lucene forgets the fields of an empty index, so new values can have doc values
+            fieldsWithoutDocValues.clear();
+            afterWrite();
+        } catch (IOException | AlreadyClosedException e) {
+            log.error("Could not remove documents", e);
+        }
+    }
+
+    /**
+     * Search for content nearest to the query embedding. Matches include the stored embeddings, so
+     * that they can be compared without embedding the text again.
+     *
+     * @param request Search request
+     * @return Search result
+     */
     @Override
     public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
-        if (request == null) {
-            return new EmbeddingSearchResult<>(Collections.emptyList());
+        return new EmbeddingSearchResult<>(search(request, true));
+    }
+
+    /**
+     * Search for the ids and scores of matching content, without loading the content, its metadata
+     * or its embedding. This is faster than a full search when only ids are needed, for example to
+     * look up content elsewhere.
+     *
+     * @param request Search request
+     * @return Search result, where matches have no embeddings or text segments
+     */
+    public EmbeddingSearchResult<TextSegment> searchIds(EmbeddingSearchRequest request) {
+        return new EmbeddingSearchResult<>(search(request, false));
+    }
+
+    /**
+     * Search after waiting for an index generation to become visible, so that the search reads
+     * content indexed by this indexer.
+     *
+     * @param request Search request
+     * @param generation Index generation returned when content was indexed
+     * @return Search result
+     */
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request, long generation) {
+        waitForGeneration(generation, IndexSearcherProvider.DEFAULT_GENERATION_WAIT);
+        return search(request);
+    }
+
+    /**
+     * Wait until an index generation is visible to near-real-time searches.
+     *
+     * @param generation Index generation returned when content was indexed
+     * @param timeout Maximum time to wait
+     * @return True if the generation is visible, false if the wait timed out or failed
+     */
+    public boolean waitForGeneration(long generation, Duration timeout) {
+        try {
+            boolean visible = searcherProvider.waitForGeneration(generation, timeout);
+            if (!visible) {
+                log.warn(String.format("Index generation <%d> not visible after <%s>", generation, timeout));
+            }
+            return visible;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException | AlreadyClosedException e) {
+            log.error(String.format("Could not wait for index generation <%d>", generation), e);
+            return false;
         }
+    }
 
-        ContentRetriever contentRetriever = LuceneContentRetriever.builder()
-                .directory(directory)
-                .embeddingModel(new KnownQueryEmbeddingModel(request.queryEmbedding()))
-                .maxResults(request.maxResults())
-                .minScore(request.minScore())
-                .directory(directory)
-                .build();
-        log.debug("Ignoring request filter", request.filter());
+    /**
+     * Search for the nearest neighbors of the query embedding, and map hits directly to matches.
+     * Embeddings are read back from the vector values of the index. Content without text, such as an
+     * embedding that was added on its own, is returned without a text segment. If rescoring is set,
+     * more hits are searched for, and rescored with full-precision vectors before the minimum score
+     * and maximum number of results are applied.
+     *
+     * @param request Search request
+     * @param loadContent Whether to load text segments and embeddings, or only ids
+     * @return Matches, in descending order of score
+     */
+    private List<EmbeddingMatch<TextSegment>> search(EmbeddingSearchRequest request, boolean loadContent) {
+        if (request == null || request.queryEmbedding() == null) {
+            return Collections.emptyList();
+        }
+        float[] queryVector = request.queryEmbedding().vector();
+        if (queryVector == null || queryVector.length == 0 || request.maxResults() <= 0) {
+            return Collections.emptyList();
+        }
 
-        List<EmbeddingMatch<TextSegment>> results = new ArrayList<>();
-        List<Content> contents = contentRetriever.retrieve(null);
-        for (Content content : contents) {
-            try {
-                Map<ContentMetadata, Object> metadata = content.metadata();
-                Double score;
-                if (metadata != null && metadata.containsKey(ContentMetadata.SCORE)) {
-                    score = (Double) metadata.get(ContentMetadata.SCORE);
-                } else {
-                    score = Double.NaN;
-                }
-                // Note: Lucene does not store embeddings (KnnFloatVectorField)
-                Embedding embedding = null;
-                TextSegment textSegment = content.textSegment();
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherProvider.acquire();
+            if (searcher == null) {
+                log.debug("No index found");
+                return Collections.emptyList();
+            }
+
+            Query filterQuery = null;
+            if (request.filter() != null) {
+                filterQuery = FilterQueryMapper.toQuery(request.filter(), metadataSchema);
+            }
+            int numHits = request.maxResults();
+            if (rescoreOversample > 0) {
+                numHits = (int) Math.min((long) numHits * rescoreOversample, Integer.MAX_VALUE);
+            }
+            Query query = new KnnFloatVectorQuery(EMBEDDING_FIELD_NAME, queryVector, numHits, filterQuery);
+            ScoreDoc[] scoreDocs = searcher.search(query, numHits).scoreDocs;
+
+            DocumentLoader documentLoader = new DocumentLoader(
+                    searcher.getIndexReader(),
+                    searcher.storedFields(),
+                    metadataSchema,
+                    CONTENT_FIELD_NAME,
+                    Set.of(ID_FIELD_NAME),
+                    loadContent ? null : Collections.emptySet());
+            if (rescoreOversample > 0) {
+                scoreDocs = rescore(searcher.getIndexReader(), documentLoader, queryVector, scoreDocs);
+            }
+            int hitCount = 0;
+            while (hitCount < scoreDocs.length
+                    && hitCount < request.maxResults()
+                    && scoreDocs[hitCount].score >= request.minScore()) {
+                hitCount = hitCount + 1;
+            }
+            int[] docs = new int[hitCount];
+            for (int i = 0; i < hitCount; i++) {
+                docs[i] = scoreDocs[i].doc;
+            }
+            float[][] vectors =
+                    loadContent ? documentLoader.vectors(docs, EMBEDDING_FIELD_NAME) : new float[hitCount][];
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(hitCount);
+            for (int i = 0; i < hitCount; i++) {
                 String id;
-                if (textSegment != null && textSegment.metadata() != null) {
-                    id = textSegment.metadata().getString(LuceneDocumentFields.ID_FIELD_NAME.fieldName());
+                TextSegment textSegment = null;
+                if (loadContent) {
+                    Document document = documentLoader.document(docs[i]);
+                    id = document.get(ID_FIELD_NAME);
+                    String text = document.get(CONTENT_FIELD_NAME);
+                    if (!isBlank(text)) {
+                        textSegment = TextSegment.from(text, documentLoader.metadata(docs[i], document));
+                    }
                 } else {
-                    log.debug("Generating new random id");
-                    id = randomUUID();
+                    id = documentLoader.stringValue(docs[i], ID_FIELD_NAME);
                 }
-                EmbeddingMatch<TextSegment> result = new EmbeddingMatch<>(score, id, embedding, textSegment);
-                results.add(result);
-            } catch (Exception e) {
-                log.error("Could not convert content to results", e);
+                Embedding embedding = vectors[i] == null ? null : Embedding.from(vectors[i]);
+                matches.add(new EmbeddingMatch<>((double) scoreDocs[i].score, id, embedding, textSegment));
+            }
+            return matches;
+        } catch (Throwable e) {
+            // Catch Throwable, since Lucene can throw AssertionError
+            log.error("Could not search embeddings", e);
+            return Collections.emptyList();
+        } finally {
+            try {
+                searcherProvider.release(searcher);
+            } catch (IOException e) {
+                log.error("Could not release index searcher", e);
+            }
+        }
+    }
+
+    /**
+     * Rescore hits of a vector search with the full-precision vectors of the documents, using the
+     * similarity function of the embedding field, so that scores are the same as those of a search
+     * of vectors that are not quantized.
+     *
+     * @param reader Index reader that was searched
+     * @param documentLoader Loader for documents of the reader
+     * @param queryVector Query vector
+     * @param scoreDocs Hits of the vector search
+     * @return Rescored hits, in descending order of score
+     * @throws IOException On an exception reading vectors
+     */
+    private static ScoreDoc[] rescore(
+            IndexReader reader, DocumentLoader documentLoader, float[] queryVector, ScoreDoc[] scoreDocs)
+            throws IOException {
+        VectorSimilarityFunction similarity = null;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(EMBEDDING_FIELD_NAME);
+            if (fieldInfo != null) {
+                similarity = fieldInfo.getVectorSimilarityFunction();
+                break;
+            }
+        }
+        if (similarity == null) {
+            return scoreDocs;
+        }
+
+        int[] docs = new int[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docs[i] = scoreDocs[i].doc;
+        }
+        float[][] vectors = documentLoader.vectors(docs, EMBEDDING_FIELD_NAME);
+        ScoreDoc[] rescored = new ScoreDoc[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            float score = vectors[i] == null ? scoreDocs[i].score : similarity.compare(queryVector, vectors[i]);
+            rescored[i] = new ScoreDoc(scoreDocs[i].doc, score);
+        }
+        Arrays.sort(
+                rescored,
+                Comparator.comparingDouble((ScoreDoc scoreDoc) -> scoreDoc.score)
+                        .reversed()
+                        .thenComparingInt(scoreDoc -> scoreDoc.doc));
+        return rescored;
+    }
+
+    /**
+     * Run a merge operation on the maintenance thread. Merges are started without waiting, and run
+     * on Lucene merge threads, while progress is polled. Finally the operation is run again, waiting
+     * for any merges that are left, and the result is committed and made visible to searches.
+     *
+     * @param merge Merge operation, which takes whether to wait for merges to complete
+     * @param progressListener Listener for progress - can be null
+     * @return Future that completes with the final progress
+     */
+    private CompletableFuture<MaintenanceProgress> maintain(
+            IOConsumer<Boolean> merge, Consumer<MaintenanceProgress> progressListener) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    long startNanos = System.nanoTime();
+                    try {
+                        merge.accept(false);
+                        while (indexWriter.isOpen()
+                                && !indexWriter.getMergingSegments().isEmpty()) {
+                            report(progressListener, progress(startNanos, false));
+                            Thread.sleep(MAINTENANCE_PROGRESS_INTERVAL.toMillis());
+                        }
+                        merge.accept(true);
+                        commitIndex();
+                        MaintenanceProgress progress = progress(startNanos, true);
+                        report(progressListener, progress);
+                        return progress;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                    } catch (IOException e) {
+                        log.error("Could not merge index", e);
+                        throw new CompletionException(e);
+                    }
+                },
+                maintenanceExecutor);
+    }
+
+    /**
+     * Current progress of a maintenance operation. Merging segments and document counts are read from
+     * the index writer, so polling does not reopen the near-real-time reader. The index writer does
+     * not expose its segment count, so that is read from the current searcher, which is refreshed
+     * only when the operation is done.
+     *
+     * @param startNanos Start time of the operation
+     * @param done Whether the operation is complete
+     * @return Progress
+     * @throws IOException On an exception refreshing the searcher
+     */
+    private MaintenanceProgress progress(long startNanos, boolean done) throws IOException {
+        int mergingSegmentCount = indexWriter.getMergingSegments().size();
+        IndexWriter.DocStats docStats = indexWriter.getDocStats();
+        if (done) {
+            searcherProvider.refresh();
+        }
+        int segmentCount = 0;
+        IndexSearcher searcher = searcherProvider.acquire();
+        if (searcher != null) {
+            try {
+                segmentCount = searcher.getIndexReader().leaves().size();
+            } finally {
+                searcherProvider.release(searcher);
+            }
+        }
+        return new MaintenanceProgress(
+                segmentCount,
+                mergingSegmentCount,
+                docStats.numDocs,
+                docStats.maxDoc - docStats.numDocs,
+                Duration.ofNanos(System.nanoTime() - startNanos),
+                done);
+    }
+
+    /**
+     * Current size of the index, for monitoring. Statistics of a closed index are all zero.
+     *
+     * @return Index statistics
+     */
+    public IndexStatistics indexStatistics() {
+        IndexSearcher searcher = null;
+        try {
+            long ramBytes = indexWriter.ramBytesUsed();
+            long diskBytes = 0;
+            for (String fileName : directory.listAll()) {
+                try {
+                    diskBytes = diskBytes + directory.fileLength(fileName);
+                } catch (NoSuchFileException | FileNotFoundException e) {
+                    // Deleted after it was listed, such as by a merge
+                }
+            }
+            searcher = searcherProvider.acquire();
+            if (searcher == null) {
+                return new IndexStatistics(0, 0, 0, ramBytes, diskBytes);
+            }
+            IndexReader reader = searcher.getIndexReader();
+            return new IndexStatistics(
+                    reader.numDocs(), reader.numDeletedDocs(), reader.leaves().size(), ramBytes, diskBytes);
+        } catch (IOException | AlreadyClosedException e) {
+            log.debug("Could not read index statistics", e);
+            return IndexStatistics.EMPTY;
+        } finally {
+            try {
+                searcherProvider.release(searcher);
+            } catch (IOException | AlreadyClosedException e) {
+                log.debug("Could not release index searcher", e);
+            }
+        }
+    }
+
+    /**
+     * Report progress to a listener, logging rather than throwing any exception.
+     *
+     * @param progressListener Listener for progress - can be null
+     * @param progress Progress
+     */
+    private static void report(Consumer<MaintenanceProgress> progressListener, MaintenanceProgress progress) {
+        log.debug(progress.toString());
+        if (progressListener == null) {
+            return;
+        }
+        try {
+            progressListener.accept(progress);
+        } catch (RuntimeException e) {
+            log.error("Could not report maintenance progress", e);
+        }
+    }
+
+    /**
+     * Near-real-time searcher shared with content retrievers built on this indexer.
+     *
+     * @return Searcher provider
+     */
+    IndexSearcherProvider searcherProvider() {
+        return searcherProvider;
+    }
+
+    /**
+     * Index-wide settings in the live commit user data, including values that have not been
+     * committed yet.
+     *
+     * @return Commit user data
+     */
+    Map<String, String> commitData() {
+        return IndexCommitData.read(indexWriter);
+    }
+
+    /**
+     * Number of documents in the index, not counting deleted documents, including documents that
+     * have not been committed yet.
+     *
+     * @return Document count
+     */
+    int documentCount() {
+        return indexWriter.getDocStats().numDocs;
+    }
+
+    /**
+     * Record an index-wide setting in the commit user data, and commit it.
+     *
+     * @param key Key
+     * @param value Value
+     * @throws IOException On an exception committing the index
+     */
+    void recordCommitData(String key, String value) throws IOException {
+        IndexCommitData.write(indexWriter, key, value);
+        commitIndex();
+    }
+
+    /**
+     * Commit the index, together with the metadata schema. Fields are added to the schema during
+     * indexing, and the schema is recorded here, so that it is written once for each commit.
+     *
+     * @throws IOException On an exception committing the index
+     */
+    private void commitIndex() throws IOException {
+        writeMetadataSchema();
+        indexWriter.commit();
+    }
+
+    /** Record the current metadata schema in the commit user data, to be written with the next commit. */
+    private void writeMetadataSchema() {
+        IndexCommitData.write(indexWriter, IndexCommitData.METADATA_SCHEMA, metadataSchema.format());
+    }
+
+    /**
+     * Commit and refresh after a write, unless commits and refreshes are done in the background.
+     *
+     * @throws IOException On an exception committing or refreshing the index
+     */
+    private void afterWrite() throws IOException {
+        if (commitScheduler == null) {
+            timedCommit();
+        }
+        if (refreshOnWrite) {
+            long startNanos = System.nanoTime();
+            searcherProvider.refresh();
+            metrics.recordTime(MetricsStage.REFRESH, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Commit the index, and record the time taken.
+     *
+     * @throws IOException On an exception committing the index
+     */
+    private void timedCommit() throws IOException {
+        long startNanos = System.nanoTime();
+        commitIndex();
+        metrics.recordTime(MetricsStage.COMMIT, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Commit in the background, logging rather than throwing any exception.
+     */
+    private void commitQuietly() {
+        try {
+            if (indexWriter.hasUncommittedChanges()) {
+                timedCommit();
             }
+        } catch (AlreadyClosedException e) {
+            log.debug("Not committing a closed index");
+        } catch (Exception e) {
+            log.error("Could not commit index", e);
         }
+    }
 
-        return new EmbeddingSearchResult<>(results);
+    /**
+     * Record the token estimator in the index, so that content retrievers know how token counts were
+     * estimated. An index that already has content keeps the estimator that it was created with.
+     */
+    private void recordTokenEstimator() {
+        String estimatorName = tokenEstimator.name();
+        String recordedName = IndexCommitData.read(indexWriter).get(IndexCommitData.TOKEN_ESTIMATOR);
+        if (recordedName == null || indexWriter.getDocStats().maxDoc == 0) {
+            IndexCommitData.write(indexWriter, IndexCommitData.TOKEN_ESTIMATOR, estimatorName);
+        } else if (!recordedName.equals(estimatorName)) {
+            log.warn(String.format(
+                    "Index token counts were estimated with <%s>, but new content will be estimated with <%s>",
+                    recordedName, estimatorName));
+        }
+    }
+
+    /**
+     * Read the vector quantization recorded in the last commit of an index, before an index writer is
+     * opened with a codec for it.
+     *
+     * @param directory Lucene directory
+     * @return Recorded vector quantization, or no quantization for a new index
+     * @throws IOException On an exception reading the last commit
+     */
+    private static VectorQuantization recordedVectorQuantization(Directory directory) throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            return VectorQuantization.NONE;
+        }
+        String recordedName =
+                SegmentInfos.readLatestCommit(directory).getUserData().get(IndexCommitData.VECTOR_QUANTIZATION);
+        if (recordedName == null) {
+            return VectorQuantization.NONE;
+        }
+        try {
+            return VectorQuantization.valueOf(recordedName);
+        } catch (IllegalArgumentException e) {
+            log.warn(String.format("Unknown vector quantization <%s> recorded in index", recordedName));
+            return VectorQuantization.NONE;
+        }
+    }
+
+    /**
+     * Record the vector quantization in the index. Each segment records its own vectors format, so
+     * content retrievers do not depend on this, but it shows how new segments are written.
+     *
+     * @param vectorQuantization Quantization of embedding vectors
+     */
+    private void recordVectorQuantization(VectorQuantization vectorQuantization) {
+        String recordedName = IndexCommitData.read(indexWriter).get(IndexCommitData.VECTOR_QUANTIZATION);
+        if (recordedName != null
+                && !recordedName.equals(vectorQuantization.name())
+                && indexWriter.getDocStats().maxDoc > 0) {
+            log.info(String.format(
+                    "Index vectors were quantized as %s, and will be quantized as %s when segments are written or merged",
+                    recordedName, vectorQuantization));
+        }
+        IndexCommitData.write(indexWriter, IndexCommitData.VECTOR_QUANTIZATION, vectorQuantization.name());
+    }
+
+    /**
+     * Record the metadata schema in the index, combining declared field types with types recorded
+     * when the index was written before. Declared types take precedence.
+     *
+     * @param metadataFields Declared types of metadata fields
+     * @return Metadata schema
+     */
+    private MetadataSchema recordMetadataSchema(Map<String, MetadataFieldType> metadataFields) {
+        MetadataSchema schema = MetadataSchema.read(IndexCommitData.read(indexWriter));
+        for (Entry<String, MetadataFieldType> entry : metadataFields.entrySet()) {
+            MetadataFieldType recordedType = schema.put(entry.getKey(), entry.getValue());
+            if (recordedType != null && recordedType != entry.getValue()) {
+                log.warn(String.format(
+                        "Metadata field <%s> was indexed as %s, but is declared as %s",
+                        entry.getKey(), recordedType, entry.getValue()));
+            }
+        }
+        IndexCommitData.write(indexWriter, IndexCommitData.METADATA_SCHEMA, schema.format());
+        return schema;
+    }
+
+    /**
+     * Find keyword fields in an existing index that were indexed without doc values, so that new
+     * values can be indexed the same way, since Lucene does not allow the doc values of a field to
+     * change.
+     *
+     * @return Names of fields without doc values
+     */
+    private Set<String> fieldsWithoutDocValues() {
+        Set<String> fieldNames = ConcurrentHashMap.newKeySet();
+        if (indexWriter.getDocStats().maxDoc == 0) {
+            return fieldNames;
+        }
+        try (DirectoryReader reader = DirectoryReader.open(indexWriter)) {
+            for (FieldInfo fieldInfo : FieldInfos.getMergedFieldInfos(reader)) {
+                if (fieldInfo.getDocValuesType() == DocValuesType.NONE
+                        && fieldInfo.getIndexOptions() != IndexOptions.NONE
+                        && fieldInfo.getPointDimensionCount() == 0) {
+                    fieldNames.add(fieldInfo.name);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read index field information", e);
+        }
+        return fieldNames;
+    }
+
+    /**
+     * Generate ids where they are not provided, so that they can be reported back to calling code.
+     *
+     * @param ids Content ids, which are modified in place
+     * @return Content ids, with no blank values
+     */
+    private List<String> ensureIds(List<String> ids) {
+        for (int i = 0; i < ids.size(); i++) {
+            if (isBlank(ids.get(i))) {
+                ids.set(i, randomUUID());
+            }
+        }
+        return ids;
     }
 
     /**
@@ -314,6 +1534,72 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
         return maxLen;
     }
 
+    /**
+     * Build Lucene documents for a range of content and add them to the index, replacing documents
+     * with the same ids. Documents that cannot be built or are rejected by the index writer, such as
+     * embeddings with a different dimension from the index, are recorded as failures, without
+     * preventing other documents from being indexed.
+     *
+     * @param ids Content ids
+     * @param embeddings Content embeddings
+     * @param embedded Content
+     * @param from Start of the range, inclusive
+     * @param to End of the range, exclusive
+     * @param scope Query for documents that can be replaced, or null to replace any document with
+     *     the same id
+     * @param failures Failures keyed by position in the lists
+     * @return Index generation that includes the documents
+     */
+    private long writeDocuments(
+            List<String> ids,
+            List<Embedding> embeddings,
+            List<TextSegment> embedded,
+            int from,
+            int to,
+            Query scope,
+            Map<Integer, Exception> failures) {
+        long buildStartNanos = System.nanoTime();
+        Map<Integer, Document> documents = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            // Create Lucene documents list allowing other documents to be created even if any fail
+            try {
+                documents.put(i, toDocument(ids.get(i), embeddings.get(i), embedded.get(i)));
+            } catch (Exception e) {
+                log.error("Could not create Lucene document", e);
+                failures.put(i, e);
+            }
+        }
+
+        long writeStartNanos = System.nanoTime();
+        metrics.recordTime(MetricsStage.BUILD_DOCUMENTS, writeStartNanos - buildStartNanos);
+
+        // Replace documents with the same id, so that content can be re-indexed
+        long generation = -1;
+        try {
+            for (Entry<Integer, Document> entry : documents.entrySet()) {
+                Document document = entry.getValue();
+                Term idTerm = new Term(ID_FIELD_NAME, document.get(ID_FIELD_NAME));
+                try {
+                    if (scope == null) {
+                        generation = indexWriter.updateDocument(idTerm, document);
+                    } else {
+                        Query replaced = new BooleanQuery.Builder()
+                                .add(new TermQuery(idTerm), Occur.FILTER)
+                                .add(scope, Occur.FILTER)
+                                .build();
+                        generation = indexWriter.updateDocuments(replaced, List.of(document));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not index Lucene document", e);
+                    failures.put(entry.getKey(), e);
+                }
+            }
+        } finally {
+            metrics.recordTime(MetricsStage.WRITE_DOCUMENTS, System.nanoTime() - writeStartNanos);
+        }
+        return generation;
+    }
+
     /**
      * Convert provided id, embedding and text to a Lucene document.
      *
@@ -329,7 +1615,9 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
         } else {
             text = content.text();
         }
-        int tokens = encoding.countTokens(text);
+        long countStartNanos = System.nanoTime();
+        int tokens = tokenEstimator.estimate(text);
+        metrics.recordTime(MetricsStage.COUNT_TOKENS, System.nanoTime() - countStartNanos);
 
         Document document = new Document();
         if (isBlank(id)) {
@@ -360,29 +1648,43 @@ public final class LuceneEmbeddingStore implements EmbeddingStore<TextSegment> {
     }
 
     /**
-     * Convert a LangChain4J metadata entry into a Lucene field, attempting to preserve the value
-     * types.
+     * Convert a LangChain4J metadata entry into a Lucene field, using the type in the metadata schema.
+     * Fields that are not in the schema are typed from their value, and added to the schema.
      *
      * @param entry LangChain4J metadata entry
      * @return Lucene field
+     * @throws IllegalArgumentException If the value cannot be converted to the field type
      */
     private Field toField(Entry<String, Object> entry) {
         String fieldName = entry.getKey();
-        var fieldValue = entry.getValue();
-        Field field;
-        if (fieldValue instanceof String string) {
-            field = new StringField(fieldName, string, Store.YES);
-        } else if (fieldValue instanceof Integer number) {
-            field = new IntField(fieldName, number, Store.YES);
-        } else if (fieldValue instanceof Long number) {
-            field = new LongField(fieldName, number, Store.YES);
-        } else if (fieldValue instanceof Float number) {
-            field = new FloatField(fieldName, number, Store.YES);
-        } else if (fieldValue instanceof Double number) {
-            field = new DoubleField(fieldName, number, Store.YES);
-        } else {
-            field = new StringField(fieldName, String.valueOf(fieldValue), Store.YES);
+        MetadataFieldType fieldType = metadataSchema.fieldType(fieldName);
+        if (fieldType == null) {
+            fieldType = addMetadataField(fieldName, MetadataSchema.typeOf(entry.getValue()));
         }
-        return field;
+        Object fieldValue = MetadataSchema.convert(fieldType, entry.getValue());
+        return switch (fieldType) {
+            case INTEGER -> new IntField(fieldName, (Integer) fieldValue, Store.YES);
+            case LONG -> new LongField(fieldName, (Long) fieldValue, Store.YES);
+            case FLOAT -> new FloatField(fieldName, (Float) fieldValue, Store.YES);
+            case DOUBLE -> new DoubleField(fieldName, (Double) fieldValue, Store.YES);
+            default -> {
+                if (fieldsWithoutDocValues.contains(fieldName)) {
+                    yield new StringField(fieldName, (String) fieldValue, Store.YES);
+                }
+                yield new KeywordField(fieldName, (String) fieldValue, Store.YES);
+            }
+        };
+    }
+
+    /**
+     * Add a field to the metadata schema. Concurrent additions of the same field agree on the type
+     * that was added first. The schema is recorded in the index with the next commit.
+     *
+     * @param fieldName Field name
+     * @param fieldType Field type decided from a value
+     * @return Field type, which may have been added concurrently
+     */
+    private MetadataFieldType addMetadataField(String fieldName, MetadataFieldType fieldType) {
+        return metadataSchema.putIfAbsent(fieldName, fieldType);
     }
 }
@@ -0,0 +1,63 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import java.io.Closeable;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Receiver of metrics from content retrievers and embedding stores, such as stage latencies, hit
+ * counts, cache lookups and index size, so that they can be published to a monitoring system. All
+ * methods do nothing by default, and implementations override the ones they need. Methods are
+ * called on query and indexing threads, so they need to be thread-safe and fast. See {@link
+ * MicrometerMetrics} for a binding to Micrometer.
+ */
+public interface LuceneMetrics {
+
+    /** Metrics that are discarded, which is the default. */
+    LuceneMetrics NOOP = new LuceneMetrics() {};
+
+    /**
+     * Bind hit and miss counts of a cache, which are read when metrics are published.
+     *
+     * @param cacheName Cache name
+     * @param hitCount Number of lookups that were found in the cache
+     * @param missCount Number of lookups that were not found in the cache
+     * @return Binding, which is closed when the cache is no longer used
+     */
+    default Closeable bindCache(String cacheName, LongSupplier hitCount, LongSupplier missCount) {
+        return () -> {};
+    }
+
+    /**
+     * Bind statistics of an index, which are read when metrics are published.
+     *
+     * @param indexStatistics Current statistics of the index
+     * @return Binding, which is closed when the index is closed
+     */
+    default Closeable bindIndex(Supplier<IndexStatistics> indexStatistics) {
+        return () -> {};
+    }
+
+    /**
+     * Count hits that were within the maximum number of results, but were left out to fit within the
+     * maximum number of tokens.
+     *
+     * @param skipped Number of skipped hits for a query
+     */
+    default void countBudgetSkipped(int skipped) {}
+
+    /**
+     * Count hits returned for a query that searched the index.
+     *
+     * @param hits Number of hits for a query
+     */
+    default void countHits(int hits) {}
+
+    /**
+     * Record the time taken by a stage of retrieval or ingestion.
+     *
+     * @param stage Stage
+     * @param nanos Time taken in nanoseconds
+     */
+    default void recordTime(MetricsStage stage, long nanos) {}
+}
@@ -0,0 +1,98 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.time.Duration;
+
+/**
+ * Progress of an index maintenance operation, such as a force-merge. Progress is reported
+ * periodically while the operation runs, and once more when it is done. Document counts and merging
+ * segments are as seen by the index writer, and the segment count is as seen by near-real-time
+ * searches, which see merged segments when the operation is done.
+ */
+public final class MaintenanceProgress {
+
+    private final int segmentCount;
+    private final int mergingSegmentCount;
+    private final int documentCount;
+    private final int deletedDocumentCount;
+    private final Duration elapsed;
+    private final boolean done;
+
+    MaintenanceProgress(
+            int segmentCount,
+            int mergingSegmentCount,
+            int documentCount,
+            int deletedDocumentCount,
+            Duration elapsed,
+            boolean done) {
+        this.segmentCount = segmentCount;
+        this.mergingSegmentCount = mergingSegmentCount;
+        this.documentCount = documentCount;
+        this.deletedDocumentCount = deletedDocumentCount;
+        this.elapsed = ensureNotNull(elapsed, "elapsed");
+        this.done = done;
+    }
+
+    /**
+     * Number of deleted documents that still take space in segments.
+     *
+     * @return Number of deleted documents
+     */
+    public int deletedDocumentCount() {
+        return deletedDocumentCount;
+    }
+
+    /**
+     * Whether the operation is complete.
+     *
+     * @return True if the operation is complete
+     */
+    public boolean done() {
+        return done;
+    }
+
+    /**
+     * Number of live documents in the index.
+     *
+     * @return Number of documents
+     */
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Time since the operation started.
+     *
+     * @return Elapsed time
+     */
+    public Duration elapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Number of segments that are being merged, or are waiting to be merged.
+     *
+     * @return Number of merging segments
+     */
+    public int mergingSegmentCount() {
+        return mergingSegmentCount;
+    }
+
+    /**
+     * Number of segments in the index.
+     *
+     * @return Number of segments
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(
+                "MaintenanceProgress[segments=%d, merging=%d, documents=%d, deleted=%d, elapsed=%s, done=%b]",
+                segmentCount, mergingSegmentCount, documentCount, deletedDocumentCount, elapsed, done);
+    }
+}
@@ -0,0 +1,19 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * Type of a metadata field, which decides how it is indexed. Every type is stored, indexed for
+ * filters, and has doc values for sorting, faceting and reading metadata without loading stored
+ * documents.
+ */
+public enum MetadataFieldType {
+    /** String matched exactly, indexed as a keyword with sorted set doc values. * */
+    KEYWORD,
+    /** 32-bit integer, indexed as a point with sorted numeric doc values. * */
+    INTEGER,
+    /** 64-bit integer, indexed as a point with sorted numeric doc values. * */
+    LONG,
+    /** 32-bit floating point number, indexed as a point with sorted numeric doc values. * */
+    FLOAT,
+    /** 64-bit floating point number, indexed as a point with sorted numeric doc values. * */
+    DOUBLE;
+}
@@ -0,0 +1,187 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Types of metadata fields in an index. Types are either declared, or decided from the first value
+ * that is indexed for a field, and are then fixed, so that later values are converted to the same
+ * type. The schema is recorded in the index commit data, so that content retrievers can read
+ * metadata from doc values and build filters with the right types.
+ */
+final class MetadataSchema {
+
+    private static final String FIELD_SEPARATOR = "\n";
+    private static final char TYPE_SEPARATOR = '=';
+
+    /**
+     * Parse a schema recorded in the index commit data.
+     *
+     * @param commitData Commit user data
+     * @return Schema, which is empty if none is recorded
+     */
+    static MetadataSchema read(Map<String, String> commitData) {
+        MetadataSchema schema = new MetadataSchema();
+        String recorded = commitData.get(IndexCommitData.METADATA_SCHEMA);
+        if (recorded == null || recorded.isBlank()) {
+            return schema;
+        }
+        for (String line : recorded.split(FIELD_SEPARATOR)) {
+            int separator = line.lastIndexOf(TYPE_SEPARATOR);
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                schema.fieldTypes.put(
+                        line.substring(0, separator), MetadataFieldType.valueOf(line.substring(separator + 1)));
+            } catch (IllegalArgumentException e) {
+                // Ignore types that this version does not know about
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Decide the type of a field that is not declared from a value.
+     *
+     * @param value Metadata value
+     * @return Field type
+     */
+    static MetadataFieldType typeOf(Object value) {
+        if (value instanceof Integer) {
+            return MetadataFieldType.INTEGER;
+        } else if (value instanceof Long) {
+            return MetadataFieldType.LONG;
+        } else if (value instanceof Float) {
+            return MetadataFieldType.FLOAT;
+        } else if (value instanceof Double) {
+            return MetadataFieldType.DOUBLE;
+        }
+        return MetadataFieldType.KEYWORD;
+    }
+
+    /**
+     * Convert a value to a field type.
+     *
+     * @param fieldType Field type
+     * @param value Value
+     * @return Converted value, which is a String, Integer, Long, Float or Double
+     * @throws IllegalArgumentException If the value cannot be converted
+     */
+    static Object convert(MetadataFieldType fieldType, Object value) {
+        ensureNotNull(value, "value");
+        if (fieldType == MetadataFieldType.KEYWORD) {
+            return String.valueOf(value);
+        }
+        try {
+            if (value instanceof Number number) {
+                return switch (fieldType) {
+                    case INTEGER -> Math.toIntExact(number.longValue());
+                    case LONG -> number.longValue();
+                    case FLOAT -> number.floatValue();
+                    default -> number.doubleValue();
+                };
+            }
+            String string = String.valueOf(value).trim();
+            return switch (fieldType) {
+                case INTEGER -> Integer.valueOf(string);
+                case LONG -> Long.valueOf(string);
+                case FLOAT -> Float.valueOf(string);
+                default -> Double.valueOf(string);
+            };
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Cannot convert <%s> to %s", value, fieldType), e);
+        }
+    }
+
+    private final Map<String, MetadataFieldType> fieldTypes;
+
+    MetadataSchema() {
+        fieldTypes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Convert a value to the type of a field, if the field type is known.
+     *
+     * @param fieldName Field name
+     * @param value Value
+     * @return Converted value, or the value unchanged if the field type is not known
+     * @throws IllegalArgumentException If the value cannot be converted
+     */
+    Object convert(String fieldName, Object value) {
+        MetadataFieldType fieldType = fieldType(fieldName);
+        if (fieldType == null || value == null) {
+            return value;
+        }
+        return convert(fieldType, value);
+    }
+
+    /**
+     * Type of a field.
+     *
+     * @param fieldName Field name
+     * @return Field type, or null if the field type is not known
+     */
+    MetadataFieldType fieldType(String fieldName) {
+        if (fieldName == null) {
+            return null;
+        }
+        return fieldTypes.get(fieldName);
+    }
+
+    /**
+     * Types of all known fields.
+     *
+     * @return Unmodifiable map of field names to types
+     */
+    Map<String, MetadataFieldType> fieldTypes() {
+        return Collections.unmodifiableMap(fieldTypes);
+    }
+
+    /**
+     * Format the schema to be recorded in the index commit data.
+     *
+     * @return Formatted schema
+     */
+    String format() {
+        StringBuilder buffer = new StringBuilder();
+        for (Map.Entry<String, MetadataFieldType> entry : new TreeMap<>(fieldTypes).entrySet()) {
+            if (buffer.length() > 0) {
+                buffer.append(FIELD_SEPARATOR);
+            }
+            buffer.append(entry.getKey())
+                    .append(TYPE_SEPARATOR)
+                    .append(entry.getValue().name());
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Set the type of a field.
+     *
+     * @param fieldName Field name
+     * @param fieldType Field type
+     * @return Previous type of the field, or null if the field type was not known
+     */
+    MetadataFieldType put(String fieldName, MetadataFieldType fieldType) {
+        return fieldTypes.put(ensureNotBlank(fieldName, "fieldName"), ensureNotNull(fieldType, "fieldType"));
+    }
+
+    /**
+     * Set the type of a field, unless it is already known.
+     *
+     * @param fieldName Field name
+     * @param fieldType Field type
+     * @return Type of the field, which may have been known before
+     */
+    MetadataFieldType putIfAbsent(String fieldName, MetadataFieldType fieldType) {
+        MetadataFieldType existing =
+                fieldTypes.putIfAbsent(ensureNotBlank(fieldName, "fieldName"), ensureNotNull(fieldType, "fieldType"));
+        return existing != null ? existing : fieldType;
+    }
+}
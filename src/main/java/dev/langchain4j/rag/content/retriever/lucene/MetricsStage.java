@@ -0,0 +1,50 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * Timed stage of retrieval or ingestion. Some stages are nested in others, so that their times add
+ * up to the enclosing stage, together with work that is not timed separately.
+ */
+public enum MetricsStage {
+    /** Retrieving content for a query, end to end, including cached results. * */
+    RETRIEVE("retrieve"),
+    /** Embedding the query text, which is part of retrieval. * */
+    EMBED_QUERY("embed-query"),
+    /** Searching the index for top matching documents, including fusion, which is part of retrieval. * */
+    SEARCH("search"),
+    /** Parsing the query text into a full-text query, which is part of searching. * */
+    PARSE_QUERY("parse-query"),
+    /**
+     * Loading token counts and stored fields of matching documents, and choosing documents within the
+     * token budget, which is part of retrieval.
+     */
+    LOAD_STORED_FIELDS("load-stored-fields"),
+    /** Converting stored fields of chosen documents to content with metadata, which is part of retrieval. * */
+    CONVERT_METADATA("convert-metadata"),
+    /** Indexing a batch of content, end to end, including commit and refresh. * */
+    INDEX("index"),
+    /** Building Lucene documents from content, which is part of indexing. * */
+    BUILD_DOCUMENTS("build-documents"),
+    /** Estimating the token count of content, which is part of building a document. * */
+    COUNT_TOKENS("count-tokens"),
+    /** Adding or replacing documents with the index writer, which is part of indexing. * */
+    WRITE_DOCUMENTS("write-documents"),
+    /** Committing the index to the directory, after indexing or in the background. * */
+    COMMIT("commit"),
+    /** Refreshing the near-real-time searcher after indexing. * */
+    REFRESH("refresh");
+
+    private final String stageName;
+
+    MetricsStage(String stageName) {
+        this.stageName = stageName;
+    }
+
+    /**
+     * Name of the stage, for use as a metric tag.
+     *
+     * @return Stage name
+     */
+    public String stageName() {
+        return stageName;
+    }
+}
@@ -0,0 +1,300 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics published to a Micrometer meter registry. Stage latencies are timers named
+ * "lucene.stage.duration" with a "stage" tag, and publish percentile histograms, so that
+ * percentiles such as p99 can be aggregated and alerted on. Micrometer is an optional dependency,
+ * which needs to be on the classpath to use this class.
+ */
+public final class MicrometerMetrics implements LuceneMetrics {
+
+    /** Builder for `MicrometerMetrics`. */
+    public static class MicrometerMetricsBuilder {
+
+        private MeterRegistry meterRegistry;
+        private final List<Tag> tags;
+        private boolean percentileHistograms;
+
+        private MicrometerMetricsBuilder() {
+            // Set defaults
+            tags = new ArrayList<>();
+            percentileHistograms = true;
+        }
+
+        /**
+         * Build an instance of `MicrometerMetrics` using internal builder field values.
+         *
+         * @return New instance of `MicrometerMetrics`
+         */
+        public MicrometerMetrics build() {
+            return new MicrometerMetrics(meterRegistry, tags, percentileHistograms);
+        }
+
+        /**
+         * Sets the meter registry to publish metrics to.
+         *
+         * @param meterRegistry Meter registry
+         * @return Builder
+         */
+        public MicrometerMetricsBuilder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = ensureNotNull(meterRegistry, "meterRegistry");
+            return this;
+        }
+
+        /**
+         * Sets whether timers publish percentile histograms, which backends aggregate into
+         * percentiles. This is the default.
+         *
+         * @param percentileHistograms Whether to publish percentile histograms
+         * @return Builder
+         */
+        public MicrometerMetricsBuilder percentileHistograms(boolean percentileHistograms) {
+            this.percentileHistograms = percentileHistograms;
+            return this;
+        }
+
+        /**
+         * Adds a tag to all metrics, such as the name of the index, to tell apart metrics of
+         * different content retrievers and embedding stores in the same registry. Use a separate
+         * instance with its own tags for each index. Bindings of caches and indexes with the same
+         * name and tags share meters, which report the values of the earliest binding that is still
+         * open, and are removed when the last of them is closed. That suits a cache that is shared by
+         * several content retrievers, but not different indexes.
+         *
+         * @param key Tag key
+         * @param value Tag value
+         * @return Builder
+         */
+        public MicrometerMetricsBuilder tag(String key, String value) {
+            tags.add(Tag.of(ensureNotBlank(key, "key"), ensureNotNull(value, "value")));
+            return this;
+        }
+    }
+
+    /** Hit and miss counts of a cache. */
+    private record CacheCounts(LongSupplier hitCount, LongSupplier missCount) {}
+
+    /**
+     * Meters with the same name and tags, which are shared by all bindings of their sources. The
+     * meters read the earliest source that is still bound, and are removed when the last source is
+     * unbound. Meters hold their state object weakly, so this keeps sources reachable while they are
+     * bound.
+     */
+    private static final class SharedMeters<T> {
+
+        private final List<T> sources = new CopyOnWriteArrayList<>();
+        private final List<Meter> meters = new ArrayList<>();
+
+        double value(ToDoubleFunction<T> value) {
+            for (T source : sources) {
+                return value.applyAsDouble(source);
+            }
+            return 0;
+        }
+    }
+
+    /** Statistics of an index, read at most once a second, since reading them lists the directory. */
+    private static final class CachedStatistics {
+
+        private final Supplier<IndexStatistics> indexStatistics;
+        private IndexStatistics statistics;
+        private long readNanos;
+
+        CachedStatistics(Supplier<IndexStatistics> indexStatistics) {
+            this.indexStatistics = indexStatistics;
+        }
+
+        synchronized IndexStatistics get() {
+            long now = System.nanoTime();
+            if (statistics == null || now - readNanos > STATISTICS_MAX_AGE.toNanos()) {
+                statistics = indexStatistics.get();
+                readNanos = now;
+            }
+            return statistics;
+        }
+    }
+
+    private static final Duration STATISTICS_MAX_AGE = Duration.ofSeconds(1);
+
+    /**
+     * Instantiate a builder for `MicrometerMetrics`.
+     *
+     * @return Builder for `MicrometerMetrics`
+     */
+    public static MicrometerMetricsBuilder builder() {
+        return new MicrometerMetricsBuilder();
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Tags tags;
+    private final Map<MetricsStage, Timer> timers;
+    private final Counter hitCounter;
+    private final Counter budgetSkippedCounter;
+    private final Map<Tags, SharedMeters<CacheCounts>> cacheMeters;
+    private final Map<Tags, SharedMeters<CachedStatistics>> indexMeters;
+
+    /**
+     * Initialize all fields, and register meters for stages and hits.
+     *
+     * @param meterRegistry Meter registry
+     * @param tags Tags for all metrics
+     * @param percentileHistograms Whether timers publish percentile histograms
+     */
+    private MicrometerMetrics(MeterRegistry meterRegistry, List<Tag> tags, boolean percentileHistograms) {
+        this.meterRegistry = ensureNotNull(meterRegistry, "meterRegistry");
+        this.tags = Tags.of(ensureNotNull(tags, "tags"));
+        timers = new EnumMap<>(MetricsStage.class);
+        for (MetricsStage stage : MetricsStage.values()) {
+            timers.put(
+                    stage,
+                    Timer.builder("lucene.stage.duration")
+                            .description("Time taken by a stage of retrieval or ingestion")
+                            .tags(this.tags)
+                            .tag("stage", stage.stageName())
+                            .publishPercentileHistogram(percentileHistograms)
+                            .register(meterRegistry));
+        }
+        hitCounter = Counter.builder("lucene.retrieval.hits")
+                .description("Hits returned for queries that searched the index")
+                .tags(this.tags)
+                .register(meterRegistry);
+        budgetSkippedCounter = Counter.builder("lucene.retrieval.budget.skipped")
+                .description("Hits left out to fit within the maximum number of tokens")
+                .tags(this.tags)
+                .register(meterRegistry);
+        cacheMeters = new HashMap<>();
+        indexMeters = new HashMap<>();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Closeable bindCache(String cacheName, LongSupplier hitCount, LongSupplier missCount) {
+        CacheCounts counts =
+                new CacheCounts(ensureNotNull(hitCount, "hitCount"), ensureNotNull(missCount, "missCount"));
+        Tags cacheTags = tags.and("cache", ensureNotBlank(cacheName, "cacheName"));
+        return bind(cacheMeters, cacheTags, counts, shared -> {
+            shared.meters.add(FunctionCounter.builder(
+                            "lucene.cache.gets",
+                            shared,
+                            s -> s.value(c -> c.hitCount().getAsLong()))
+                    .description("Cache lookups")
+                    .tags(cacheTags)
+                    .tag("result", "hit")
+                    .register(meterRegistry));
+            shared.meters.add(FunctionCounter.builder(
+                            "lucene.cache.gets",
+                            shared,
+                            s -> s.value(c -> c.missCount().getAsLong()))
+                    .description("Cache lookups")
+                    .tags(cacheTags)
+                    .tag("result", "miss")
+                    .register(meterRegistry));
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Closeable bindIndex(Supplier<IndexStatistics> indexStatistics) {
+        CachedStatistics statistics = new CachedStatistics(ensureNotNull(indexStatistics, "indexStatistics"));
+        return bind(indexMeters, tags, statistics, shared -> {
+            shared.meters.add(gauge("lucene.index.documents", null, shared, IndexStatistics::documentCount));
+            shared.meters.add(
+                    gauge("lucene.index.documents.deleted", null, shared, IndexStatistics::deletedDocumentCount));
+            shared.meters.add(gauge("lucene.index.segments", null, shared, IndexStatistics::segmentCount));
+            shared.meters.add(gauge("lucene.index.ram", "bytes", shared, IndexStatistics::ramBytes));
+            shared.meters.add(gauge("lucene.index.disk", "bytes", shared, IndexStatistics::diskBytes));
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void countBudgetSkipped(int skipped) {
+        budgetSkippedCounter.increment(skipped);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void countHits(int hits) {
+        hitCounter.increment(hits);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void recordTime(MetricsStage stage, long nanos) {
+        timers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Bind a source to the meters with the given tags, registering the meters for the first source.
+     *
+     * @param bindings Shared meters by tags
+     * @param key Tags of the meters
+     * @param source Source of values
+     * @param register Registers the meters of new shared meters
+     * @return Binding, which unbinds the source when it is closed
+     */
+    private synchronized <T> Closeable bind(
+            Map<Tags, SharedMeters<T>> bindings, Tags key, T source, Consumer<SharedMeters<T>> register) {
+        SharedMeters<T> shared = bindings.get(key);
+        if (shared == null) {
+            shared = new SharedMeters<>();
+            register.accept(shared);
+            bindings.put(key, shared);
+        }
+        shared.sources.add(source);
+        return () -> unbind(bindings, key, source);
+    }
+
+    /**
+     * Unbind a source, and remove the meters once no sources are bound. Unbinding more than once
+     * has no effect.
+     *
+     * @param bindings Shared meters by tags
+     * @param key Tags of the meters
+     * @param source Source of values
+     */
+    private synchronized <T> void unbind(Map<Tags, SharedMeters<T>> bindings, Tags key, T source) {
+        SharedMeters<T> shared = bindings.get(key);
+        if (shared != null && shared.sources.remove(source) && shared.sources.isEmpty()) {
+            shared.meters.forEach(meterRegistry::remove);
+            bindings.remove(key);
+        }
+    }
+
+    private Gauge gauge(
+            String name,
+            String baseUnit,
+            SharedMeters<CachedStatistics> shared,
+            ToDoubleFunction<IndexStatistics> value) {
+        return Gauge.builder(name, shared, s -> s.value(cached -> value.applyAsDouble(cached.get())))
+                .baseUnit(baseUnit)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+}
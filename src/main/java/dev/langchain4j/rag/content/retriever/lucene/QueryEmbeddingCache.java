@@ -0,0 +1,245 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, least-recently-used cache of query embeddings, so that repeated queries do not call the
+ * embedding model again. Query text is normalized before lookup, so queries that differ only in
+ * case or whitespace share an embedding. A cache can be shared by content retrievers, as long as
+ * they use the same embedding model.
+ */
+public final class QueryEmbeddingCache {
+
+    /** Builder for `QueryEmbeddingCache`. */
+    public static class QueryEmbeddingCacheBuilder {
+
+        private int maxSize;
+        private Duration timeToLive;
+        private boolean normalize;
+
+        private QueryEmbeddingCacheBuilder() {
+            // Set defaults
+            maxSize = 1_000;
+            timeToLive = Duration.ZERO;
+            normalize = true;
+        }
+
+        /**
+         * Build an instance of `QueryEmbeddingCache` using internal builder field values.
+         *
+         * @return New instance of `QueryEmbeddingCache`
+         */
+        public QueryEmbeddingCache build() {
+            return new QueryEmbeddingCache(maxSize, timeToLive, normalize);
+        }
+
+        /**
+         * Sets the maximum number of cached embeddings. The least recently used embedding is evicted
+         * when the cache is full.
+         *
+         * @param maxSize Maximum number of embeddings
+         * @return Builder
+         */
+        public QueryEmbeddingCacheBuilder maxSize(int maxSize) {
+            if (maxSize > 0) {
+                this.maxSize = maxSize;
+            }
+            return this;
+        }
+
+        /**
+         * Sets whether query text is normalized before lookup, by trimming, collapsing whitespace and
+         * converting to lower case. Normalization is on by default.
+         *
+         * @param normalize Whether to normalize query text
+         * @return Builder
+         */
+        public QueryEmbeddingCacheBuilder normalize(boolean normalize) {
+            this.normalize = normalize;
+            return this;
+        }
+
+        /**
+         * Sets how long an embedding is cached after it is computed. If zero or null, embeddings do
+         * not expire, which is the default.
+         *
+         * @param timeToLive Time to live
+         * @return Builder
+         */
+        public QueryEmbeddingCacheBuilder timeToLive(Duration timeToLive) {
+            if (timeToLive == null || timeToLive.isNegative()) {
+                this.timeToLive = Duration.ZERO;
+            } else {
+                this.timeToLive = timeToLive;
+            }
+            return this;
+        }
+    }
+
+    /** Cached vector, stored as a primitive array, with the time it was computed. */
+    private record CachedVector(float[] vector, long createdNanos) {}
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Instantiate a builder for `QueryEmbeddingCache`.
+     *
+     * @return Builder for `QueryEmbeddingCache`
+     */
+    public static QueryEmbeddingCacheBuilder builder() {
+        return new QueryEmbeddingCacheBuilder();
+    }
+
+    private final Map<String, CachedVector> cache;
+    private final long timeToLiveNanos;
+    private final boolean normalize;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    private QueryEmbeddingCache(int maxSize, Duration timeToLive, boolean normalize) {
+        final int capacity = Math.max(1, maxSize);
+        // Access order, so that the eldest entry is the least recently used
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedVector> eldest) {
+                if (size() > capacity) {
+                    evictionCount.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        timeToLiveNanos = timeToLive == null ? 0 : timeToLive.toNanos();
+        this.normalize = normalize;
+        hitCount = new LongAdder();
+        missCount = new LongAdder();
+        evictionCount = new LongAdder();
+    }
+
+    /** Remove all cached embeddings. Statistics are not reset. */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Number of embeddings evicted because the cache was full.
+     *
+     * @return Eviction count
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Number of lookups that found a cached embedding.
+     *
+     * @return Hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Fraction of lookups that found a cached embedding.
+     *
+     * @return Hit rate between 0 and 1, or 0 if there have been no lookups
+     */
+    public double hitRate() {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Number of lookups that needed the embedding model.
+     *
+     * @return Miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Number of cached embeddings, which may include expired embeddings that have not been looked up
+     * since they expired.
+     *
+     * @return Number of cached embeddings
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(
+                "QueryEmbeddingCache[size=%d, hits=%d, misses=%d, evictions=%d]",
+                size(), hitCount(), missCount(), evictionCount());
+    }
+
+    /**
+     * Get the embedding of query text from the cache, or embed the query with the embedding model and
+     * cache the result. The embedding model is called without holding a lock, so concurrent misses
+     * for the same query may each call the model. Vectors are copied into and out of the cache, so
+     * that a caller that changes a returned vector does not change the cached one.
+     *
+     * @param queryText Query text
+     * @param embeddingModel Embedding model
+     * @return Embedding, or null if the embedding model did not return one
+     */
+    Embedding embed(String queryText, EmbeddingModel embeddingModel) {
+        if (queryText == null) {
+            missCount.increment();
+            return embed(embeddingModel, queryText);
+        }
+
+        String key = normalize ? normalize(queryText) : queryText;
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CachedVector cached = cache.get(key);
+            if (cached != null) {
+                if (timeToLiveNanos == 0 || now - cached.createdNanos() < timeToLiveNanos) {
+                    hitCount.increment();
+                    return Embedding.from(cached.vector().clone());
+                }
+                cache.remove(key);
+            }
+        }
+
+        missCount.increment();
+        Embedding embedding = embed(embeddingModel, queryText);
+        if (embedding != null) {
+            synchronized (cache) {
+                cache.put(key, new CachedVector(embedding.vector().clone(), now));
+            }
+        }
+        return embedding;
+    }
+
+    private static Embedding embed(EmbeddingModel embeddingModel, String queryText) {
+        Response<Embedding> embeddingResponse = embeddingModel.embed(queryText);
+        if (embeddingResponse == null) {
+            return null;
+        }
+        return embeddingResponse.content();
+    }
+
+    private static String normalize(String queryText) {
+        return WHITESPACE.matcher(queryText.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,11 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/** Policy for refreshing a shared index searcher, so that queries see changes to the index. */
+public enum RefreshPolicy {
+    /** Refresh only when explicitly requested by calling code. * */
+    ON_DEMAND,
+    /** Check for a newer commit before each query, and refresh if there is one. * */
+    ON_COMMIT,
+    /** Refresh in the background at a fixed interval. * */
+    TIMED;
+}
@@ -0,0 +1,294 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReader.CacheHelper;
+
+/**
+ * Bounded, least-recently-used cache of retrieved content. Results are cached for an index reader,
+ * so that a query only gets a result computed on the reader it searches, and queries on old and new
+ * readers can run at the same time while the index changes. Results of a reader are dropped when the
+ * reader is closed. Identical queries that arrive while a result is being computed wait for that
+ * result, rather than searching the index again.
+ */
+public final class RetrievalResultCache {
+
+    /** Builder for `RetrievalResultCache`. */
+    public static class RetrievalResultCacheBuilder {
+
+        private int maxSize;
+        private Duration timeToLive;
+
+        private RetrievalResultCacheBuilder() {
+            // Set defaults
+            maxSize = 1_000;
+            timeToLive = Duration.ZERO;
+        }
+
+        /**
+         * Build an instance of `RetrievalResultCache` using internal builder field values.
+         *
+         * @return New instance of `RetrievalResultCache`
+         */
+        public RetrievalResultCache build() {
+            return new RetrievalResultCache(maxSize, timeToLive);
+        }
+
+        /**
+         * Sets the maximum number of cached results. The least recently used result is evicted when
+         * the cache is full.
+         *
+         * @param maxSize Maximum number of results
+         * @return Builder
+         */
+        public RetrievalResultCacheBuilder maxSize(int maxSize) {
+            if (maxSize > 0) {
+                this.maxSize = maxSize;
+            }
+            return this;
+        }
+
+        /**
+         * Sets how long a result is cached after it is computed, even if the index does not change.
+         * If zero or null, results are cached until the index changes, which is the default.
+         *
+         * @param timeToLive Time to live
+         * @return Builder
+         */
+        public RetrievalResultCacheBuilder timeToLive(Duration timeToLive) {
+            if (timeToLive == null || timeToLive.isNegative()) {
+                this.timeToLive = Duration.ZERO;
+            } else {
+                this.timeToLive = timeToLive;
+            }
+            return this;
+        }
+    }
+
+    /** Cache key, with the query and all parameters that change its result. */
+    private record Key(
+            Object readerKey,
+            String queryText,
+            int maxResults,
+            int maxTokens,
+            double minScore,
+            boolean onlyMatches,
+            Filter filter,
+            HybridMode hybridMode,
+            Set<String> metadataFields) {}
+
+    /** Cached result, with the time it was computed. */
+    private record CachedResult(List<Content> contents, long createdNanos) {}
+
+    /**
+     * Instantiate a builder for `RetrievalResultCache`.
+     *
+     * @return Builder for `RetrievalResultCache`
+     */
+    public static RetrievalResultCacheBuilder builder() {
+        return new RetrievalResultCacheBuilder();
+    }
+
+    private final Map<Key, CachedResult> cache;
+    private final Map<Key, CompletableFuture<List<Content>>> inFlight;
+    private final long timeToLiveNanos;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder coalescedCount;
+    // Readers with a listener that drops their results when they are closed
+    private final Set<Object> readerKeys;
+
+    private RetrievalResultCache(int maxSize, Duration timeToLive) {
+        final int capacity = Math.max(1, maxSize);
+        // Access order, so that the eldest entry is the least recently used
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > capacity;
+            }
+        };
+        inFlight = new ConcurrentHashMap<>();
+        timeToLiveNanos = timeToLive == null ? 0 : timeToLive.toNanos();
+        hitCount = new LongAdder();
+        missCount = new LongAdder();
+        coalescedCount = new LongAdder();
+        readerKeys = ConcurrentHashMap.newKeySet();
+    }
+
+    /** Remove all cached results. Statistics are not reset. */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Number of queries that waited for an identical query in progress, rather than searching.
+     *
+     * @return Coalesced count
+     */
+    public long coalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Number of queries answered from the cache.
+     *
+     * @return Hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Number of queries that searched the index.
+     *
+     * @return Miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Number of cached results.
+     *
+     * @return Number of cached results
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(
+                "RetrievalResultCache[size=%d, hits=%d, misses=%d, coalesced=%d]",
+                size(), hitCount(), missCount(), coalescedCount());
+    }
+
+    /**
+     * Get a cached result, wait for an identical query in progress, or search and cache the result.
+     * Results of failed searches are not cached.
+     *
+     * @param reader Index reader that the query searches
+     * @param queryText Query text
+     * @param maxResults Maximum number of results
+     * @param maxTokens Maximum number of tokens
+     * @param minScore Minimum score
+     * @param onlyMatches Whether only matching documents are returned
+     * @param filter Metadata filter - can be null
+     * @param hybridMode How full-text and vector searches are combined
+     * @param metadataFields Names of metadata fields to return - can be null for all fields
+     * @param search Search that computes the result
+     * @return Copy of the retrieved content, which the caller may modify
+     * @throws Exception On an exception from the search
+     */
+    List<Content> get(
+            IndexReader reader,
+            String queryText,
+            int maxResults,
+            int maxTokens,
+            double minScore,
+            boolean onlyMatches,
+            Filter filter,
+            HybridMode hybridMode,
+            Set<String> metadataFields,
+            Callable<List<Content>> search)
+            throws Exception {
+        CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        Object readerKey = cacheHelper != null ? cacheHelper.getKey() : reader;
+        if (cacheHelper != null && readerKeys.add(readerKey)) {
+            cacheHelper.addClosedListener(this::drop);
+        }
+        Key key = new Key(
+                readerKey, queryText, maxResults, maxTokens, minScore, onlyMatches, filter, hybridMode, metadataFields);
+
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CachedResult cached = cache.get(key);
+            if (cached != null) {
+                if (timeToLiveNanos == 0 || now - cached.createdNanos() < timeToLiveNanos) {
+                    hitCount.increment();
+                    return copy(cached.contents());
+                }
+                cache.remove(key);
+            }
+        }
+
+        CompletableFuture<List<Content>> future = new CompletableFuture<>();
+        CompletableFuture<List<Content>> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCount.increment();
+            try {
+                return copy(existing.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        missCount.increment();
+        try {
+            List<Content> contents = copy(search.call());
+            synchronized (cache) {
+                cache.put(key, new CachedResult(contents, now));
+            }
+            future.complete(contents);
+            return copy(contents);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Copy retrieved content, so that the metadata of cached text segments is never shared with
+     * callers that may modify it. Content metadata, such as scores, cannot be modified.
+     *
+     * @param contents Retrieved content
+     * @return Copy of the content
+     */
+    private static List<Content> copy(List<Content> contents) {
+        List<Content> copies = new ArrayList<>(contents.size());
+        for (Content content : contents) {
+            TextSegment textSegment = content.textSegment();
+            copies.add(Content.from(
+                    TextSegment.from(textSegment.text(), textSegment.metadata().copy()), content.metadata()));
+        }
+        return copies;
+    }
+
+    /**
+     * Drop the cached results of an index reader that was closed, since no query can search it
+     * again.
+     *
+     * @param readerKey Cache key of the reader
+     */
+    private void drop(Object readerKey) {
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.readerKey().equals(readerKey));
+        }
+        readerKeys.remove(readerKey);
+    }
+}
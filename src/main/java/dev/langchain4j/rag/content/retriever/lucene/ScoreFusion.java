@@ -0,0 +1,84 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * Fuses the results of independent searches over the same index reader into a single ranking.
+ * Searches are given in a fixed order, with a weight for each.
+ */
+final class ScoreFusion {
+
+    /** Default rank constant for reciprocal rank fusion, from the original paper. * */
+    static final int DEFAULT_RANK_CONSTANT = 60;
+
+    /**
+     * Fuse results by reciprocal rank. A document scores the sum over searches of the search weight
+     * divided by the rank constant plus the one-based rank of the document in that search.
+     *
+     * @param results Ranked results of each search
+     * @param weights Weight of each search
+     * @param rankConstant Rank constant, where larger values flatten differences between ranks
+     * @param maxResults Maximum number of fused results
+     * @return Fused results, in descending order of score
+     */
+    static ScoreDoc[] reciprocalRank(List<ScoreDoc[]> results, double[] weights, int rankConstant, int maxResults) {
+        Map<Integer, Double> fused = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            ScoreDoc[] scoreDocs = results.get(i);
+            for (int rank = 0; rank < scoreDocs.length; rank++) {
+                fused.merge(scoreDocs[rank].doc, weights[i] / (rankConstant + rank + 1), Double::sum);
+            }
+        }
+        return topDocs(fused, maxResults);
+    }
+
+    /**
+     * Fuse results by a weighted sum of scores. Scores in each search are divided by the top score of
+     * that search, so that scores from differently scaled searches, such as BM25 and vector
+     * similarity, are comparable.
+     *
+     * @param results Ranked results of each search
+     * @param weights Weight of each search
+     * @param maxResults Maximum number of fused results
+     * @return Fused results, in descending order of score
+     */
+    static ScoreDoc[] weightedScores(List<ScoreDoc[]> results, double[] weights, int maxResults) {
+        Map<Integer, Double> fused = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            ScoreDoc[] scoreDocs = results.get(i);
+            float topScore = 0;
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                topScore = Math.max(topScore, scoreDoc.score);
+            }
+            if (topScore <= 0) {
+                continue;
+            }
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                fused.merge(scoreDoc.doc, weights[i] * scoreDoc.score / topScore, Double::sum);
+            }
+        }
+        return topDocs(fused, maxResults);
+    }
+
+    private static ScoreDoc[] topDocs(Map<Integer, Double> fused, int maxResults) {
+        List<ScoreDoc> scoreDocs = new ArrayList<>(fused.size());
+        for (Entry<Integer, Double> entry : fused.entrySet()) {
+            scoreDocs.add(new ScoreDoc(entry.getKey(), entry.getValue().floatValue()));
+        }
+        // Highest score first, and lowest document id first for equal scores, like Lucene
+        scoreDocs.sort((a, b) -> {
+            int compare = Float.compare(b.score, a.score);
+            return compare != 0 ? compare : Integer.compare(a.doc, b.doc);
+        });
+        return scoreDocs.subList(0, Math.min(maxResults, scoreDocs.size())).toArray(new ScoreDoc[0]);
+    }
+
+    private ScoreFusion() {
+        // Prevent instantiation
+    }
+}
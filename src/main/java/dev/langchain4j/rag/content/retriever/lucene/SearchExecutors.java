@@ -0,0 +1,52 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Static factory for executors that search index segments concurrently within a single query.
+ * Executors are owned by the caller, and need to be shut down after the content retrievers that
+ * use them are closed.
+ */
+public class SearchExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchExecutors.class);
+
+    /**
+     * Executor with a fixed number of daemon threads.
+     *
+     * @param threads Number of threads
+     * @return Executor
+     */
+    public static ExecutorService fixedThreadPool(int threads) {
+        ensureGreaterThanZero(threads, "threads");
+        return Executors.newFixedThreadPool(threads, new DaemonThreadFactory("lucene-search"));
+    }
+
+    /**
+     * Executor that starts a new virtual thread for each task, which is available on Java 21 and
+     * later. On earlier Java versions, a fixed thread pool with one thread per available processor is
+     * returned instead.
+     *
+     * @return Executor
+     */
+    public static ExecutorService virtualThreads() {
+        try {
+            // Looked up reflectively, since the library is built for Java 17
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available, so using a fixed thread pool");
+            return fixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private SearchExecutors() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,783 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.Utils.isNullOrBlank;
+import static dev.langchain4j.internal.Utils.randomUUID;
+import static dev.langchain4j.internal.ValidationUtils.ensureBetween;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.StringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embedding store over several Lucene embedding stores, or shards, each on its own directory, for
+ * indexes that are too large for a single directory. Content is routed to a shard by a hash of its
+ * id, and each shard owns a range of hashes, which is recorded in its index. Searches fan out to
+ * all shards in parallel, and the top matches of each shard are merged. A shard can be split in
+ * two, to rebalance the index as it grows.
+ */
+public final class ShardedEmbeddingStore implements EmbeddingStore<TextSegment>, Closeable {
+
+    /** Builder for `ShardedEmbeddingStore`. */
+    public static class ShardedEmbeddingStoreBuilder {
+
+        private final List<LuceneEmbeddingStore> shards;
+        private Executor searchExecutor;
+        private Executor writeExecutor;
+
+        private ShardedEmbeddingStoreBuilder() {
+            // Set defaults
+            shards = new ArrayList<>();
+        }
+
+        /**
+         * Build an instance of `ShardedEmbeddingStore` using internal builder field values.
+         *
+         * @return New instance of `ShardedEmbeddingStore`
+         */
+        public ShardedEmbeddingStore build() {
+            return new ShardedEmbeddingStore(shards, searchExecutor, writeExecutor);
+        }
+
+        /**
+         * Sets the executor that searches shards in parallel. If null, a thread pool with a thread
+         * for each shard is created, and shut down when the sharded embedding store is closed.
+         *
+         * @param searchExecutor Executor for searching shards
+         * @return Builder
+         */
+        public ShardedEmbeddingStoreBuilder searchExecutor(Executor searchExecutor) {
+            // Can be null
+            this.searchExecutor = searchExecutor;
+            return this;
+        }
+
+        /**
+         * Adds a shard. The sharded embedding store takes ownership of the shard, and closes it
+         * when it is closed. Shards of a new index are assigned equal ranges of id hashes in the
+         * order that they are added, and shards of an existing index keep their recorded ranges.
+         *
+         * @param shard Lucene embedding store on its own directory
+         * @return Builder
+         */
+        public ShardedEmbeddingStoreBuilder shard(LuceneEmbeddingStore shard) {
+            shards.add(ensureNotNull(shard, "shard"));
+            return this;
+        }
+
+        /**
+         * Sets the executor that writes to shards in parallel, so that writes do not take threads
+         * from searches. If null, a thread pool with a thread for each shard is created, and shut
+         * down when the sharded embedding store is closed.
+         *
+         * @param writeExecutor Executor for writing to shards
+         * @return Builder
+         */
+        public ShardedEmbeddingStoreBuilder writeExecutor(Executor writeExecutor) {
+            // Can be null
+            this.writeExecutor = writeExecutor;
+            return this;
+        }
+    }
+
+    /**
+     * Shard that owns a range of id hashes, from the start inclusive to the end exclusive.
+     *
+     * @param start First hash in the range
+     * @param end Hash after the last hash in the range
+     * @param store Lucene embedding store of the shard
+     */
+    private record Shard(long start, long end, LuceneEmbeddingStore store) {
+
+        boolean contains(long hash) {
+            return hash >= start && hash < end;
+        }
+
+        String range() {
+            return start + "-" + end;
+        }
+    }
+
+    /** Number of id hashes, which are unsigned 32-bit values. * */
+    private static final long HASH_COUNT = 1L << 32;
+
+    /** Number of documents copied to a new shard at a time when splitting a shard. * */
+    private static final int SPLIT_BATCH_SIZE = 1_000;
+
+    private static final String ID_FIELD_NAME = LuceneDocumentFields.ID_FIELD_NAME.fieldName();
+    private static final String CONTENT_FIELD_NAME = LuceneDocumentFields.CONTENT_FIELD_NAME.fieldName();
+    private static final String EMBEDDING_FIELD_NAME = LuceneDocumentFields.EMBEDDING_FIELD_NAME.fieldName();
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedEmbeddingStore.class);
+
+    /**
+     * Instantiate a builder for `ShardedEmbeddingStore`.
+     *
+     * @return Builder for `ShardedEmbeddingStore`
+     */
+    public static ShardedEmbeddingStoreBuilder builder() {
+        return new ShardedEmbeddingStoreBuilder();
+    }
+
+    /**
+     * Hash of a content id, which decides the shard that it is routed to. The hash is stable across
+     * JVMs and versions, since shard ranges are recorded in the index.
+     *
+     * @param id Content id
+     * @return Unsigned 32-bit hash
+     */
+    static long hash(String id) {
+        return Integer.toUnsignedLong(StringHelper.murmurhash3_x86_32(new BytesRef(id), 0));
+    }
+
+    private final Executor searchExecutor;
+    private final ExecutorService ownedSearchExecutor;
+    private final Executor writeExecutor;
+    private final ExecutorService ownedWriteExecutor;
+    private final IndexSearcherProvider searcherProvider;
+    // Writes share the lock, and a split holds it exclusively, so that no content is routed to a
+    // shard while it is being split
+    private final ReadWriteLock splitLock;
+    private volatile List<Shard> shards;
+    private boolean closed;
+
+    /**
+     * Initialize all fields, and assign or read the ranges of id hashes of all shards.
+     *
+     * @param stores Lucene embedding stores of the shards
+     * @param searchExecutor Executor for searching shards - can be null
+     * @param writeExecutor Executor for writing to shards - can be null
+     */
+    private ShardedEmbeddingStore(List<LuceneEmbeddingStore> stores, Executor searchExecutor, Executor writeExecutor) {
+        ensureNotEmpty(stores, "shards");
+        if (searchExecutor == null) {
+            ownedSearchExecutor =
+                    Executors.newFixedThreadPool(stores.size(), new DaemonThreadFactory("lucene-shard-search"));
+            this.searchExecutor = ownedSearchExecutor;
+        } else {
+            ownedSearchExecutor = null;
+            this.searchExecutor = searchExecutor;
+        }
+        if (writeExecutor == null) {
+            ownedWriteExecutor =
+                    Executors.newFixedThreadPool(stores.size(), new DaemonThreadFactory("lucene-shard-write"));
+            this.writeExecutor = ownedWriteExecutor;
+        } else {
+            ownedWriteExecutor = null;
+            this.writeExecutor = writeExecutor;
+        }
+        try {
+            shards = readShards(stores);
+        } catch (IOException | RuntimeException e) {
+            if (ownedSearchExecutor != null) {
+                ownedSearchExecutor.shutdownNow();
+            }
+            if (ownedWriteExecutor != null) {
+                ownedWriteExecutor.shutdownNow();
+            }
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        splitLock = new ReentrantReadWriteLock();
+        searcherProvider = new IndexSearcherProvider(
+                () -> shards.stream()
+                        .map(shard -> shard.store().searcherProvider())
+                        .toList(),
+                this.searchExecutor);
+    }
+
+    /**
+     * Close all shards, committing pending changes. The Lucene directories are not closed, since
+     * they were provided by calling code.
+     *
+     * @throws IOException On an exception closing a shard
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        List<Closeable> closeables = new ArrayList<>();
+        closeables.add(searcherProvider);
+        for (Shard shard : shards) {
+            closeables.add(shard.store());
+        }
+        try {
+            IOUtils.close(closeables);
+        } finally {
+            if (ownedSearchExecutor != null) {
+                ownedSearchExecutor.shutdown();
+            }
+            if (ownedWriteExecutor != null) {
+                ownedWriteExecutor.shutdown();
+            }
+        }
+    }
+
+    /** Commit all indexed content of all shards to their directories. */
+    public void commit() {
+        for (Shard shard : shards) {
+            shard.store().commit();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String add(Embedding embedding) {
+        if (embedding == null) {
+            return null;
+        }
+        String id = randomUUID();
+        add(id, embedding, null);
+        return id;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = randomUUID();
+        add(id, embedding, textSegment);
+        return id;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void add(String id, Embedding embedding) {
+        if (embedding == null) {
+            return;
+        }
+        add(id, embedding, null);
+    }
+
+    /**
+     * Add content to the shard that its id is routed to. The id is generated if it is null.
+     *
+     * @param id Content id, can be null
+     * @param embedding Content embedding, can be null
+     * @param content Content, can be null
+     */
+    public void add(String id, Embedding embedding, TextSegment content) {
+        addAll(Collections.singletonList(id), Collections.singletonList(embedding), Collections.singletonList(content));
+    }
+
+    /**
+     * Generate an id, and add the content to the shard that the id is routed to.
+     *
+     * @param textSegment Content to index
+     * @return Generated id
+     */
+    public String add(TextSegment textSegment) {
+        if (textSegment == null) {
+            return null;
+        }
+        String id = randomUUID();
+        add(id, null, textSegment);
+        return id;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        if (embeddings == null || embeddings.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    /**
+     * Add content to the shards that the ids are routed to, writing to all shards in parallel. Ids
+     * are generated where they are null or blank.
+     *
+     * @param idsArg Content ids, can be null
+     * @param embeddingsArg Content embeddings, can be null
+     * @param embeddedArg Content, can be null
+     */
+    @Override
+    public void addAll(List<String> idsArg, List<Embedding> embeddingsArg, List<TextSegment> embeddedArg) {
+        int size = Math.max(
+                idsArg == null ? 0 : idsArg.size(),
+                Math.max(
+                        embeddingsArg == null ? 0 : embeddingsArg.size(),
+                        embeddedArg == null ? 0 : embeddedArg.size()));
+        if (size == 0) {
+            return;
+        }
+
+        splitLock.readLock().lock();
+        try {
+            List<Shard> currentShards = shards;
+            Map<Shard, List<Integer>> routed = new HashMap<>();
+            List<String> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String id = idsArg == null || i >= idsArg.size() ? null : idsArg.get(i);
+                if (isNullOrBlank(id)) {
+                    id = randomUUID();
+                }
+                ids.add(id);
+                routed.computeIfAbsent(shard(currentShards, id), shard -> new ArrayList<>())
+                        .add(i);
+            }
+
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (Map.Entry<Shard, List<Integer>> entry : routed.entrySet()) {
+                List<Integer> positions = entry.getValue();
+                List<String> shardIds = new ArrayList<>(positions.size());
+                List<Embedding> shardEmbeddings = new ArrayList<>(positions.size());
+                List<TextSegment> shardEmbedded = new ArrayList<>(positions.size());
+                for (int i : positions) {
+                    shardIds.add(ids.get(i));
+                    shardEmbeddings.add(itemAt(embeddingsArg, i));
+                    shardEmbedded.add(itemAt(embeddedArg, i));
+                }
+                LuceneEmbeddingStore store = entry.getKey().store();
+                writes.add(CompletableFuture.runAsync(
+                        () -> store.addAll(shardIds, shardEmbeddings, shardEmbedded), writeExecutor));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            splitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove content by id from the shard that it is routed to.
+     *
+     * @param id Content id
+     */
+    @Override
+    public void remove(String id) {
+        ensureNotBlank(id, "id");
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Remove content by id from the shards that the ids are routed to.
+     *
+     * @param ids Content ids
+     */
+    @Override
+    public void removeAll(Collection<String> ids) {
+        ensureNotEmpty(ids, "ids");
+        splitLock.readLock().lock();
+        try {
+            List<Shard> currentShards = shards;
+            Map<Shard, List<String>> routed = new HashMap<>();
+            for (String id : ids) {
+                if (!isNullOrBlank(id)) {
+                    routed.computeIfAbsent(shard(currentShards, id), shard -> new ArrayList<>())
+                            .add(id);
+                }
+            }
+            for (Map.Entry<Shard, List<String>> entry : routed.entrySet()) {
+                entry.getKey().store().removeAll(entry.getValue());
+            }
+        } finally {
+            splitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove content with metadata that matches a filter from all shards.
+     *
+     * @param filter Metadata filter
+     */
+    @Override
+    public void removeAll(Filter filter) {
+        ensureNotNull(filter, "filter");
+        forEachShard(store -> store.removeAll(filter));
+    }
+
+    /** Remove all content from all shards. */
+    @Override
+    public void removeAll() {
+        forEachShard(LuceneEmbeddingStore::removeAll);
+    }
+
+    /**
+     * Search all shards in parallel for content with embeddings nearest to the query embedding, and
+     * merge the top matches of each shard. Vector similarity scores do not depend on the rest of
+     * the index, so scores from different shards are comparable.
+     *
+     * @param request Search request
+     * @return Top matches across all shards
+     */
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        ensureNotNull(request, "request");
+        List<CompletableFuture<EmbeddingSearchResult<TextSegment>>> searches = new ArrayList<>();
+        for (Shard shard : shards) {
+            searches.add(CompletableFuture.supplyAsync(() -> shard.store().search(request), searchExecutor));
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (CompletableFuture<EmbeddingSearchResult<TextSegment>> search : searches) {
+            matches.addAll(search.join().matches());
+        }
+        matches.sort(
+                Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed());
+        if (matches.size() > request.maxResults()) {
+            matches = new ArrayList<>(matches.subList(0, request.maxResults()));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    /**
+     * Number of shards.
+     *
+     * @return Shard count
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Split a shard in two, moving content in the upper half of its range of id hashes to a new,
+     * empty shard. Writes wait while the shard is split, and searches continue. Moved content is
+     * re-indexed in the new shard, with embeddings at full precision. Searches may briefly see moved
+     * content in both shards, but never in neither.
+     *
+     * <p>The split is safe if the process stops part way. The range of the new shard is recorded
+     * only once all content is copied, and the reduced range of the split shard is recorded last,
+     * after moved content is removed from it. If the sharded embedding store is opened with both
+     * shards before the split shard records its reduced range, the split is completed then.
+     *
+     * @param shardIndex Position of the shard to split, in order of hash ranges
+     * @param newShard Empty Lucene embedding store on its own directory, which the sharded
+     *     embedding store takes ownership of
+     * @throws IOException On an exception reading the shard or recording the new ranges
+     */
+    public void split(int shardIndex, LuceneEmbeddingStore newShard) throws IOException {
+        ensureNotNull(newShard, "newShard");
+        splitLock.writeLock().lock();
+        try {
+            List<Shard> currentShards = shards;
+            ensureBetween(shardIndex, 0, currentShards.size() - 1, "shardIndex");
+            for (Shard shard : currentShards) {
+                if (shard.store() == newShard) {
+                    throw new IllegalArgumentException("New shard is already a shard");
+                }
+            }
+            if (newShard.documentCount() > 0) {
+                throw new IllegalArgumentException("New shard is not empty");
+            }
+            Shard shard = currentShards.get(shardIndex);
+            if (shard.end() - shard.start() < 2) {
+                throw new IllegalArgumentException("Shard cannot be split further");
+            }
+
+            long middle = shard.start() + (shard.end() - shard.start()) / 2;
+            Shard lower = new Shard(shard.start(), middle, shard.store());
+            Shard upper = new Shard(middle, shard.end(), newShard);
+            List<String> movedIds = copy(shard.store(), upper, newShard);
+            newShard.recordCommitData(IndexCommitData.SHARD_RANGE, upper.range());
+
+            // Route to and search the new shard before moved content is removed from the split shard
+            List<Shard> splitShards = new ArrayList<>(currentShards);
+            splitShards.set(shardIndex, lower);
+            splitShards.add(shardIndex + 1, upper);
+            shards = List.copyOf(splitShards);
+
+            if (!movedIds.isEmpty()) {
+                shard.store().removeAll(movedIds);
+            }
+            shard.store().recordCommitData(IndexCommitData.SHARD_RANGE, lower.range());
+            log.info(String.format(
+                    "Split shard <%d> into ranges <%s> and <%s>, moving <%d> documents",
+                    shardIndex, lower.range(), upper.range(), movedIds.size()));
+        } finally {
+            splitLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searcher over all shards, shared with content retrievers built on this sharded embedding
+     * store.
+     *
+     * @return Searcher provider
+     */
+    IndexSearcherProvider searcherProvider() {
+        return searcherProvider;
+    }
+
+    /**
+     * Copy content with id hashes in a range from a shard to another store.
+     *
+     * @param source Lucene embedding store of the shard being split
+     * @param range Range of id hashes to copy
+     * @param target Lucene embedding store to copy to
+     * @return Ids of copied content
+     * @throws IOException On an exception reading the shard
+     */
+    private List<String> copy(LuceneEmbeddingStore source, Shard range, LuceneEmbeddingStore target)
+            throws IOException {
+        List<String> movedIds = new ArrayList<>();
+        IndexSearcherProvider sourceProvider = source.searcherProvider();
+        sourceProvider.refresh();
+        IndexSearcher searcher = sourceProvider.acquire();
+        try {
+            StoredFields storedFields = searcher.storedFields();
+            DocumentLoader documentLoader = new DocumentLoader(
+                    searcher.getIndexReader(),
+                    storedFields,
+                    MetadataSchema.read(source.commitData()),
+                    CONTENT_FIELD_NAME,
+                    Set.of(ID_FIELD_NAME),
+                    null);
+
+            List<Integer> batch = new ArrayList<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int leafDoc = 0; leafDoc < leaf.reader().maxDoc(); leafDoc++) {
+                    if (liveDocs != null && !liveDocs.get(leafDoc)) {
+                        continue;
+                    }
+                    int doc = leaf.docBase + leafDoc;
+                    String id = documentLoader.stringValue(doc, ID_FIELD_NAME);
+                    if (id != null && range.contains(hash(id))) {
+                        batch.add(doc);
+                    }
+                    if (batch.size() == SPLIT_BATCH_SIZE) {
+                        movedIds.addAll(copyBatch(documentLoader, batch, target));
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                movedIds.addAll(copyBatch(documentLoader, batch, target));
+            }
+        } finally {
+            sourceProvider.release(searcher);
+        }
+        return movedIds;
+    }
+
+    /**
+     * Re-index a batch of documents in another store.
+     *
+     * @param documentLoader Loader for documents of the shard being split
+     * @param batch Documents, in increasing order
+     * @param target Lucene embedding store to copy to
+     * @return Ids of copied content
+     * @throws IOException On an exception reading the documents, or if they could not be indexed
+     */
+    private static List<String> copyBatch(
+            DocumentLoader documentLoader, List<Integer> batch, LuceneEmbeddingStore target) throws IOException {
+        int[] docs = batch.stream().mapToInt(Integer::intValue).toArray();
+        float[][] vectors = documentLoader.vectors(docs, EMBEDDING_FIELD_NAME);
+
+        List<String> ids = new ArrayList<>(docs.length);
+        List<Embedding> embeddings = new ArrayList<>(docs.length);
+        List<TextSegment> embedded = new ArrayList<>(docs.length);
+        for (int i = 0; i < docs.length; i++) {
+            Document document = documentLoader.document(docs[i]);
+            ids.add(document.get(ID_FIELD_NAME));
+            embeddings.add(vectors[i] == null ? null : Embedding.from(vectors[i]));
+            String content = document.get(CONTENT_FIELD_NAME);
+            if (isNullOrBlank(content)) {
+                embedded.add(null);
+            } else {
+                Metadata metadata = documentLoader.metadata(docs[i], document);
+                embedded.add(TextSegment.from(content, metadata));
+            }
+        }
+
+        if (target.indexAll(ids, embeddings, embedded) < 0) {
+            throw new IOException("Could not copy documents to the new shard");
+        }
+        return ids;
+    }
+
+    /**
+     * Run a write on all shards in parallel.
+     *
+     * @param write Write on a single shard
+     */
+    private void forEachShard(Consumer<LuceneEmbeddingStore> write) {
+        splitLock.readLock().lock();
+        try {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (Shard shard : shards) {
+                writes.add(CompletableFuture.runAsync(() -> write.accept(shard.store()), writeExecutor));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            splitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read the recorded ranges of id hashes of existing shards, or assign equal ranges to the
+     * shards of a new index.
+     *
+     * @param stores Lucene embedding stores of the shards
+     * @return Shards, in order of hash ranges
+     * @throws IOException On an exception recording ranges
+     */
+    private static List<Shard> readShards(List<LuceneEmbeddingStore> stores) throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        int recordedCount = 0;
+        for (LuceneEmbeddingStore store : stores) {
+            String recorded = store.commitData().get(IndexCommitData.SHARD_RANGE);
+            if (recorded != null) {
+                recordedCount = recordedCount + 1;
+                int separator = recorded.indexOf('-');
+                shards.add(new Shard(
+                        Long.parseLong(recorded.substring(0, separator)),
+                        Long.parseLong(recorded.substring(separator + 1)),
+                        store));
+            }
+        }
+
+        if (recordedCount == 0) {
+            for (int i = 0; i < stores.size(); i++) {
+                Shard shard =
+                        new Shard(HASH_COUNT * i / stores.size(), HASH_COUNT * (i + 1) / stores.size(), stores.get(i));
+                shard.store().recordCommitData(IndexCommitData.SHARD_RANGE, shard.range());
+                shards.add(shard);
+            }
+            return List.copyOf(shards);
+        }
+        if (recordedCount < stores.size()) {
+            throw new IllegalArgumentException("Some shards do not record a range of id hashes");
+        }
+
+        shards.sort(Comparator.comparingLong(Shard::start));
+        completeSplits(shards);
+        long expectedStart = 0;
+        for (Shard shard : shards) {
+            if (shard.start() != expectedStart || shard.end() <= shard.start()) {
+                throw new IllegalArgumentException(
+                        String.format("Shard ranges do not cover all id hashes, at <%s>", shard.range()));
+            }
+            expectedStart = shard.end();
+        }
+        if (expectedStart != HASH_COUNT) {
+            throw new IllegalArgumentException("Shard ranges do not cover all id hashes");
+        }
+        return List.copyOf(shards);
+    }
+
+    /**
+     * Complete splits that stopped after the new shard recorded its range, but before the split
+     * shard recorded its reduced range. The new shard owns the upper part of the range of the split
+     * shard, so content in that part is removed from the split shard, and its reduced range is
+     * recorded.
+     *
+     * @param shards Shards, in order of the start of their ranges, which are updated in place
+     * @throws IOException On an exception reading the split shard or recording its range
+     */
+    private static void completeSplits(List<Shard> shards) throws IOException {
+        for (int i = 1; i < shards.size(); i++) {
+            Shard split = shards.get(i - 1);
+            Shard upper = shards.get(i);
+            if (upper.start() > split.start() && upper.start() < split.end() && upper.end() == split.end()) {
+                Shard lower = new Shard(split.start(), upper.start(), split.store());
+                List<String> movedIds = ids(split.store(), upper);
+                if (!movedIds.isEmpty()) {
+                    split.store().removeAll(movedIds);
+                }
+                split.store().recordCommitData(IndexCommitData.SHARD_RANGE, lower.range());
+                shards.set(i - 1, lower);
+                log.warn(String.format(
+                        "Completed an interrupted split into ranges <%s> and <%s>, removing <%d> moved documents",
+                        lower.range(), upper.range(), movedIds.size()));
+            }
+        }
+    }
+
+    /**
+     * Ids of content with id hashes in a range.
+     *
+     * @param store Lucene embedding store of a shard
+     * @param range Range of id hashes
+     * @return Ids of content in the range
+     * @throws IOException On an exception reading the shard
+     */
+    private static List<String> ids(LuceneEmbeddingStore store, Shard range) throws IOException {
+        List<String> ids = new ArrayList<>();
+        IndexSearcherProvider provider = store.searcherProvider();
+        provider.refresh();
+        IndexSearcher searcher = provider.acquire();
+        try {
+            StoredFields storedFields = searcher.storedFields();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int leafDoc = 0; leafDoc < leaf.reader().maxDoc(); leafDoc++) {
+                    if (liveDocs != null && !liveDocs.get(leafDoc)) {
+                        continue;
+                    }
+                    String id = storedFields
+                            .document(leaf.docBase + leafDoc, Set.of(ID_FIELD_NAME))
+                            .get(ID_FIELD_NAME);
+                    if (id != null && range.contains(hash(id))) {
+                        ids.add(id);
+                    }
+                }
+            }
+        } finally {
+            provider.release(searcher);
+        }
+        return ids;
+    }
+
+    private static Shard shard(List<Shard> shards, String id) {
+        long hash = hash(id);
+        int low = 0;
+        int high = shards.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (shards.get(middle).start() <= hash) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return shards.get(low);
+    }
+
+    private static <T> T itemAt(List<T> items, int i) {
+        if (items == null || i >= items.size()) {
+            return null;
+        }
+        return items.get(i);
+    }
+}
@@ -0,0 +1,49 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Index searcher that searches groups of segments, called slices, concurrently on an executor. Both
+ * full-text queries and nearest neighbor vector queries are searched one task per slice. The
+ * searcher does not own the index reader. Slices are computed when first needed, and kept, so the
+ * searcher is reused for all queries on the same index reader.
+ */
+final class SlicedIndexSearcher extends IndexSearcher {
+
+    /** Default maximum number of documents in a slice, the same as the Lucene default. * */
+    static final int DEFAULT_MAX_DOCS_PER_SLICE = 250_000;
+
+    /** Default maximum number of segments in a slice, the same as the Lucene default. * */
+    static final int DEFAULT_MAX_SEGMENTS_PER_SLICE = 5;
+
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+
+    /**
+     * Create a searcher.
+     *
+     * @param reader Index reader, which is not closed by the searcher
+     * @param executor Executor for slices
+     * @param maxDocsPerSlice Maximum number of documents in a slice, unless a segment is larger
+     * @param maxSegmentsPerSlice Maximum number of segments in a slice
+     */
+    SlicedIndexSearcher(IndexReader reader, Executor executor, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        super(reader, ensureNotNull(executor, "executor"));
+        this.maxDocsPerSlice = ensureGreaterThanZero(maxDocsPerSlice, "maxDocsPerSlice");
+        this.maxSegmentsPerSlice = ensureGreaterThanZero(maxSegmentsPerSlice, "maxSegmentsPerSlice");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        // Called lazily from the superclass, so fields have been initialized
+        return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+    }
+}
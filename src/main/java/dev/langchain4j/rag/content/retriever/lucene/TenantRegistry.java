@@ -0,0 +1,651 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.Utils.randomUUID;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever.LuceneContentRetrieverBuilder;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Isolated collections of content for many tenants, with a bounded number of open indexes. In the
+ * directory mode, each tenant has its own directory, which is opened lazily when the tenant is first
+ * used, and its index writer and near-real-time reader are shared by all requests for the tenant.
+ * Tenants that are idle are closed, least recently used first, to limit open files and heap. In the
+ * shared-index mode, all tenants share one embedding store, and each tenant is a partition of it,
+ * with the tenant id recorded in a metadata field and applied as a pre-filter on every search.
+ * Content ids are scoped to a tenant, so content of one tenant is never replaced or removed through
+ * another tenant, even with the same ids.
+ */
+public final class TenantRegistry implements Closeable {
+
+    /** Builder for `TenantRegistry`. */
+    public static class TenantRegistryBuilder {
+
+        private UnaryOperator<LuceneContentRetrieverBuilder> contentRetrievers;
+        private Function<String, Directory> directories;
+        private Function<Directory, LuceneEmbeddingStore> embeddingStores;
+        private Duration idleTimeout;
+        private int maxOpenTenants;
+        private String partitionField;
+        private LuceneEmbeddingStore sharedStore;
+
+        private TenantRegistryBuilder() {
+            // Set defaults
+            contentRetrievers = UnaryOperator.identity();
+            embeddingStores = directory ->
+                    LuceneEmbeddingStore.builder().directory(directory).build();
+            idleTimeout = Duration.ZERO;
+            maxOpenTenants = 100;
+            partitionField = "tenant";
+        }
+
+        /**
+         * Build an instance of `TenantRegistry` using internal builder field values.
+         *
+         * @return New instance of `TenantRegistry`
+         */
+        public TenantRegistry build() {
+            return new TenantRegistry(
+                    contentRetrievers,
+                    directories,
+                    embeddingStores,
+                    idleTimeout,
+                    maxOpenTenants,
+                    partitionField,
+                    sharedStore);
+        }
+
+        /**
+         * Sets how content retrievers of tenants are configured, such as the embedding model and the
+         * maximum number of results. The embedding store is set by the registry. In the shared-index
+         * mode, a metadata filter that is set is combined with the partition of the tenant.
+         *
+         * @param contentRetrievers Settings applied to a new content retriever builder
+         * @return Builder
+         */
+        public TenantRegistryBuilder contentRetrievers(UnaryOperator<LuceneContentRetrieverBuilder> contentRetrievers) {
+            if (contentRetrievers == null) {
+                this.contentRetrievers = UnaryOperator.identity();
+            } else {
+                this.contentRetrievers = contentRetrievers;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the directory mode, where each tenant has its own directory. The registry closes a
+         * tenant's directory when the tenant is closed.
+         *
+         * @param directories Opens the directory of a tenant, given the tenant id
+         * @return Builder
+         */
+        public TenantRegistryBuilder directories(Function<String, Directory> directories) {
+            // Can be null
+            this.directories = directories;
+            return this;
+        }
+
+        /**
+         * Sets how embedding stores of tenants are opened in the directory mode. By default, they are
+         * opened with default settings.
+         *
+         * @param embeddingStores Opens the embedding store of a tenant on its directory
+         * @return Builder
+         */
+        public TenantRegistryBuilder embeddingStores(Function<Directory, LuceneEmbeddingStore> embeddingStores) {
+            ensureNotNull(embeddingStores, "embeddingStores");
+            this.embeddingStores = embeddingStores;
+            return this;
+        }
+
+        /**
+         * Sets how long a tenant can be idle before it is closed. If zero or null, tenants are
+         * closed only when there are more than the maximum number of open tenants, which is the
+         * default.
+         *
+         * @param idleTimeout Idle timeout
+         * @return Builder
+         */
+        public TenantRegistryBuilder idleTimeout(Duration idleTimeout) {
+            if (idleTimeout == null || idleTimeout.isNegative()) {
+                this.idleTimeout = Duration.ZERO;
+            } else {
+                this.idleTimeout = idleTimeout;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of open tenants. When another tenant is opened, the least recently
+         * used tenant that is not in use is closed.
+         *
+         * @param maxOpenTenants Maximum number of open tenants
+         * @return Builder
+         */
+        public TenantRegistryBuilder maxOpenTenants(int maxOpenTenants) {
+            if (maxOpenTenants > 0) {
+                this.maxOpenTenants = maxOpenTenants;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the metadata field with the tenant id in the shared-index mode.
+         *
+         * @param partitionField Metadata field name
+         * @return Builder
+         */
+        public TenantRegistryBuilder partitionField(String partitionField) {
+            this.partitionField = ensureNotBlank(partitionField, "partitionField");
+            return this;
+        }
+
+        /**
+         * Sets the shared-index mode, where all tenants share one embedding store. The registry takes
+         * ownership of the embedding store. Content ids need to be unique across tenants, as
+         * generated ids are.
+         *
+         * @param sharedStore Shared embedding store
+         * @return Builder
+         */
+        public TenantRegistryBuilder sharedStore(LuceneEmbeddingStore sharedStore) {
+            // Can be null
+            this.sharedStore = sharedStore;
+            return this;
+        }
+    }
+
+    /** Open index of a tenant, shared by all requests for the tenant. */
+    private static final class Tenant {
+
+        private final String tenantId;
+        private final CompletableFuture<Void> closed;
+        private int inFlight;
+        private long lastUsedNanos;
+        private Directory directory;
+        private LuceneEmbeddingStore embeddingStore;
+        private LuceneContentRetriever contentRetriever;
+
+        Tenant(String tenantId) {
+            this.tenantId = tenantId;
+            closed = new CompletableFuture<>();
+        }
+    }
+
+    /** Embedding store for a single tenant, which opens the tenant for each operation. */
+    private final class TenantEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+        private final String tenantId;
+
+        TenantEmbeddingStore(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String add(Embedding embedding) {
+            String id = randomUUID();
+            add(id, embedding);
+            return id;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void add(String id, Embedding embedding) {
+            addAll(List.of(id), Collections.singletonList(embedding), null);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String add(Embedding embedding, TextSegment textSegment) {
+            String id = randomUUID();
+            addAll(List.of(id), Collections.singletonList(embedding), Collections.singletonList(textSegment));
+            return id;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            List<String> ids = generateIds(embeddings.size());
+            addAll(ids, embeddings, null);
+            return ids;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+            List<TextSegment> partitioned = partition(tenantId, ids, embeddings, embedded);
+            withTenant(tenantId, tenant -> {
+                tenant.embeddingStore.indexAll(ids, embeddings, partitioned, partition(tenantId, null));
+                return null;
+            });
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void remove(String id) {
+            ensureNotBlank(id, "id");
+            removeAll(List.of(id));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void removeAll(Collection<String> ids) {
+            withTenant(tenantId, tenant -> {
+                tenant.embeddingStore.removeAll(ids, partition(tenantId, null));
+                return null;
+            });
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void removeAll(Filter filter) {
+            ensureNotNull(filter, "filter");
+            withTenant(tenantId, tenant -> {
+                tenant.embeddingStore.removeAll(partition(tenantId, filter));
+                return null;
+            });
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void removeAll() {
+            withTenant(tenantId, tenant -> {
+                if (sharedStore == null) {
+                    tenant.embeddingStore.removeAll();
+                } else {
+                    tenant.embeddingStore.removeAll(partitionFilter(tenantId));
+                }
+                return null;
+            });
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            ensureNotNull(request, "request");
+            EmbeddingSearchRequest tenantRequest = request;
+            if (sharedStore != null) {
+                tenantRequest = EmbeddingSearchRequest.builder()
+                        .queryEmbedding(request.queryEmbedding())
+                        .maxResults(request.maxResults())
+                        .minScore(request.minScore())
+                        .filter(partition(tenantId, request.filter()))
+                        .build();
+            }
+            EmbeddingSearchRequest searchRequest = tenantRequest;
+            return withTenant(tenantId, tenant -> tenant.embeddingStore.search(searchRequest));
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TenantRegistry.class);
+
+    /**
+     * Instantiate a builder for `TenantRegistry`.
+     *
+     * @return Builder for `TenantRegistry`
+     */
+    public static TenantRegistryBuilder builder() {
+        return new TenantRegistryBuilder();
+    }
+
+    private final UnaryOperator<LuceneContentRetrieverBuilder> contentRetrievers;
+    private final Function<String, Directory> directories;
+    private final Function<Directory, LuceneEmbeddingStore> embeddingStores;
+    private final long idleTimeoutNanos;
+    private final int maxOpenTenants;
+    private final String partitionField;
+    private final LuceneEmbeddingStore sharedStore;
+    private final ScheduledExecutorService evictionScheduler;
+    // Least recently used tenants first
+    private final LinkedHashMap<String, Tenant> tenants;
+    // Evicted tenants that are being closed
+    private final Map<String, Tenant> closingTenants;
+    private boolean closed;
+
+    /**
+     * Initialize all fields, and do one more round of validation (even though the builder has
+     * validated the fields).
+     *
+     * @param contentRetrievers Settings applied to content retriever builders
+     * @param directories Opens the directory of a tenant - can be null in the shared-index mode
+     * @param embeddingStores Opens the embedding store of a tenant on its directory
+     * @param idleTimeout Time before an idle tenant is closed, or zero to close tenants only when
+     *     there are too many
+     * @param maxOpenTenants Maximum number of open tenants
+     * @param partitionField Metadata field with the tenant id in the shared-index mode
+     * @param sharedStore Shared embedding store - can be null in the directory mode
+     */
+    private TenantRegistry(
+            UnaryOperator<LuceneContentRetrieverBuilder> contentRetrievers,
+            Function<String, Directory> directories,
+            Function<Directory, LuceneEmbeddingStore> embeddingStores,
+            Duration idleTimeout,
+            int maxOpenTenants,
+            String partitionField,
+            LuceneEmbeddingStore sharedStore) {
+        if ((directories == null) == (sharedStore == null)) {
+            throw new IllegalArgumentException("Either tenant directories or a shared store need to be set");
+        }
+        this.contentRetrievers = ensureNotNull(contentRetrievers, "contentRetrievers");
+        this.directories = directories; // Can be null
+        this.embeddingStores = ensureNotNull(embeddingStores, "embeddingStores");
+        this.maxOpenTenants = Math.max(1, maxOpenTenants);
+        this.partitionField = ensureNotBlank(partitionField, "partitionField");
+        this.sharedStore = sharedStore; // Can be null
+        tenants = new LinkedHashMap<>(16, 0.75f, true);
+        closingTenants = new HashMap<>();
+
+        if (ensureNotNull(idleTimeout, "idleTimeout").isZero()) {
+            idleTimeoutNanos = 0;
+            evictionScheduler = null;
+        } else {
+            idleTimeoutNanos = idleTimeout.toNanos();
+            long intervalMillis = Math.max(1, idleTimeout.toMillis() / 2);
+            evictionScheduler =
+                    Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("lucene-tenant-eviction"));
+            evictionScheduler.scheduleWithFixedDelay(
+                    this::evictIdle, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Close all open tenants, and the shared embedding store. Operations that are in progress are
+     * not waited for, but tenants that are being closed after eviction are.
+     *
+     * @throws IOException On an exception closing a tenant
+     */
+    @Override
+    public void close() throws IOException {
+        List<Tenant> open;
+        List<Tenant> closing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open = new ArrayList<>(tenants.values());
+            tenants.clear();
+            closing = new ArrayList<>(closingTenants.values());
+        }
+        if (evictionScheduler != null) {
+            evictionScheduler.shutdownNow();
+        }
+        for (Tenant tenant : closing) {
+            tenant.closed.join();
+        }
+        List<Closeable> closeables = new ArrayList<>();
+        for (Tenant tenant : open) {
+            closeables.addAll(closeables(tenant));
+        }
+        closeables.add(sharedStore);
+        IOUtils.close(closeables);
+    }
+
+    /**
+     * Content retriever for a tenant, which sees only the content of that tenant. The tenant is
+     * opened when a query needs it, and the content retriever keeps working after the tenant is
+     * closed for being idle.
+     *
+     * @param tenantId Tenant id
+     * @return Content retriever
+     */
+    public ContentRetriever contentRetriever(String tenantId) {
+        ensureNotBlank(tenantId, "tenantId");
+        return query -> withTenant(tenantId, tenant -> tenant.contentRetriever.retrieve(query));
+    }
+
+    /**
+     * Embedding store for a tenant, which sees only the content of that tenant. The tenant is opened
+     * when an operation needs it, and the embedding store keeps working after the tenant is closed
+     * for being idle. In the shared-index mode, content needs a text segment, since the tenant id is
+     * recorded in its metadata.
+     *
+     * @param tenantId Tenant id
+     * @return Embedding store
+     */
+    public EmbeddingStore<TextSegment> embeddingStore(String tenantId) {
+        ensureNotBlank(tenantId, "tenantId");
+        return new TenantEmbeddingStore(tenantId);
+    }
+
+    /**
+     * Number of tenants that are currently open.
+     *
+     * @return Open tenant count
+     */
+    public synchronized int openTenantCount() {
+        return tenants.size();
+    }
+
+    /**
+     * Run an operation on an open tenant, opening the tenant if needed. The tenant is not closed
+     * while the operation runs. Afterwards, tenants beyond the maximum number are closed.
+     *
+     * @param tenantId Tenant id
+     * @param operation Operation on the tenant
+     * @return Result of the operation
+     */
+    private <T> T withTenant(String tenantId, Function<Tenant, T> operation) {
+        Tenant tenant;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Tenant registry is closed");
+            }
+            tenant = tenants.computeIfAbsent(tenantId, Tenant::new);
+            tenant.inFlight = tenant.inFlight + 1;
+            tenant.lastUsedNanos = System.nanoTime();
+        }
+        try {
+            open(tenant);
+            return operation.apply(tenant);
+        } finally {
+            List<Tenant> evicted = new ArrayList<>();
+            synchronized (this) {
+                tenant.inFlight = tenant.inFlight - 1;
+                tenant.lastUsedNanos = System.nanoTime();
+                if (tenant.embeddingStore == null && tenant.inFlight == 0) {
+                    // Could not be opened
+                    tenants.remove(tenantId, tenant);
+                }
+                Iterator<Tenant> leastRecentlyUsed = tenants.values().iterator();
+                while (tenants.size() - evicted.size() > maxOpenTenants && leastRecentlyUsed.hasNext()) {
+                    Tenant candidate = leastRecentlyUsed.next();
+                    if (candidate.inFlight == 0) {
+                        leastRecentlyUsed.remove();
+                        evicted.add(candidate);
+                        closingTenants.put(candidate.tenantId, candidate);
+                    }
+                }
+            }
+            closeQuietly(evicted);
+        }
+    }
+
+    /**
+     * Open the directory, embedding store and content retriever of a tenant, unless it is already
+     * open. Requests for the same tenant wait for it to be opened. If the tenant was evicted and is
+     * still being closed, opening waits for it to be closed, since the directory of a tenant can only
+     * have one index writer at a time.
+     *
+     * @param tenant Tenant
+     */
+    private void open(Tenant tenant) {
+        synchronized (tenant) {
+            if (tenant.embeddingStore != null) {
+                return;
+            }
+            Tenant closingTenant;
+            synchronized (this) {
+                closingTenant = closingTenants.get(tenant.tenantId);
+            }
+            if (closingTenant != null) {
+                closingTenant.closed.join();
+            }
+            LuceneContentRetrieverBuilder builder = contentRetrievers.apply(LuceneContentRetriever.builder());
+            if (sharedStore != null) {
+                tenant.contentRetriever = builder.embeddingStore(sharedStore)
+                        .filter(partition(tenant.tenantId, builder.filter()))
+                        .build();
+                tenant.embeddingStore = sharedStore;
+                return;
+            }
+
+            Directory directory = ensureNotNull(directories.apply(tenant.tenantId), "directory");
+            LuceneEmbeddingStore embeddingStore = null;
+            try {
+                embeddingStore = ensureNotNull(embeddingStores.apply(directory), "embeddingStore");
+                tenant.contentRetriever = builder.embeddingStore(embeddingStore).build();
+            } catch (RuntimeException e) {
+                IOUtils.closeWhileHandlingException(embeddingStore, directory);
+                throw e;
+            }
+            tenant.directory = directory;
+            tenant.embeddingStore = embeddingStore;
+            log.debug(String.format("Opened tenant <%s>", tenant.tenantId));
+        }
+    }
+
+    /** Close tenants that have not been used for longer than the idle timeout. */
+    private void evictIdle() {
+        List<Tenant> evicted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            Iterator<Tenant> leastRecentlyUsed = tenants.values().iterator();
+            while (leastRecentlyUsed.hasNext()) {
+                Tenant tenant = leastRecentlyUsed.next();
+                if (tenant.inFlight == 0 && now - tenant.lastUsedNanos > idleTimeoutNanos) {
+                    leastRecentlyUsed.remove();
+                    evicted.add(tenant);
+                    closingTenants.put(tenant.tenantId, tenant);
+                }
+            }
+        }
+        closeQuietly(evicted);
+    }
+
+    /**
+     * Close evicted tenants, logging rather than throwing any exception. A tenant is kept as being
+     * closed until it is closed, so that it is not opened again in the meantime.
+     *
+     * @param evicted Evicted tenants
+     */
+    private void closeQuietly(List<Tenant> evicted) {
+        for (Tenant tenant : evicted) {
+            try {
+                IOUtils.close(closeables(tenant));
+                log.debug(String.format("Closed tenant <%s>", tenant.tenantId));
+            } catch (IOException | RuntimeException e) {
+                log.error(String.format("Could not close tenant <%s>", tenant.tenantId), e);
+            } finally {
+                synchronized (this) {
+                    closingTenants.remove(tenant.tenantId, tenant);
+                }
+                tenant.closed.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Resources of a tenant to close, in order. The shared embedding store is not closed with a
+     * tenant.
+     *
+     * @param tenant Tenant
+     * @return Resources, which may include nulls
+     */
+    private List<Closeable> closeables(Tenant tenant) {
+        synchronized (tenant) {
+            List<Closeable> closeables = new ArrayList<>();
+            closeables.add(tenant.contentRetriever);
+            if (sharedStore == null) {
+                closeables.add(tenant.embeddingStore);
+                closeables.add(tenant.directory);
+            }
+            return closeables;
+        }
+    }
+
+    /**
+     * Filter for the content of a tenant in the shared-index mode.
+     *
+     * @param tenantId Tenant id
+     * @return Filter on the partition field
+     */
+    private Filter partitionFilter(String tenantId) {
+        return metadataKey(partitionField).isEqualTo(tenantId);
+    }
+
+    /**
+     * Limit a filter to the content of a tenant in the shared-index mode.
+     *
+     * @param tenantId Tenant id
+     * @param filter Filter - can be null
+     * @return Filter for the tenant, or the filter unchanged in the directory mode
+     */
+    private Filter partition(String tenantId, Filter filter) {
+        if (sharedStore == null) {
+            return filter;
+        }
+        if (filter == null) {
+            return partitionFilter(tenantId);
+        }
+        return partitionFilter(tenantId).and(filter);
+    }
+
+    /**
+     * Record the tenant id in the metadata of content in the shared-index mode.
+     *
+     * @param tenantId Tenant id
+     * @param ids Content ids - can be null
+     * @param embeddings Content embeddings - can be null
+     * @param embedded Content - can be null
+     * @return Content with the tenant id in its metadata, or the content unchanged in the directory
+     *     mode
+     */
+    private List<TextSegment> partition(
+            String tenantId, List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (sharedStore == null) {
+            return embedded;
+        }
+        int size = Math.max(ids == null ? 0 : ids.size(), embeddings == null ? 0 : embeddings.size());
+        List<TextSegment> partitioned = new ArrayList<>();
+        for (int i = 0; i < Math.max(size, embedded == null ? 0 : embedded.size()); i++) {
+            TextSegment textSegment = embedded == null || i >= embedded.size() ? null : embedded.get(i);
+            if (textSegment == null) {
+                throw new IllegalArgumentException("Content needs a text segment to record its tenant");
+            }
+            partitioned.add(TextSegment.from(
+                    textSegment.text(), textSegment.metadata().copy().put(partitionField, tenantId)));
+        }
+        return partitioned;
+    }
+}
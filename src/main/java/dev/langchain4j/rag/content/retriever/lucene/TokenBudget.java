@@ -0,0 +1,166 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import java.util.Arrays;
+
+/**
+ * Chooses which of the top matching documents to return, so that they fit within a maximum number
+ * of documents and a maximum number of tokens. Documents are given in descending order of score,
+ * and are chosen using only their scores and token counts, so that content is loaded only for the
+ * documents that are returned.
+ */
+final class TokenBudget {
+
+    /**
+     * Maximum number of token buckets for a knapsack choice. Token counts are rounded up to buckets,
+     * so a choice never exceeds the maximum number of tokens.
+     */
+    static final int MAX_BUCKETS = 1_024;
+
+    /** Maximum size of the knapsack table, beyond which a greedy choice is made instead. * */
+    static final int MAX_TABLE_SIZE = 1_000_000;
+
+    /**
+     * Choose documents to return.
+     *
+     * @param strategy How to choose documents
+     * @param scores Scores of candidate documents, in descending order
+     * @param tokenCounts Token counts of candidate documents
+     * @param excluded Candidate documents that cannot be chosen
+     * @param maxResults Maximum number of documents
+     * @param maxTokens Maximum total number of tokens
+     * @return Indexes of chosen documents, in ascending order
+     */
+    static int[] choose(
+            TokenBudgetStrategy strategy,
+            float[] scores,
+            int[] tokenCounts,
+            boolean[] excluded,
+            int maxResults,
+            int maxTokens) {
+        int[] greedy = greedy(tokenCounts, excluded, maxResults, maxTokens);
+        if (strategy != TokenBudgetStrategy.KNAPSACK || maxTokens == Integer.MAX_VALUE) {
+            return greedy;
+        }
+        int[] knapsack = knapsack(scores, tokenCounts, excluded, maxResults, maxTokens);
+        if (knapsack == null) {
+            return greedy;
+        }
+        // Rounding token counts to buckets can make a knapsack choice slightly worse
+        return totalScore(scores, knapsack) > totalScore(scores, greedy) ? knapsack : greedy;
+    }
+
+    /**
+     * Take documents in order, skipping documents that do not fit in the tokens that are left.
+     *
+     * @param tokenCounts Token counts of candidate documents
+     * @param excluded Candidate documents that cannot be chosen
+     * @param maxResults Maximum number of documents
+     * @param maxTokens Maximum total number of tokens
+     * @return Indexes of chosen documents, in ascending order
+     */
+    static int[] greedy(int[] tokenCounts, boolean[] excluded, int maxResults, int maxTokens) {
+        int[] chosen = new int[Math.min(maxResults, tokenCounts.length)];
+        int count = 0;
+        long tokenCount = 0;
+        for (int i = 0; i < tokenCounts.length && count < chosen.length; i++) {
+            if (excluded[i] || tokenCount + tokenCounts[i] > maxTokens) {
+                // There may be smaller documents to come after this that we can accommodate
+                continue;
+            }
+            tokenCount = tokenCount + tokenCounts[i];
+            chosen[count] = i;
+            count = count + 1;
+        }
+        return Arrays.copyOf(chosen, count);
+    }
+
+    /**
+     * Choose the documents with the highest total score that fit, by solving a 0/1 knapsack problem
+     * over token buckets, with an additional limit on the number of documents.
+     *
+     * @param scores Scores of candidate documents
+     * @param tokenCounts Token counts of candidate documents
+     * @param excluded Candidate documents that cannot be chosen
+     * @param maxResults Maximum number of documents
+     * @param maxTokens Maximum total number of tokens
+     * @return Indexes of chosen documents, in ascending order, or null if the problem is too large
+     */
+    static int[] knapsack(float[] scores, int[] tokenCounts, boolean[] excluded, int maxResults, int maxTokens) {
+        int itemCount = tokenCounts.length;
+        int bucketSize = Math.max(1, (int) Math.ceil(maxTokens / (double) MAX_BUCKETS));
+        int capacity = maxTokens / bucketSize;
+        int[] weights = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            weights[i] = (int) Math.ceil(tokenCounts[i] / (double) bucketSize);
+        }
+
+        // Only track the number of documents if it is a real limit
+        boolean limitCount = maxResults < itemCount;
+        int counts = limitCount ? maxResults + 1 : 1;
+        if ((long) itemCount * counts * (capacity + 1) > MAX_TABLE_SIZE) {
+            return null;
+        }
+
+        double[][] best = new double[counts][capacity + 1];
+        for (int j = 1; j < counts; j++) {
+            Arrays.fill(best[j], Double.NEGATIVE_INFINITY);
+        }
+        boolean[][][] taken = new boolean[itemCount][counts][];
+        for (int i = 0; i < itemCount; i++) {
+            int weight = weights[i];
+            if (excluded[i] || weight > capacity) {
+                continue;
+            }
+            for (int j = limitCount ? Math.min(i + 1, maxResults) : 0; j >= (limitCount ? 1 : 0); j--) {
+                double[] from = best[limitCount ? j - 1 : j];
+                double[] to = best[j];
+                for (int c = capacity; c >= weight; c--) {
+                    double value = from[c - weight] + scores[i];
+                    if (value > to[c]) {
+                        to[c] = value;
+                        if (taken[i][j] == null) {
+                            taken[i][j] = new boolean[capacity + 1];
+                        }
+                        taken[i][j][c] = true;
+                    }
+                }
+            }
+        }
+
+        int bestCount = 0;
+        for (int j = 1; j < counts; j++) {
+            if (best[j][capacity] > best[bestCount][capacity]) {
+                bestCount = j;
+            }
+        }
+        int[] chosen = new int[itemCount];
+        int count = 0;
+        int j = bestCount;
+        int c = capacity;
+        for (int i = itemCount - 1; i >= 0; i--) {
+            if (taken[i][j] != null && taken[i][j][c]) {
+                chosen[count] = i;
+                count = count + 1;
+                c = c - weights[i];
+                if (limitCount) {
+                    j = j - 1;
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(chosen, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static double totalScore(float[] scores, int[] chosen) {
+        double total = 0;
+        for (int i : chosen) {
+            total = total + scores[i];
+        }
+        return total;
+    }
+
+    private TokenBudget() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,18 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * How the content retriever chooses matching documents to fit within the maximum number of tokens.
+ */
+public enum TokenBudgetStrategy {
+    /**
+     * Take documents in descending order of score, skipping documents that do not fit in the tokens
+     * that are left.
+     */
+    GREEDY,
+    /**
+     * Choose the set of documents with the highest total score that fits in the maximum number of
+     * tokens, even if that skips a high-scoring document that would leave little room for others.
+     * Results are still returned in descending order of score.
+     */
+    KNAPSACK;
+}
@@ -0,0 +1,25 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+/**
+ * Estimates the number of tokens in content when it is indexed. Token counts are stored with the
+ * content, and are used to limit the number of tokens returned by the content retriever. Use {@link
+ * TokenEstimatorFactory} to create instances.
+ */
+public interface TokenEstimator {
+
+    /**
+     * Estimate the number of tokens in text.
+     *
+     * @param text Text, can be null
+     * @return Estimated number of tokens, zero for null or empty text
+     */
+    int estimate(String text);
+
+    /**
+     * Stable name of the estimator, which is recorded in the index so that token counts from
+     * different estimators are not mixed unknowingly.
+     *
+     * @return Estimator name
+     */
+    String name();
+}
@@ -0,0 +1,131 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/** Static factory for token estimators. */
+public class TokenEstimatorFactory {
+
+    /** Name of the fast, approximate token estimator. * */
+    public static final String APPROXIMATE_NAME = "approximate";
+
+    /**
+     * Estimator for text that is not tokenized, but estimates tokens from character and word counts.
+     * It makes a single pass over the text without allocating memory, and is much faster than
+     * tokenizing. Counts are closest to exact encodings for English prose.
+     */
+    private static final class ApproximateTokenEstimator implements TokenEstimator {
+
+        private static final TokenEstimator INSTANCE = new ApproximateTokenEstimator();
+
+        /** {@inheritDoc} */
+        @Override
+        public int estimate(String text) {
+            if (text == null || text.isEmpty()) {
+                return 0;
+            }
+
+            int wordCount = 0;
+            int wordCharCount = 0;
+            int symbolCount = 0;
+            boolean inWord = false;
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (Character.isWhitespace(ch)) {
+                    inWord = false;
+                } else if (Character.isLetterOrDigit(ch) && !Character.isIdeographic(ch)) {
+                    wordCharCount = wordCharCount + 1;
+                    if (!inWord) {
+                        wordCount = wordCount + 1;
+                        inWord = true;
+                    }
+                } else {
+                    // Punctuation, symbols and ideographs are mostly tokens of their own
+                    symbolCount = symbolCount + 1;
+                    inWord = false;
+                }
+            }
+
+            // Average of about four characters per token, and about three tokens for every four words
+            double wordTokens = (wordCharCount / 4.0 + wordCount * 4.0 / 3.0) / 2.0;
+            return (int) Math.ceil(wordTokens) + symbolCount;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String name() {
+            return APPROXIMATE_NAME;
+        }
+    }
+
+    /** Estimator that counts tokens exactly, using a jtokkit encoding. */
+    private static final class EncodingTokenEstimator implements TokenEstimator {
+
+        private final Encoding encoding;
+        private final String name;
+
+        EncodingTokenEstimator(EncodingType encodingType) {
+            ensureNotNull(encodingType, "encodingType");
+            encoding = EncodingRegistryHolder.REGISTRY.getEncoding(encodingType);
+            name = "jtokkit:" + encodingType.getName();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int estimate(String text) {
+            if (text == null || text.isEmpty()) {
+                return 0;
+            }
+            // Count special tokens such as <|endoftext|> as ordinary text, rather than failing
+            return encoding.countTokensOrdinary(text);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    /** Loads the encoding registry only when an exact estimator is first needed. */
+    private static final class EncodingRegistryHolder {
+        private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+    }
+
+    /**
+     * Fast, approximate token estimator, based on character and word counts. Use this when indexing
+     * throughput matters more than exact token counts.
+     *
+     * @return Token estimator
+     */
+    public static TokenEstimator approximate() {
+        return ApproximateTokenEstimator.INSTANCE;
+    }
+
+    /**
+     * Exact token estimator for the CL100K encoding, which is the default.
+     *
+     * @return Token estimator
+     */
+    public static TokenEstimator cl100k() {
+        return encoding(EncodingType.CL100K_BASE);
+    }
+
+    /**
+     * Exact token estimator for a jtokkit encoding.
+     *
+     * @param encodingType Encoding type
+     * @return Token estimator
+     */
+    public static TokenEstimator encoding(EncodingType encodingType) {
+        return new EncodingTokenEstimator(encodingType);
+    }
+
+    private TokenEstimatorFactory() {
+        // Prevent instantiation
+    }
+}
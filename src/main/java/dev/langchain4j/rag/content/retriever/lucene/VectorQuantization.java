@@ -0,0 +1,51 @@
+package dev.langchain4j.rag.content.retriever.lucene;
+
+import java.util.concurrent.ExecutorService;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
+
+/**
+ * How embedding vectors are stored in the HNSW graph that is searched. Quantized vectors take a
+ * fraction of the memory of full-precision vectors, at some cost in recall. Full-precision vectors
+ * are always kept on disk as well, so that vectors can be re-quantized when segments are merged,
+ * and hits can be rescored.
+ *
+ * <p>Scores of quantized searches are approximate, and some true nearest neighbors may be missed.
+ * Set {@link LuceneEmbeddingStore.LuceneEmbeddingStoreBuilder#rescoreOversample(int)} to search for
+ * more hits and rescore them with full-precision vectors.
+ */
+public enum VectorQuantization {
+    /** Search full-precision 32-bit float vectors, which is the default. * */
+    NONE,
+    /**
+     * Search vectors scalar-quantized to one byte for each dimension, using 7 bits, which takes
+     * about a quarter of the memory.
+     */
+    INT8,
+    /**
+     * Search vectors scalar-quantized to half a byte for each dimension, which takes about an eighth
+     * of the memory. The number of dimensions must be even. A confidence interval is computed for
+     * each segment from its vectors, which is needed for good recall with 4 bits.
+     */
+    INT4;
+
+    /**
+     * Lucene vectors format for the quantization.
+     *
+     * @param maxConn Maximum number of connections of each node in the HNSW graph
+     * @param beamWidth Number of candidates tracked while building the HNSW graph
+     * @param mergeWorkers Number of threads that build the HNSW graph of a merged segment
+     * @param mergeExecutor Executor for merge threads, which is null if there is a single thread
+     * @return Vectors format
+     */
+    KnnVectorsFormat knnVectorsFormat(int maxConn, int beamWidth, int mergeWorkers, ExecutorService mergeExecutor) {
+        return switch (this) {
+            case NONE -> new Lucene99HnswVectorsFormat(maxConn, beamWidth, mergeWorkers, mergeExecutor);
+            case INT8 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    maxConn, beamWidth, mergeWorkers, 7, false, null, mergeExecutor);
+            case INT4 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    maxConn, beamWidth, mergeWorkers, 4, true, 0f, mergeExecutor);
+        };
+    }
+}
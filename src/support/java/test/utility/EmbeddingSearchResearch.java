@@ -138,6 +138,7 @@ public class EmbeddingSearchResearch {
 
   @AfterEach
   public void tearDown() throws Exception {
+    indexer.close();
     directory.close();
   }
 
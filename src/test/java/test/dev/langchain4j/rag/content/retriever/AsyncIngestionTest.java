@@ -0,0 +1,150 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.IngestionResult;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncIngestionTest {
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private LuceneContentRetriever contentRetriever;
+
+    @Test
+    public void addAllAsync() throws Exception {
+
+        List<TextSegment> textSegments = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            textSegments.add(TextSegment.from("Lucene segment number " + i));
+        }
+
+        List<CompletableFuture<IngestionResult>> futures = new ArrayList<>();
+        for (int i = 0; i < textSegments.size(); i = i + 100) {
+            futures.add(indexer.addAllAsync(null, null, textSegments.subList(i, i + 100)));
+        }
+
+        long generation = -1;
+        for (CompletableFuture<IngestionResult> future : futures) {
+            IngestionResult result = future.get();
+            assertThat(result.hasFailures()).isFalse();
+            assertThat(result.ids()).hasSize(100).doesNotContainNull();
+            generation = Math.max(generation, result.generation());
+        }
+
+        List<?> results = contentRetriever.retrieve(Query.from("lucene"), generation);
+        assertThat(results).hasSize(1_000);
+    }
+
+    @Test
+    public void addAllAsyncWithFailures() throws Exception {
+
+        indexer.add(Embedding.from(new float[] {1, 0, 0}), TextSegment.from("Three dimensions"));
+
+        // The index writer rejects an embedding with a different dimension
+        List<String> ids = Arrays.asList("a", "bad", "c");
+        List<Embedding> embeddings = Arrays.asList(
+                Embedding.from(new float[] {0, 1, 0}),
+                Embedding.from(new float[] {0, 1, 0, 0}),
+                Embedding.from(new float[] {0, 0, 1}));
+
+        IngestionResult result = indexer.addAllAsync(ids, embeddings, null).get();
+
+        assertThat(result.ids()).isEqualTo(ids);
+        assertThat(result.hasFailures()).isTrue();
+        assertThat(result.failures()).containsOnlyKeys(1);
+        assertThat(result.failures().get(1)).isInstanceOf(IllegalArgumentException.class);
+
+        List<String> matchedIds = indexer
+                .search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(Embedding.from(new float[] {0, 1, 1}))
+                        .maxResults(10)
+                        .build())
+                .matches()
+                .stream()
+                .map(EmbeddingMatch::embeddingId)
+                .toList();
+        assertThat(matchedIds).contains("a", "c").doesNotContain("bad");
+    }
+
+    @Test
+    public void closeDuringIngestionOfNewMetadataFields() throws Exception {
+
+        try (Directory directory = DirectoryFactory.heapDirectory(0)) {
+            LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                    .directory(directory)
+                    .commitInterval(Duration.ofMinutes(1))
+                    .refreshInterval(Duration.ofMinutes(1))
+                    .ingestionThreads(1)
+                    .build();
+
+            // Every segment adds a metadata field to the schema
+            List<TextSegment> textSegments = new ArrayList<>();
+            for (int i = 0; i < 3_000; i++) {
+                textSegments.add(TextSegment.from("Lucene segment number " + i, new Metadata().put("key" + i, i)));
+            }
+            List<CompletableFuture<IngestionResult>> futures = new ArrayList<>();
+            for (TextSegment textSegment : textSegments) {
+                futures.add(indexer.addAllAsync(null, null, List.of(textSegment)));
+            }
+
+            Thread.sleep(50);
+            CompletableFuture<Void> closed = CompletableFuture.runAsync(() -> {
+                try {
+                    indexer.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            closed.get(60, TimeUnit.SECONDS);
+            assertThat(futures).allMatch(CompletableFuture::isDone);
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                String schema = reader.getIndexCommit().getUserData().get("metadata-schema");
+                assertThat(schema.split("\n")).hasSize(reader.numDocs());
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .ingestionThreads(4)
+                .ingestionQueueSize(150)
+                .build();
+        contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .maxResults(2_000)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        contentRetriever.close();
+        indexer.close();
+        directory.close();
+    }
+}
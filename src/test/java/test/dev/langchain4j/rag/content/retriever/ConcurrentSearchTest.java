@@ -0,0 +1,127 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.HybridMode;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.SearchExecutors;
+import dev.langchain4j.rag.query.Query;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import test.dev.langchain4j.rag.content.retriever.utility.TextEmbedding;
+import test.dev.langchain4j.rag.content.retriever.utility.TextEmbeddingModel;
+
+public class ConcurrentSearchTest {
+
+    private static final TextEmbedding query =
+            new TextEmbedding("query", TextSegment.from("lucene"), Embedding.from(new float[] {1, 0}));
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private ExecutorService executorService;
+
+    @Test
+    public void sameResultsAsSequentialSearch() throws Exception {
+
+        AtomicInteger tasks = new AtomicInteger();
+        Executor countingExecutor = task -> {
+            tasks.incrementAndGet();
+            executorService.execute(task);
+        };
+
+        for (HybridMode hybridMode : HybridMode.values()) {
+            try (LuceneContentRetriever sequential = LuceneContentRetriever.builder()
+                            .embeddingStore(indexer)
+                            .embeddingModel(new TextEmbeddingModel(query))
+                            .hybridMode(hybridMode)
+                            .maxResults(15)
+                            .build();
+                    LuceneContentRetriever concurrent = LuceneContentRetriever.builder()
+                            .embeddingStore(indexer)
+                            .embeddingModel(new TextEmbeddingModel(query))
+                            .hybridMode(hybridMode)
+                            .maxResults(15)
+                            .searchExecutor(countingExecutor)
+                            .searchSlices(1, 1)
+                            .build()) {
+
+                List<String> expected = texts(sequential.retrieve(Query.from("lucene")));
+                assertThat(expected).hasSize(15);
+                assertThat(texts(concurrent.retrieve(Query.from("lucene")))).isEqualTo(expected);
+            }
+        }
+
+        assertThat(tasks.get()).isPositive();
+    }
+
+    @Test
+    public void seeWritesAfterReuse() throws Exception {
+
+        try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .maxResults(50)
+                .searchExecutor(executorService)
+                .searchSlices(1, 1)
+                .build()) {
+            // The concurrent searcher is reused for the same index reader, and replaced for a new one
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(30);
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(30);
+
+            indexer.add(TextSegment.from("Lucene segment added later"));
+            assertThat(texts(contentRetriever.retrieve(Query.from("lucene"))))
+                    .hasSize(31)
+                    .contains("Lucene segment added later");
+        }
+    }
+
+    @Test
+    public void virtualThreads() throws Exception {
+
+        ExecutorService virtualThreads = SearchExecutors.virtualThreads();
+        try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .searchExecutor(virtualThreads)
+                .build()) {
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(10);
+        } finally {
+            virtualThreads.shutdown();
+        }
+        assertThat(virtualThreads.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        // Every write is committed, so there are many small segments
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        for (int i = 0; i < 30; i++) {
+            String text = "Lucene segment number " + i + " of" + " lucene".repeat(i % 4);
+            indexer.add(Embedding.from(new float[] {1, i / 30f}), TextSegment.from(text));
+        }
+        executorService = SearchExecutors.fixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        executorService.shutdown();
+        indexer.close();
+        directory.close();
+    }
+
+    private List<String> texts(List<Content> results) {
+        return results.stream().map(content -> content.textSegment().text()).collect(Collectors.toList());
+    }
+}
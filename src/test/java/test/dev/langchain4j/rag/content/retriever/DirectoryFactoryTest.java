@@ -0,0 +1,126 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.NRTCachingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectoryFactoryTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void heapDirectory() throws Exception {
+
+        try (Directory directory = DirectoryFactory.heapDirectory(0);
+                LuceneEmbeddingStore indexer =
+                        LuceneEmbeddingStore.builder().directory(directory).build();
+                LuceneContentRetriever contentRetriever =
+                        LuceneContentRetriever.builder().embeddingStore(indexer).build()) {
+            indexer.add(TextSegment.from("Lucene indexes on the heap."));
+            assertThat(contentRetriever.retrieve(Query.from("heap"))).hasSize(1);
+        }
+    }
+
+    @Test
+    public void heapDirectoryLimit() throws Exception {
+
+        try (Directory directory = DirectoryFactory.heapDirectory(1)) {
+            try (IndexOutput output = directory.createOutput("large", IOContext.DEFAULT)) {
+                output.writeBytes(new byte[2 * 1024 * 1024], 2 * 1024 * 1024);
+            }
+            assertThatThrownBy(() -> directory.createOutput("more", IOContext.DEFAULT))
+                    .isInstanceOf(IOException.class);
+
+            // Commits can still be written, and deleting files frees space
+            directory.createOutput("pending_segments_1", IOContext.DEFAULT).close();
+            directory.rename("pending_segments_1", "segments_1");
+            directory.deleteFile("large");
+            directory.createOutput("more", IOContext.DEFAULT).close();
+        }
+    }
+
+    @Test
+    public void nrtCachingDirectory() throws Exception {
+
+        try (Directory directory =
+                        DirectoryFactory.nrtCachingDirectory(DirectoryFactory.fsDirectory(tempDir, "tim"), 5, 60);
+                LuceneEmbeddingStore indexer =
+                        LuceneEmbeddingStore.builder().directory(directory).build();
+                LuceneContentRetriever contentRetriever =
+                        LuceneContentRetriever.builder().embeddingStore(indexer).build()) {
+            assertThat(directory).isInstanceOf(NRTCachingDirectory.class);
+            indexer.add(TextSegment.from("Lucene caches small segments."));
+            assertThat(contentRetriever.retrieve(Query.from("segments"))).hasSize(1);
+        }
+
+        assertThatThrownBy(() -> DirectoryFactory.nrtCachingDirectory(DirectoryFactory.heapDirectory(0), 0, 60))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void tieredDirectory() throws Exception {
+
+        Path fastPath = tempDir.resolve("fast");
+        Path bulkPath = tempDir.resolve("bulk");
+        Set<String> fastExtensions = new HashSet<>(DirectoryFactory.VECTOR_EXTENSIONS);
+        fastExtensions.addAll(DirectoryFactory.TERM_DICTIONARY_EXTENSIONS);
+
+        try (Directory directory = DirectoryFactory.tieredDirectory(fastPath, bulkPath, fastExtensions)) {
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+            config.setUseCompoundFile(false);
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                Document document = new Document();
+                document.add(new TextField("content", "Lucene places files by type.", Store.YES));
+                document.add(new KnnFloatVectorField("embedding", new float[] {1, 0, 0}));
+                writer.addDocument(document);
+                writer.commit();
+            }
+        }
+
+        assertThat(extensions(fastPath)).contains("vec", "vex", "tim", "tip").doesNotContain("fdt");
+        assertThat(extensions(bulkPath)).contains("fdt").doesNotContain("vec", "tim");
+        assertThat(fileNames(bulkPath)).anyMatch(fileName -> fileName.startsWith("segments_"));
+
+        assertThatThrownBy(() -> DirectoryFactory.tieredDirectory(fastPath, fastPath, fastExtensions))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> fileNames(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+
+    private static List<String> extensions(Path path) throws IOException {
+        return fileNames(path).stream()
+                .filter(fileName -> fileName.contains("."))
+                .map(fileName -> fileName.substring(fileName.lastIndexOf('.') + 1))
+                .toList();
+    }
+}
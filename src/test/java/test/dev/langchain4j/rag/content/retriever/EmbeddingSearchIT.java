@@ -106,6 +106,9 @@ public class EmbeddingSearchIT {
 
     @AfterEach
     public void tearDown() throws Exception {
+        if (indexer != null) {
+            indexer.close();
+        }
         directory.close();
     }
 
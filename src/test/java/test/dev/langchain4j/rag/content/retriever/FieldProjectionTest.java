@@ -0,0 +1,93 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FieldProjectionTest {
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private String id;
+
+    @Test
+    public void allMetadata() throws Exception {
+
+        try (LuceneContentRetriever contentRetriever =
+                LuceneContentRetriever.builder().embeddingStore(indexer).build()) {
+            List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+            assertThat(results).hasSize(1);
+            assertThat(results.get(0).textSegment().metadata().toMap())
+                    .containsKeys("id", "author", "year", "notes")
+                    .containsEntry("year", 2020);
+        }
+    }
+
+    @Test
+    public void idsAndScoresOnly() {
+
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                .build();
+        List<EmbeddingMatch<TextSegment>> matches = indexer.searchIds(request).matches();
+
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).embeddingId()).isEqualTo(id);
+        assertThat(matches.get(0).score()).isPositive();
+        assertThat(matches.get(0).embedded()).isNull();
+    }
+
+    @Test
+    public void selectedMetadata() throws Exception {
+
+        try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .metadataFields("author", "year")
+                .build()) {
+            List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+            assertThat(results).hasSize(1);
+            assertThat(results.get(0).textSegment().text()).isEqualTo("Lucene in action");
+            assertThat(results.get(0).textSegment().metadata().toMap())
+                    .containsOnly(Map.entry("author", "Erik"), Map.entry("year", 2020));
+        }
+
+        try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .metadataFields()
+                .maxTokens(10)
+                .build()) {
+            List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+            assertThat(results).hasSize(1);
+            assertThat(results.get(0).textSegment().metadata().toMap()).isEmpty();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        Metadata metadata = Metadata.from(Map.of("author", "Erik", "year", 2020, "notes", "Notes ".repeat(1_000)));
+        id = indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene in action", metadata));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+}
@@ -242,6 +242,12 @@ public class FullTextSearchIT {
 
     @AfterEach
     public void tearDown() throws Exception {
+        if (contentRetriever != null) {
+            contentRetriever.close();
+        }
+        if (indexer != null) {
+            indexer.close();
+        }
         directory.close();
     }
 }
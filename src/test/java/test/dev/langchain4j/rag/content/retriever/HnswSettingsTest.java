@@ -0,0 +1,101 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HnswSettingsTest {
+
+    private Directory directory;
+
+    @Test
+    public void invalidSettings() throws Exception {
+        assertThatThrownBy(() -> LuceneEmbeddingStore.builder()
+                        .directory(directory)
+                        .hnswMaxConnections(10_000)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // The index is not left locked
+        LuceneEmbeddingStore.builder().directory(directory).build().close();
+    }
+
+    @Test
+    public void mergeWithExecutor() throws Exception {
+
+        ThreadPoolExecutor mergeExecutor =
+                new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        Random random = new Random(42);
+        float[][] vectors = new float[40][16];
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .hnswMaxConnections(8)
+                .hnswBeamWidth(50)
+                .mergeWorkers(2)
+                .mergeExecutor(mergeExecutor)
+                .build()) {
+            // Every write is committed as a separate segment, so segments are merged
+            for (int i = 0; i < vectors.length; i++) {
+                for (int j = 0; j < vectors[i].length; j++) {
+                    vectors[i][j] = random.nextFloat() * 2 - 1;
+                }
+                indexer.add(String.valueOf(i), Embedding.from(vectors[i]), TextSegment.from("Vector number " + i));
+            }
+
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(vectors[3]))
+                    .maxResults(3)
+                    .build();
+            List<EmbeddingMatch<TextSegment>> matches = indexer.search(request).matches();
+            assertThat(matches).hasSize(3);
+            assertThat(matches.get(0).embeddingId()).isEqualTo("3");
+        }
+
+        assertThat(mergeExecutor.getCompletedTaskCount()).isPositive();
+        // An executor that is provided is not shut down
+        assertThat(mergeExecutor.isShutdown()).isFalse();
+        mergeExecutor.shutdown();
+    }
+
+    @Test
+    public void ownedMergeExecutor() throws Exception {
+
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .mergeWorkers(2)
+                .build()) {
+            indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene"));
+            indexer.add(Embedding.from(new float[] {0, 1}), TextSegment.from("Search"));
+            assertThat(indexer.search(EmbeddingSearchRequest.builder()
+                                    .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                                    .build())
+                            .matches())
+                    .hasSize(2);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directory.close();
+    }
+}
@@ -0,0 +1,99 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.HybridMode;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import test.dev.langchain4j.rag.content.retriever.utility.TextEmbedding;
+import test.dev.langchain4j.rag.content.retriever.utility.TextEmbeddingModel;
+
+public class HybridFusionTest {
+
+    private static final String TEXT_MATCH = "Lucene, Lucene and more Lucene";
+    private static final String BOTH_MATCH = "Lucene is a search library";
+    private static final String VECTOR_MATCH = "Nothing to do with full-text search";
+
+    private static final TextEmbedding query =
+            new TextEmbedding("query", TextSegment.from("lucene"), Embedding.from(new float[] {1, 0}));
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private LuceneContentRetriever contentRetriever;
+
+    @Test
+    public void reciprocalRankFusion() {
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(new TextEmbeddingModel(query))
+                .hybridMode(HybridMode.RECIPROCAL_RANK_FUSION)
+                .vectorMaxResults(2)
+                .build();
+
+        List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+
+        // Ranked second in both searches, which beats being ranked first in only one
+        assertThat(texts(results)).hasSize(3).startsWith(BOTH_MATCH);
+        assertThat((double) results.get(0).metadata().get(ContentMetadata.SCORE))
+                .isCloseTo(2.0 / 62, within(0.0001));
+    }
+
+    @Test
+    public void weightedScores() throws Exception {
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(new TextEmbeddingModel(query))
+                .hybridMode(HybridMode.WEIGHTED_SCORES)
+                .vectorWeight(0)
+                .minScore(0.01)
+                .build();
+        assertThat(texts(contentRetriever.retrieve(Query.from("lucene")))).containsExactly(TEXT_MATCH, BOTH_MATCH);
+        contentRetriever.close();
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(new TextEmbeddingModel(query))
+                .hybridMode(HybridMode.WEIGHTED_SCORES)
+                .fullTextWeight(0)
+                .build();
+        assertThat(texts(contentRetriever.retrieve(Query.from("lucene"))))
+                .containsExactly(VECTOR_MATCH, BOTH_MATCH, TEXT_MATCH);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        indexer.add(Embedding.from(new float[] {0, 1}), TextSegment.from(TEXT_MATCH));
+        indexer.add(Embedding.from(new float[] {1, 0.2f}), TextSegment.from(BOTH_MATCH));
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from(VECTOR_MATCH));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (contentRetriever != null) {
+            contentRetriever.close();
+        }
+        indexer.close();
+        directory.close();
+    }
+
+    private List<String> texts(List<Content> results) {
+        return results.stream().map(content -> content.textSegment().text()).collect(Collectors.toList());
+    }
+}
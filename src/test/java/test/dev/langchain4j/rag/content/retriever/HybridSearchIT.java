@@ -119,6 +119,12 @@ public class HybridSearchIT {
 
     @AfterEach
     public void tearDown() throws Exception {
+        if (contentRetriever != null) {
+            contentRetriever.close();
+        }
+        if (indexer != null) {
+            indexer.close();
+        }
         directory.close();
     }
 
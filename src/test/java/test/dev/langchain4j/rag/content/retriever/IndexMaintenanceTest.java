@@ -0,0 +1,75 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.MaintenanceProgress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IndexMaintenanceTest {
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+
+    @Test
+    public void expungeDeletes() throws Exception {
+
+        indexer.forceMerge(1, null).get();
+        indexer.removeAll(Arrays.asList("0", "1", "2", "3", "4"));
+
+        MaintenanceProgress progress = indexer.expungeDeletes(null).get();
+        assertThat(progress.done()).isTrue();
+        assertThat(progress.documentCount()).isEqualTo(25);
+        assertThat(progress.deletedDocumentCount()).isZero();
+    }
+
+    @Test
+    public void forceMerge() throws Exception {
+
+        List<MaintenanceProgress> reported = new CopyOnWriteArrayList<>();
+        MaintenanceProgress progress = indexer.forceMerge(1, reported::add).get();
+
+        assertThat(progress.done()).isTrue();
+        assertThat(progress.segmentCount()).isEqualTo(1);
+        assertThat(progress.documentCount()).isEqualTo(30);
+        assertThat(reported).isNotEmpty().last().isSameAs(progress);
+    }
+
+    @Test
+    public void invalidMergePolicy() {
+        assertThatThrownBy(() -> LuceneEmbeddingStore.builder()
+                        .directory(directory)
+                        .mergeSegmentsPerTier(1)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .mergeSegmentsPerTier(50)
+                .build();
+        // Every write is committed as a separate segment
+        for (int i = 0; i < 30; i++) {
+            indexer.add(String.valueOf(i), Embedding.from(new float[] {1, i}), TextSegment.from("Segment " + i));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+}
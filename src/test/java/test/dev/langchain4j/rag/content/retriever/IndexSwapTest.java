@@ -0,0 +1,205 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.IndexAlias;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IndexSwapTest {
+
+    private Directory oldDirectory;
+    private Directory newDirectory;
+
+    @Test
+    public void invalidSwap() throws Exception {
+
+        LuceneEmbeddingStore oldStore =
+                LuceneEmbeddingStore.builder().directory(oldDirectory).build();
+        IndexAlias indexAlias = IndexAlias.from(oldStore);
+
+        assertThatThrownBy(() -> indexAlias.swap(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> indexAlias.swap(oldStore)).isInstanceOf(IllegalArgumentException.class);
+
+        indexAlias.close();
+        LuceneEmbeddingStore newStore =
+                LuceneEmbeddingStore.builder().directory(newDirectory).build();
+        assertThatThrownBy(() -> indexAlias.swap(newStore)).isInstanceOf(IllegalStateException.class);
+        newStore.close();
+    }
+
+    @Test
+    public void closeWhileQueryIsInProgress() throws Exception {
+
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch embedded = new CountDownLatch(1);
+        EmbeddingModel blockingEmbeddingModel = new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                queryStarted.countDown();
+                try {
+                    embedded.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Response.from(textSegments.stream()
+                        .map(textSegment -> Embedding.from(new float[] {1, 0}))
+                        .collect(Collectors.toList()));
+            }
+        };
+
+        LuceneEmbeddingStore store =
+                LuceneEmbeddingStore.builder().directory(oldDirectory).build();
+        store.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene indexes the old generation."));
+        IndexAlias indexAlias = IndexAlias.from(store);
+        try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                .indexAlias(indexAlias)
+                .embeddingModel(blockingEmbeddingModel)
+                .build()) {
+            CompletableFuture<List<Content>> results =
+                    CompletableFuture.supplyAsync(() -> contentRetriever.retrieve(Query.from("generation")));
+            assertThat(queryStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The embedding store stays open for the query in progress
+            indexAlias.close();
+            assertThatThrownBy(() -> oldDirectory.obtainLock(IndexWriter.WRITE_LOCK_NAME))
+                    .isInstanceOf(LockObtainFailedException.class);
+
+            embedded.countDown();
+            assertThat(texts(results.get(10, TimeUnit.SECONDS))).containsExactly("Lucene indexes the old generation.");
+        }
+
+        // The embedding store is closed once the query completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try (Lock writeLock = oldDirectory.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+                writeLock.ensureValid();
+                break;
+            } catch (LockObtainFailedException e) {
+                assertThat(System.nanoTime()).isLessThan(deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void swap() throws Exception {
+
+        LuceneEmbeddingStore oldStore =
+                LuceneEmbeddingStore.builder().directory(oldDirectory).build();
+        oldStore.add(TextSegment.from("Lucene indexes the old generation."));
+
+        try (IndexAlias indexAlias = IndexAlias.from(oldStore);
+                LuceneContentRetriever contentRetriever =
+                        LuceneContentRetriever.builder().indexAlias(indexAlias).build()) {
+
+            assertThat(texts(contentRetriever.retrieve(Query.from("generation"))))
+                    .containsExactly("Lucene indexes the old generation.");
+
+            // Build the new generation on a side directory, while the old one keeps serving
+            LuceneEmbeddingStore newStore =
+                    LuceneEmbeddingStore.builder().directory(newDirectory).build();
+            newStore.add(TextSegment.from("Lucene indexes the new generation."));
+            newStore.add(TextSegment.from("Lucene rebuilds every generation."));
+            assertThat(texts(contentRetriever.retrieve(Query.from("generation"))))
+                    .containsExactly("Lucene indexes the old generation.");
+
+            indexAlias.swap(newStore).get(10, TimeUnit.SECONDS);
+
+            assertThat(indexAlias.swapCount()).isEqualTo(1);
+            assertThat(indexAlias.embeddingStore()).isSameAs(newStore);
+            assertThat(texts(contentRetriever.retrieve(Query.from("generation"))))
+                    .containsExactlyInAnyOrder(
+                            "Lucene indexes the new generation.", "Lucene rebuilds every generation.");
+
+            // The previous embedding store is closed, and releases its index writer
+            try (Lock writeLock = oldDirectory.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+                writeLock.ensureValid();
+            }
+        }
+    }
+
+    @Test
+    public void swapWhileQueriesAreInProgress() throws Exception {
+
+        LuceneEmbeddingStore oldStore =
+                LuceneEmbeddingStore.builder().directory(oldDirectory).build();
+        for (int i = 0; i < 100; i++) {
+            oldStore.add(TextSegment.from("Lucene segment number " + i));
+        }
+
+        try (IndexAlias indexAlias = IndexAlias.from(oldStore);
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .indexAlias(indexAlias)
+                        .maxResults(1_000)
+                        .build()) {
+
+            Thread[] threads = new Thread[4];
+            int[][] counts = new int[threads.length][50];
+            for (int t = 0; t < threads.length; t++) {
+                final int[] threadCounts = counts[t];
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < threadCounts.length; i++) {
+                        threadCounts[i] =
+                                contentRetriever.retrieve(Query.from("lucene")).size();
+                    }
+                });
+                threads[t].start();
+            }
+
+            LuceneEmbeddingStore newStore =
+                    LuceneEmbeddingStore.builder().directory(newDirectory).build();
+            for (int i = 0; i < 200; i++) {
+                newStore.add(TextSegment.from("Lucene segment number " + i));
+            }
+            indexAlias.swap(newStore).get(10, TimeUnit.SECONDS);
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // Every query sees one complete generation or the other
+            for (int[] threadCounts : counts) {
+                for (int count : threadCounts) {
+                    assertThat(count).isIn(100, 200);
+                }
+            }
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(200);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        oldDirectory = DirectoryFactory.tempDirectory();
+        newDirectory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        oldDirectory.close();
+        newDirectory.close();
+    }
+
+    private static List<String> texts(List<Content> results) {
+        return results.stream().map(content -> content.textSegment().text()).toList();
+    }
+}
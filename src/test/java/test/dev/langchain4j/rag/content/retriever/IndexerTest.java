@@ -10,8 +10,12 @@ import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
 import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
 import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
 import dev.langchain4j.rag.query.Query;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.lucene.store.Directory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -85,6 +89,33 @@ public class IndexerTest {
         assertThat(results.get(0).textSegment().text()).isEqualTo(textSegment.text());
     }
 
+    @Test
+    public void addFromConcurrentThreads() throws Exception {
+
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(executor.submit(() -> indexer.add(textSegment)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .directory(directory)
+                .maxResults(100)
+                .build();
+        List<Content> results = contentRetriever.retrieve(query);
+
+        assertThat(results).hasSize(50);
+    }
+
     @Test
     public void addStringEmbedding() {
 
@@ -120,6 +151,12 @@ public class IndexerTest {
 
     @AfterEach
     public void tearDown() throws Exception {
+        if (contentRetriever != null) {
+            contentRetriever.close();
+        }
+        if (indexer != null) {
+            indexer.close();
+        }
         directory.close();
     }
 }
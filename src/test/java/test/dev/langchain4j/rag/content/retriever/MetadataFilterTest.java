@@ -0,0 +1,113 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.HybridMode;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MetadataFilterTest {
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+
+    @Test
+    public void comparisons() {
+
+        assertThat(search(metadataKey("category").isEqualTo("book"))).containsExactlyInAnyOrder("d1", "d2");
+        assertThat(search(metadataKey("category").isIn("video", "audio"))).containsExactlyInAnyOrder("d3", "d4");
+        assertThat(search(metadataKey("category").isNotIn("video", "audio"))).containsExactlyInAnyOrder("d1", "d2");
+        assertThat(search(metadataKey("year").isGreaterThan(2019))).containsExactlyInAnyOrder("d2", "d3");
+        assertThat(search(metadataKey("year").isLessThan(2022))).containsExactlyInAnyOrder("d1", "d2");
+        assertThat(search(metadataKey("year").isIn(2019, 2022))).containsExactlyInAnyOrder("d1", "d3");
+        assertThat(search(metadataKey("price")
+                        .isGreaterThanOrEqualTo(5.0)
+                        .and(metadataKey("price").isLessThan(25.5))))
+                .containsExactlyInAnyOrder("d1", "d3");
+    }
+
+    @Test
+    public void logicalOperators() {
+
+        assertThat(search(metadataKey("year")
+                        .isLessThanOrEqualTo(2021)
+                        .and(metadataKey("category").isEqualTo("book"))))
+                .containsExactlyInAnyOrder("d1", "d2");
+        assertThat(search(metadataKey("year")
+                        .isEqualTo(2019)
+                        .or(metadataKey("category").isEqualTo("audio"))))
+                .containsExactlyInAnyOrder("d1", "d4");
+        // Documents without the key are included, as with LangChain4J filters
+        assertThat(search(new Not(metadataKey("year").isEqualTo(2019)))).containsExactlyInAnyOrder("d2", "d3", "d4");
+        assertThat(search(metadataKey("year").isNotEqualTo(2019))).containsExactlyInAnyOrder("d2", "d3", "d4");
+    }
+
+    @Test
+    public void retrieverFilter() throws Exception {
+
+        for (HybridMode hybridMode : HybridMode.values()) {
+            try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                    .embeddingStore(indexer)
+                    .hybridMode(hybridMode)
+                    .filter(metadataKey("category").isEqualTo("book"))
+                    .build()) {
+                List<String> texts = contentRetriever.retrieve(Query.from("lucene")).stream()
+                        .map(content -> name(content.textSegment()))
+                        .collect(Collectors.toList());
+                assertThat(texts).containsExactlyInAnyOrder("d1", "d2");
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        add("d1", Map.of("category", "book", "year", 2019, "price", 10.0));
+        add("d2", Map.of("category", "book", "year", 2021, "price", 25.5));
+        add("d3", Map.of("category", "video", "year", 2022, "price", 5.0));
+        add("d4", Map.of("category", "audio"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+
+    private void add(String text, Map<String, Object> metadata) {
+        // Every document matches the query, so that only the filter decides
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from(text + " lucene", Metadata.from(metadata)));
+    }
+
+    private String name(TextSegment textSegment) {
+        return textSegment.text().split(" ")[0];
+    }
+
+    private List<String> search(Filter filter) {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                .filter(filter)
+                .maxResults(10)
+                .build();
+        return indexer.search(request).matches().stream()
+                .map(match -> name(match.embedded()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,142 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.MetadataFieldType;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MetadataSchemaTest {
+
+    private Directory directory;
+
+    @Test
+    public void declaredTypes() throws Exception {
+
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .metadataField("year", MetadataFieldType.LONG)
+                .metadataField("rating", MetadataFieldType.FLOAT)
+                .build()) {
+            add(indexer, Map.of("year", 2019, "rating", "4.5", "category", "book"));
+            add(indexer, Map.of("year", "2021", "rating", 3, "category", "video"));
+
+            List<EmbeddingMatch<TextSegment>> matches =
+                    search(indexer, metadataKey("year").isEqualTo(2019));
+            assertThat(matches).hasSize(1);
+            Metadata metadata = matches.get(0).embedded().metadata();
+            assertThat(metadata.getLong("year")).isEqualTo(2019L);
+            assertThat(metadata.getFloat("rating")).isEqualTo(4.5f);
+            assertThat(metadata.getString("category")).isEqualTo("book");
+
+            assertThat(search(indexer, metadataKey("rating").isLessThan(4))).hasSize(1);
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertThat(reader.getIndexCommit().getUserData().get("metadata-schema"))
+                    .isEqualTo("category=KEYWORD\nrating=FLOAT\nyear=LONG");
+            FieldInfos fieldInfos = FieldInfos.getMergedFieldInfos(reader);
+            assertThat(fieldInfos.fieldInfo("category").getDocValuesType()).isEqualTo(DocValuesType.SORTED_SET);
+            assertThat(fieldInfos.fieldInfo("year").getDocValuesType()).isEqualTo(DocValuesType.SORTED_NUMERIC);
+        }
+    }
+
+    @Test
+    public void dynamicTypesAreFixed() throws Exception {
+
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            add(indexer, Map.of("year", 2019));
+        }
+
+        // Types are recorded in the index, and apply after it is reopened
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            add(indexer, Map.of("year", "2020"));
+
+            List<EmbeddingMatch<TextSegment>> matches =
+                    search(indexer, metadataKey("year").isGreaterThan(2019L));
+            assertThat(matches).hasSize(1);
+            assertThat(matches.get(0).embedded().metadata().getInteger("year")).isEqualTo(2020);
+        }
+    }
+
+    @Test
+    public void keywordsWithoutDocValues() throws Exception {
+
+        // An index written before keywords had doc values
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document document = new Document();
+            document.add(new TextField("content", "lucene", Store.YES));
+            document.add(new StringField("category", "book", Store.YES));
+            writer.addDocument(document);
+        }
+
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            add(indexer, Map.of("category", "book"));
+
+            // The document written before has no embedding, so search full text
+            try (LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                    .embeddingStore(indexer)
+                    .filter(metadataKey("category").isEqualTo("book"))
+                    .build()) {
+                List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+                assertThat(results).hasSize(2);
+                for (Content content : results) {
+                    assertThat(content.textSegment().metadata().getString("category"))
+                            .isEqualTo("book");
+                }
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directory.close();
+    }
+
+    private void add(LuceneEmbeddingStore indexer, Map<String, Object> metadata) {
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("lucene", Metadata.from(metadata)));
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(LuceneEmbeddingStore indexer, Filter filter) {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                .filter(filter)
+                .maxResults(10)
+                .build();
+        return indexer.search(request).matches();
+    }
+}
@@ -0,0 +1,205 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneMetrics;
+import dev.langchain4j.rag.content.retriever.lucene.MetricsStage;
+import dev.langchain4j.rag.content.retriever.lucene.MicrometerMetrics;
+import dev.langchain4j.rag.content.retriever.lucene.QueryEmbeddingCache;
+import dev.langchain4j.rag.content.retriever.lucene.RetrievalResultCache;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void stages() throws Exception {
+
+        Map<MetricsStage, AtomicInteger> stageCounts = new ConcurrentHashMap<>();
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger budgetSkipped = new AtomicInteger();
+        LuceneMetrics metrics = new LuceneMetrics() {
+            @Override
+            public void countBudgetSkipped(int skipped) {
+                budgetSkipped.addAndGet(skipped);
+            }
+
+            @Override
+            public void countHits(int count) {
+                hits.addAndGet(count);
+            }
+
+            @Override
+            public void recordTime(MetricsStage stage, long nanos) {
+                assertThat(nanos).isNotNegative();
+                stageCounts.computeIfAbsent(stage, key -> new AtomicInteger()).incrementAndGet();
+            }
+        };
+
+        try (Directory directory = DirectoryFactory.heapDirectory(0);
+                LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                        .directory(directory)
+                        .metrics(metrics)
+                        .build();
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .embeddingStore(indexer)
+                        .maxResults(3)
+                        .maxTokens(12)
+                        .metrics(metrics)
+                        .build()) {
+            indexer.addAll(List.of("1", "2", "3"), null, textSegments(3));
+            assertThat(stageCounts.get(MetricsStage.INDEX)).hasValue(1);
+            assertThat(stageCounts.get(MetricsStage.BUILD_DOCUMENTS)).hasValue(1);
+            assertThat(stageCounts.get(MetricsStage.COUNT_TOKENS)).hasValue(3);
+            assertThat(stageCounts.get(MetricsStage.WRITE_DOCUMENTS)).hasValue(1);
+            assertThat(stageCounts.get(MetricsStage.COMMIT)).hasPositiveValue();
+            assertThat(stageCounts.get(MetricsStage.REFRESH)).hasValue(1);
+
+            // Each segment has about 6 tokens, so only 2 of 3 fit in the budget
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(2);
+            for (MetricsStage stage : List.of(
+                    MetricsStage.RETRIEVE,
+                    MetricsStage.SEARCH,
+                    MetricsStage.PARSE_QUERY,
+                    MetricsStage.EMBED_QUERY,
+                    MetricsStage.LOAD_STORED_FIELDS,
+                    MetricsStage.CONVERT_METADATA)) {
+                assertThat(stageCounts.get(stage)).as(stage.stageName()).hasValue(1);
+            }
+            assertThat(hits).hasValue(2);
+            assertThat(budgetSkipped).hasValue(1);
+        }
+    }
+
+    @Test
+    public void micrometer() throws Exception {
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMetrics metrics = MicrometerMetrics.builder()
+                .meterRegistry(meterRegistry)
+                .tag("index", "test")
+                .build();
+
+        try (Directory directory = DirectoryFactory.heapDirectory(0)) {
+            try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                            .directory(directory)
+                            .metrics(metrics)
+                            .build();
+                    LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                            .embeddingStore(indexer)
+                            .resultCache(RetrievalResultCache.builder().build())
+                            .metrics(metrics)
+                            .build()) {
+                indexer.addAll(List.of("1", "2", "3"), null, textSegments(3));
+                indexer.remove("3");
+
+                assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(2);
+                assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(2);
+
+                assertThat(meterRegistry
+                                .get("lucene.stage.duration")
+                                .tag("stage", "retrieve")
+                                .tag("index", "test")
+                                .timer()
+                                .count())
+                        .isEqualTo(2);
+                assertThat(meterRegistry
+                                .get("lucene.stage.duration")
+                                .tag("stage", "search")
+                                .timer()
+                                .count())
+                        .isEqualTo(1);
+                assertThat(meterRegistry.get("lucene.retrieval.hits").counter().count())
+                        .isEqualTo(2);
+                assertThat(cacheGets(meterRegistry, "hit")).isEqualTo(1);
+                assertThat(cacheGets(meterRegistry, "miss")).isEqualTo(1);
+
+                assertThat(meterRegistry.get("lucene.index.documents").gauge().value())
+                        .isEqualTo(2);
+                assertThat(meterRegistry.get("lucene.index.segments").gauge().value())
+                        .isPositive();
+                assertThat(meterRegistry.get("lucene.index.disk").gauge().value())
+                        .isPositive();
+            }
+
+            // Bindings are removed when the embedding store and content retriever are closed
+            assertThat(meterRegistry.find("lucene.index.documents").gauge()).isNull();
+            assertThat(meterRegistry.find("lucene.cache.gets").functionCounter())
+                    .isNull();
+        }
+    }
+
+    @Test
+    public void micrometerSharedBindings() throws Exception {
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMetrics metrics =
+                MicrometerMetrics.builder().meterRegistry(meterRegistry).build();
+        QueryEmbeddingCache queryEmbeddingCache = QueryEmbeddingCache.builder().build();
+
+        try (Directory directory = DirectoryFactory.heapDirectory(0);
+                LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                        .directory(directory)
+                        .metrics(metrics)
+                        .build()) {
+            indexer.addAll(List.of("1", "2", "3"), null, textSegments(3));
+            LuceneContentRetriever first = LuceneContentRetriever.builder()
+                    .embeddingStore(indexer)
+                    .queryEmbeddingCache(queryEmbeddingCache)
+                    .metrics(metrics)
+                    .build();
+            LuceneContentRetriever second = LuceneContentRetriever.builder()
+                    .embeddingStore(indexer)
+                    .queryEmbeddingCache(queryEmbeddingCache)
+                    .metrics(metrics)
+                    .build();
+            assertThat(meterRegistry.find("lucene.cache.gets").functionCounters())
+                    .hasSize(2);
+
+            // Closing one content retriever keeps the meters of the shared cache
+            first.close();
+            assertThat(meterRegistry.find("lucene.cache.gets").functionCounters())
+                    .hasSize(2);
+            second.close();
+            assertThat(meterRegistry.find("lucene.cache.gets").functionCounters())
+                    .isEmpty();
+
+            // Closing a second binding of the index keeps the gauges of the first
+            Closeable binding = metrics.bindIndex(indexer::indexStatistics);
+            binding.close();
+            binding.close();
+            assertThat(meterRegistry.get("lucene.index.documents").gauge().value())
+                    .isEqualTo(3);
+        }
+        assertThat(meterRegistry.find("lucene.index.documents").gauge()).isNull();
+    }
+
+    private static double cacheGets(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry
+                .get("lucene.cache.gets")
+                .tag("cache", "retrieval-result")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private static List<TextSegment> textSegments(int count) {
+        List<TextSegment> textSegments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            textSegments.add(TextSegment.from("Lucene segment number " + i));
+        }
+        return textSegments;
+    }
+}
@@ -0,0 +1,74 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import java.time.Duration;
+import java.util.Collections;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class NearRealTimeTest {
+
+    private static final Query query = Query.from("lucene");
+    private static final TextSegment textSegment = TextSegment.from("Lucene is a powerful search library.");
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private LuceneContentRetriever nrtRetriever;
+    private LuceneContentRetriever directoryRetriever;
+
+    @Test
+    public void commitOnDemand() {
+
+        long generation = indexer.indexAll(null, null, Collections.singletonList(textSegment));
+
+        assertThat(nrtRetriever.retrieve(query, generation)).hasSize(1);
+        assertThat(directoryRetriever.retrieve(query)).isEmpty();
+
+        indexer.commit();
+
+        assertThat(directoryRetriever.retrieve(query)).hasSize(1);
+    }
+
+    @Test
+    public void readYourWrites() {
+
+        long generation1 = indexer.indexAll(null, null, Collections.singletonList(textSegment));
+        assertThat(generation1).isPositive();
+        assertThat(nrtRetriever.retrieve(query, generation1)).hasSize(1);
+
+        long generation2 = indexer.indexAll(null, null, Collections.singletonList(textSegment));
+        assertThat(generation2).isGreaterThan(generation1);
+        assertThat(indexer.waitForGeneration(generation2, Duration.ofSeconds(10)))
+                .isTrue();
+        assertThat(nrtRetriever.retrieve(query)).hasSize(2);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .refreshInterval(Duration.ofMinutes(10))
+                .commitInterval(Duration.ofHours(1))
+                .build();
+        nrtRetriever = LuceneContentRetriever.builder().embeddingStore(indexer).build();
+        directoryRetriever =
+                LuceneContentRetriever.builder().directory(directory).build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directoryRetriever.close();
+        nrtRetriever.close();
+        indexer.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,113 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.QueryEmbeddingCache;
+import dev.langchain4j.rag.query.Query;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class QueryEmbeddingCacheTest {
+
+    private final AtomicInteger embedCount = new AtomicInteger();
+    private final EmbeddingModel countingEmbeddingModel = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            embedCount.addAndGet(textSegments.size());
+            return Response.from(textSegments.stream()
+                    .map(textSegment -> Embedding.from(new float[] {1, 0}))
+                    .collect(Collectors.toList()));
+        }
+    };
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder().maxSize(2).build();
+
+        try (LuceneContentRetriever contentRetriever = retriever(cache)) {
+            contentRetriever.retrieve(Query.from("one"));
+            contentRetriever.retrieve(Query.from("two"));
+            contentRetriever.retrieve(Query.from("one"));
+            contentRetriever.retrieve(Query.from("three"));
+            contentRetriever.retrieve(Query.from("one"));
+            contentRetriever.retrieve(Query.from("two"));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(2);
+        assertThat(embedCount.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void expire() throws Exception {
+
+        QueryEmbeddingCache cache =
+                QueryEmbeddingCache.builder().timeToLive(Duration.ofMillis(10)).build();
+
+        try (LuceneContentRetriever contentRetriever = retriever(cache)) {
+            contentRetriever.retrieve(Query.from("lucene"));
+            Thread.sleep(50);
+            contentRetriever.retrieve(Query.from("lucene"));
+        }
+
+        assertThat(cache.hitCount()).isZero();
+        assertThat(embedCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void sharedAndNormalized() throws Exception {
+
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder().build();
+
+        try (LuceneContentRetriever contentRetriever1 = retriever(cache);
+                LuceneContentRetriever contentRetriever2 = retriever(cache)) {
+            assertThat(contentRetriever1.retrieve(Query.from("What is Lucene?")))
+                    .hasSize(1);
+            assertThat(contentRetriever2.retrieve(Query.from("  what is   lucene? ")))
+                    .hasSize(1);
+        }
+
+        assertThat(embedCount.get()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitRate()).isEqualTo(0.5);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene is a search library"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+
+    private LuceneContentRetriever retriever(QueryEmbeddingCache cache) {
+        return LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(countingEmbeddingModel)
+                .queryEmbeddingCache(cache)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RemoveTest {
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+
+    @Test
+    public void invalidArguments() {
+        assertThatThrownBy(() -> indexer.remove(" ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> indexer.removeAll(Collections.emptyList()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> indexer.removeAll((Filter) null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void removeAll() {
+        indexer.removeAll();
+        assertThat(ids()).isEmpty();
+
+        add("d5", "book");
+        assertThat(ids()).containsExactly("d5");
+    }
+
+    @Test
+    public void removeByFilter() {
+        indexer.removeAll(metadataKey("category").isEqualTo("book"));
+        assertThat(ids()).containsExactlyInAnyOrder("d3", "d4");
+    }
+
+    @Test
+    public void removeByIds() {
+        indexer.remove("d1");
+        assertThat(ids()).containsExactlyInAnyOrder("d2", "d3", "d4");
+
+        indexer.removeAll(Arrays.asList("d2", "d3", "unknown"));
+        assertThat(ids()).containsExactly("d4");
+    }
+
+    @Test
+    public void upsert() {
+        indexer.add(
+                "d1",
+                Embedding.from(new float[] {1, 0}),
+                TextSegment.from("Changed", Metadata.from("category", "video")));
+        indexer.addAll(
+                Arrays.asList("d2", "d2"),
+                Arrays.asList(Embedding.from(new float[] {1, 0}), Embedding.from(new float[] {1, 0})),
+                Arrays.asList(TextSegment.from("First"), TextSegment.from("Second")));
+
+        List<EmbeddingMatch<TextSegment>> matches = search();
+        assertThat(matches).hasSize(4);
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            if (match.embeddingId().equals("d1")) {
+                assertThat(match.embedded().text()).isEqualTo("Changed");
+                assertThat(match.embedded().metadata().getString("category")).isEqualTo("video");
+            } else if (match.embeddingId().equals("d2")) {
+                assertThat(match.embedded().text()).isEqualTo("Second");
+            }
+        }
+    }
+
+    @Test
+    public void upsertWithRejectedDocument() {
+        // The embedding of d2 has a different dimension from the index, so only d2 is not replaced
+        indexer.addAll(
+                Arrays.asList("d1", "d2", "d3"),
+                Arrays.asList(
+                        Embedding.from(new float[] {1, 0}),
+                        Embedding.from(new float[] {1, 0, 0}),
+                        Embedding.from(new float[] {1, 0})),
+                Arrays.asList(TextSegment.from("Changed"), TextSegment.from("Rejected"), TextSegment.from("Changed")));
+
+        List<EmbeddingMatch<TextSegment>> matches = search();
+        assertThat(matches).hasSize(4);
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            switch (match.embeddingId()) {
+                case "d1", "d3" -> assertThat(match.embedded().text()).isEqualTo("Changed");
+                default -> assertThat(match.embedded().text()).startsWith("Content");
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        add("d1", "book");
+        add("d2", "book");
+        add("d3", "video");
+        add("d4", "audio");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+
+    private void add(String id, String category) {
+        indexer.add(
+                id,
+                Embedding.from(new float[] {1, 0}),
+                TextSegment.from("Content " + id, Metadata.from("category", category)));
+    }
+
+    private List<String> ids() {
+        return search().stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toList());
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search() {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                .maxResults(10)
+                .build();
+        return indexer.search(request).matches();
+    }
+}
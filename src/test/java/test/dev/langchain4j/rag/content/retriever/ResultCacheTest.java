@@ -0,0 +1,119 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.RetrievalResultCache;
+import dev.langchain4j.rag.query.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResultCacheTest {
+
+    private final AtomicInteger searchCount = new AtomicInteger();
+    // Embedding every query is a proxy for searching the index
+    private final EmbeddingModel slowEmbeddingModel = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            searchCount.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(textSegments.stream()
+                    .map(textSegment -> Embedding.from(new float[] {1, 0}))
+                    .collect(Collectors.toList()));
+        }
+    };
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private RetrievalResultCache cache;
+    private LuceneContentRetriever contentRetriever;
+
+    @Test
+    public void coalesceConcurrentQueries() throws Exception {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Content>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(() -> contentRetriever.retrieve(Query.from("lucene"))));
+            }
+            for (Future<List<Content>> future : futures) {
+                assertThat(future.get()).hasSize(1);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(searchCount.get()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount() + cache.coalescedCount()).isEqualTo(7);
+    }
+
+    @Test
+    public void invalidateOnIndexChange() {
+
+        assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(1);
+        assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(1);
+        assertThat(searchCount.get()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene is fast"));
+
+        assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(2);
+        assertThat(searchCount.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void returnCopies() {
+
+        List<Content> first = contentRetriever.retrieve(Query.from("lucene"));
+        first.get(0).textSegment().metadata().put("changed", "by caller");
+
+        List<Content> second = contentRetriever.retrieve(Query.from("lucene"));
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(second.get(0)).isNotSameAs(first.get(0));
+        assertThat(second.get(0).textSegment().metadata().containsKey("changed"))
+                .isFalse();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+        indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene is a search library"));
+        cache = RetrievalResultCache.builder().build();
+        contentRetriever = LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(slowEmbeddingModel)
+                .resultCache(cache)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        contentRetriever.close();
+        indexer.close();
+        directory.close();
+    }
+}
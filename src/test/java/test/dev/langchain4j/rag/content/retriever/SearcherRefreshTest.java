@@ -0,0 +1,134 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.RefreshPolicy;
+import dev.langchain4j.rag.query.Query;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SearcherRefreshTest {
+
+    private static final Query query = Query.from("lucene");
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+    private LuceneContentRetriever contentRetriever;
+
+    @Test
+    public void concurrentQueries() throws Exception {
+
+        contentRetriever = LuceneContentRetriever.builder().directory(directory).build();
+        indexer.add(TextSegment.from("Lucene is a powerful search library."));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Content>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> contentRetriever.retrieve(query)));
+            }
+            for (Future<List<Content>> future : futures) {
+                assertThat(future.get()).hasSize(1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void emptyIndex() {
+
+        contentRetriever = LuceneContentRetriever.builder().directory(directory).build();
+
+        assertThat(contentRetriever.retrieve(query)).isEmpty();
+
+        indexer.add(TextSegment.from("Lucene is a powerful search library."));
+
+        assertThat(contentRetriever.retrieve(query)).hasSize(1);
+    }
+
+    @Test
+    public void refreshOnCommit() {
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .directory(directory)
+                .refreshPolicy(RefreshPolicy.ON_COMMIT)
+                .build();
+
+        indexer.add(TextSegment.from("Lucene is a powerful search library."));
+        assertThat(contentRetriever.retrieve(query)).hasSize(1);
+
+        indexer.add(TextSegment.from("Lucene indexes are made of segments."));
+        assertThat(contentRetriever.retrieve(query)).hasSize(2);
+    }
+
+    @Test
+    public void refreshOnDemand() {
+
+        indexer.add(TextSegment.from("Lucene is a powerful search library."));
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .directory(directory)
+                .refreshPolicy(RefreshPolicy.ON_DEMAND)
+                .build();
+        assertThat(contentRetriever.retrieve(query)).hasSize(1);
+
+        indexer.add(TextSegment.from("Lucene indexes are made of segments."));
+        assertThat(contentRetriever.retrieve(query)).hasSize(1);
+
+        contentRetriever.refresh();
+        assertThat(contentRetriever.retrieve(query)).hasSize(2);
+    }
+
+    @Test
+    public void refreshTimed() throws Exception {
+
+        indexer.add(TextSegment.from("Lucene is a powerful search library."));
+
+        contentRetriever = LuceneContentRetriever.builder()
+                .directory(directory)
+                .refreshPolicy(RefreshPolicy.TIMED)
+                .refreshInterval(Duration.ofMillis(50))
+                .build();
+        assertThat(contentRetriever.retrieve(query)).hasSize(1);
+
+        indexer.add(TextSegment.from("Lucene indexes are made of segments."));
+
+        List<Content> results = contentRetriever.retrieve(query);
+        for (int i = 0; i < 100 && results.size() < 2; i++) {
+            Thread.sleep(50);
+            results = contentRetriever.retrieve(query);
+        }
+        assertThat(results).hasSize(2);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder().directory(directory).build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (contentRetriever != null) {
+            contentRetriever.close();
+        }
+        if (indexer != null) {
+            indexer.close();
+        }
+        directory.close();
+    }
+}
@@ -0,0 +1,337 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.ShardedEmbeddingStore;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardingTest {
+
+    private final List<Directory> directories = new ArrayList<>();
+
+    @Test
+    public void consistentScoring() throws Exception {
+
+        List<TextSegment> textSegments = textSegments(60);
+        try (LuceneEmbeddingStore singleStore =
+                        LuceneEmbeddingStore.builder().directory(directory()).build();
+                ShardedEmbeddingStore shardedStore = shardedStore(3);
+                LuceneContentRetriever singleRetriever = LuceneContentRetriever.builder()
+                        .embeddingStore(singleStore)
+                        .maxResults(100)
+                        .build();
+                LuceneContentRetriever shardedRetriever = LuceneContentRetriever.builder()
+                        .shardedStore(shardedStore)
+                        .maxResults(100)
+                        .build()) {
+
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < textSegments.size(); i++) {
+                ids.add("id-" + i);
+            }
+            singleStore.addAll(ids, null, textSegments);
+            shardedStore.addAll(ids, null, textSegments);
+
+            Map<String, Double> singleScores = scores(singleRetriever.retrieve(Query.from("lucene shard seven")));
+            Map<String, Double> shardedScores = scores(shardedRetriever.retrieve(Query.from("lucene shard seven")));
+
+            assertThat(shardedScores).hasSameSizeAs(singleScores).hasSize(60);
+            for (Map.Entry<String, Double> entry : singleScores.entrySet()) {
+                assertThat(shardedScores.get(entry.getKey())).isCloseTo(entry.getValue(), within(1e-5));
+            }
+        }
+    }
+
+    @Test
+    public void routeAndSearch() throws Exception {
+
+        List<LuceneEmbeddingStore> shards = new ArrayList<>();
+        ShardedEmbeddingStore.ShardedEmbeddingStoreBuilder builder = ShardedEmbeddingStore.builder();
+        for (int i = 0; i < 3; i++) {
+            LuceneEmbeddingStore shard =
+                    LuceneEmbeddingStore.builder().directory(directory()).build();
+            shards.add(shard);
+            builder.shard(shard);
+        }
+
+        try (ShardedEmbeddingStore shardedStore = builder.build()) {
+            assertThat(shardedStore.shardCount()).isEqualTo(3);
+
+            for (int i = 0; i < 30; i++) {
+                shardedStore.add("id-" + i, embedding(i), TextSegment.from("Lucene segment number " + i));
+            }
+
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(embedding(7))
+                    .maxResults(30)
+                    .build();
+            int total = 0;
+            for (LuceneEmbeddingStore shard : shards) {
+                int shardCount = shard.search(request).matches().size();
+                assertThat(shardCount).isPositive();
+                total = total + shardCount;
+            }
+            assertThat(total).isEqualTo(30);
+
+            List<EmbeddingMatch<TextSegment>> matches =
+                    shardedStore.search(request).matches();
+            assertThat(matches).hasSize(30);
+            assertThat(matches.get(0).embeddingId()).isEqualTo("id-7");
+            for (int i = 1; i < matches.size(); i++) {
+                assertThat(matches.get(i).score())
+                        .isLessThanOrEqualTo(matches.get(i - 1).score());
+            }
+
+            shardedStore.remove("id-7");
+            assertThat(shardedStore.search(request).matches()).hasSize(29);
+            shardedStore.removeAll();
+            assertThat(shardedStore.search(request).matches()).isEmpty();
+        }
+    }
+
+    @Test
+    public void split() throws Exception {
+
+        List<Directory> shardDirectories = List.of(directory(), directory());
+        try (ShardedEmbeddingStore shardedStore = ShardedEmbeddingStore.builder()
+                        .shard(LuceneEmbeddingStore.builder()
+                                .directory(shardDirectories.get(0))
+                                .build())
+                        .shard(LuceneEmbeddingStore.builder()
+                                .directory(shardDirectories.get(1))
+                                .build())
+                        .build();
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .shardedStore(shardedStore)
+                        .maxResults(200)
+                        .build()) {
+
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                ids.add("id-" + i);
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                embeddings.add(embedding(i));
+            }
+            shardedStore.addAll(ids, embeddings, textSegments(100));
+
+            Directory newDirectory = directory();
+            LuceneEmbeddingStore newShard =
+                    LuceneEmbeddingStore.builder().directory(newDirectory).build();
+            shardedStore.split(0, newShard);
+
+            assertThat(shardedStore.shardCount()).isEqualTo(3);
+            List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+            assertThat(scores(results)).hasSize(100);
+            assertThat(newShard.search(EmbeddingSearchRequest.builder()
+                                    .queryEmbedding(embedding(0))
+                                    .maxResults(100)
+                                    .build())
+                            .matches())
+                    .isNotEmpty()
+                    .allSatisfy(match -> assertThat(match.embedded().text()).startsWith("Lucene"));
+
+            // Moved content is routed to the new shard
+            for (String id : ids) {
+                shardedStore.remove(id);
+            }
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).isEmpty();
+
+            assertThatThrownBy(() -> shardedStore.split(0, newShard)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        // Recorded ranges are read back, in any order of shards
+        try (ShardedEmbeddingStore shardedStore = ShardedEmbeddingStore.builder()
+                .shard(LuceneEmbeddingStore.builder()
+                        .directory(directories.get(directories.size() - 1))
+                        .build())
+                .shard(LuceneEmbeddingStore.builder()
+                        .directory(shardDirectories.get(1))
+                        .build())
+                .shard(LuceneEmbeddingStore.builder()
+                        .directory(shardDirectories.get(0))
+                        .build())
+                .build()) {
+            assertThat(shardedStore.shardCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void interruptedSplit() throws Exception {
+
+        Directory sourceDirectory = directory();
+        Directory otherDirectory = directory();
+        Directory newDirectory = directory();
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add("id-" + i);
+            embeddings.add(embedding(i));
+        }
+        List<String> movedIds = new ArrayList<>();
+        try (ShardedEmbeddingStore shardedStore = ShardedEmbeddingStore.builder()
+                .shard(LuceneEmbeddingStore.builder().directory(sourceDirectory).build())
+                .shard(LuceneEmbeddingStore.builder().directory(otherDirectory).build())
+                .build()) {
+            shardedStore.addAll(ids, embeddings, textSegments(100));
+            LuceneEmbeddingStore newShard =
+                    LuceneEmbeddingStore.builder().directory(newDirectory).build();
+            shardedStore.split(0, newShard);
+            for (EmbeddingMatch<TextSegment> match : newShard.search(EmbeddingSearchRequest.builder()
+                            .queryEmbedding(embedding(0))
+                            .maxResults(100)
+                            .build())
+                    .matches()) {
+                movedIds.add(match.embeddingId());
+            }
+        }
+        assertThat(movedIds).isNotEmpty();
+
+        // Undo the end of the split, as if it stopped after the new shard recorded its range
+        try (LuceneEmbeddingStore sourceStore =
+                LuceneEmbeddingStore.builder().directory(sourceDirectory).build()) {
+            List<Embedding> movedEmbeddings = new ArrayList<>();
+            List<TextSegment> movedSegments = new ArrayList<>();
+            for (String id : movedIds) {
+                int i = ids.indexOf(id);
+                movedEmbeddings.add(embeddings.get(i));
+                movedSegments.add(textSegments(100).get(i));
+            }
+            sourceStore.addAll(movedIds, movedEmbeddings, movedSegments);
+        }
+        try (IndexWriter writer = new IndexWriter(sourceDirectory, new IndexWriterConfig())) {
+            Map<String, String> commitData = new HashMap<>();
+            writer.getLiveCommitData().forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+            commitData.put("shard-range", "0-" + (1L << 31));
+            writer.setLiveCommitData(commitData.entrySet());
+            writer.commit();
+        }
+
+        // The split is completed when the shards are opened, and again opened as usual
+        for (int open = 0; open < 2; open++) {
+            try (ShardedEmbeddingStore shardedStore = ShardedEmbeddingStore.builder()
+                            .shard(LuceneEmbeddingStore.builder()
+                                    .directory(sourceDirectory)
+                                    .build())
+                            .shard(LuceneEmbeddingStore.builder()
+                                    .directory(otherDirectory)
+                                    .build())
+                            .shard(LuceneEmbeddingStore.builder()
+                                    .directory(newDirectory)
+                                    .build())
+                            .build();
+                    LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                            .shardedStore(shardedStore)
+                            .maxResults(200)
+                            .build()) {
+                assertThat(shardedStore.shardCount()).isEqualTo(3);
+                List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+                assertThat(results).hasSize(100);
+                assertThat(scores(results)).hasSize(100);
+            }
+        }
+    }
+
+    @Test
+    public void invalidShards() throws Exception {
+
+        Directory recorded = directory();
+        ShardedEmbeddingStore.builder()
+                .shard(LuceneEmbeddingStore.builder().directory(recorded).build())
+                .shard(LuceneEmbeddingStore.builder().directory(directory()).build())
+                .build()
+                .close();
+
+        // One of two recorded shards, with a new shard
+        LuceneEmbeddingStore recordedShard =
+                LuceneEmbeddingStore.builder().directory(recorded).build();
+        LuceneEmbeddingStore newShard =
+                LuceneEmbeddingStore.builder().directory(directory()).build();
+        assertThatThrownBy(() -> ShardedEmbeddingStore.builder()
+                        .shard(recordedShard)
+                        .shard(newShard)
+                        .build())
+                .isInstanceOf(IllegalArgumentException.class);
+        recordedShard.close();
+        newShard.close();
+
+        assertThatThrownBy(() -> ShardedEmbeddingStore.builder().build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directories.clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Directory directory : directories) {
+            directory.close();
+        }
+    }
+
+    private Directory directory() {
+        Directory directory = DirectoryFactory.tempDirectory();
+        directories.add(directory);
+        return directory;
+    }
+
+    private ShardedEmbeddingStore shardedStore(int shardCount) {
+        ShardedEmbeddingStore.ShardedEmbeddingStoreBuilder builder = ShardedEmbeddingStore.builder();
+        for (int i = 0; i < shardCount; i++) {
+            builder.shard(LuceneEmbeddingStore.builder().directory(directory()).build());
+        }
+        return builder.build();
+    }
+
+    private static Embedding embedding(int i) {
+        double angle = i * Math.PI / 200;
+        return Embedding.from(new float[] {(float) Math.cos(angle), (float) Math.sin(angle), 0});
+    }
+
+    private static List<TextSegment> textSegments(int count) {
+        String[] words = {"one", "two", "three", "four", "five", "six", "seven"};
+        List<TextSegment> textSegments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder("Lucene item " + i);
+            for (int j = 0; j <= i % words.length; j++) {
+                text.append(' ').append(words[(i + j) % words.length]);
+            }
+            if (i % 3 == 0) {
+                text.append(" shard");
+            }
+            textSegments.add(TextSegment.from(text.toString()));
+        }
+        return textSegments;
+    }
+
+    private static Map<String, Double> scores(List<Content> results) {
+        Map<String, Double> scores = new HashMap<>();
+        for (Content content : results) {
+            scores.put(content.textSegment().text(), (Double) content.metadata().get(ContentMetadata.SCORE));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,106 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.VectorQuantization;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.util.List;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StoredEmbeddingsTest {
+
+    private Directory directory;
+
+    @Test
+    public void embeddingsWithoutText() throws Exception {
+
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            String id = indexer.add(Embedding.from(new float[] {1, 0}));
+
+            List<EmbeddingMatch<TextSegment>> matches = search(indexer, new float[] {1, 0});
+            assertThat(matches).hasSize(1);
+            assertThat(matches.get(0).embeddingId()).isEqualTo(id);
+            assertThat(matches.get(0).embedding().vector()).containsExactly(1, 0);
+            assertThat(matches.get(0).embedded()).isNull();
+        }
+    }
+
+    @Test
+    public void fullPrecisionEmbeddings() throws Exception {
+
+        float[] vector = {0.12345f, -0.6789f, 0.5f, 0.25f};
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .vectorQuantization(VectorQuantization.INT8)
+                .build()) {
+            indexer.add("id", Embedding.from(vector), TextSegment.from("Quantized"));
+            indexer.add(Embedding.from(new float[] {-1, 1, 0, 0}), TextSegment.from("Other"));
+
+            List<EmbeddingMatch<TextSegment>> matches = search(indexer, vector);
+            assertThat(matches).hasSize(2);
+            assertThat(matches.get(0).embeddingId()).isEqualTo("id");
+            assertThat(matches.get(0).embedding().vector()).containsExactly(vector);
+            assertThat(matches.get(0).embedded().text()).isEqualTo("Quantized");
+            assertThat(matches.get(1).embedding().vector()).containsExactly(-1, 1, 0, 0);
+        }
+    }
+
+    @Test
+    public void storedEmbeddings() throws Exception {
+
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            // Separate commits, so that content is in different segments
+            for (int i = 0; i < 5; i++) {
+                indexer.add(
+                        String.valueOf(i),
+                        Embedding.from(new float[] {1, i / 10f}),
+                        TextSegment.from("Embedding number " + i));
+            }
+
+            List<EmbeddingMatch<TextSegment>> matches = search(indexer, new float[] {1, 0});
+            assertThat(matches).hasSize(5);
+            for (EmbeddingMatch<TextSegment> match : matches) {
+                int i = Integer.parseInt(match.embeddingId());
+                assertThat(match.embedding().vector()).containsExactly(1, i / 10f);
+                assertThat(match.embedded().text()).isEqualTo("Embedding number " + i);
+                assertThat(match.embedded().metadata().getString("id")).isEqualTo(match.embeddingId());
+            }
+
+            assertThat(indexer.searchIds(EmbeddingSearchRequest.builder()
+                                    .queryEmbedding(Embedding.from(new float[] {1, 0}))
+                                    .maxResults(10)
+                                    .build())
+                            .matches())
+                    .hasSize(5)
+                    .allSatisfy(match -> assertThat(match.embedding()).isNull());
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directory.close();
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(LuceneEmbeddingStore indexer, float[] vector) {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(vector))
+                .maxResults(10)
+                .build();
+        return indexer.search(request).matches();
+    }
+}
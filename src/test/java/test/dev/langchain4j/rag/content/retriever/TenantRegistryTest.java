@@ -0,0 +1,261 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.TenantRegistry;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.Lock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TenantRegistryTest {
+
+    private final Map<String, Directory> directories = new ConcurrentHashMap<>();
+
+    @Test
+    public void isolation() throws Exception {
+
+        try (TenantRegistry registry =
+                TenantRegistry.builder().directories(this::directory).build()) {
+            registry.embeddingStore("acme").add((Embedding) null, TextSegment.from("Acme uses Lucene for search."));
+            registry.embeddingStore("globex")
+                    .add((Embedding) null, TextSegment.from("Globex uses Lucene for analytics."));
+
+            assertThat(texts(registry.contentRetriever("acme").retrieve(Query.from("lucene"))))
+                    .containsExactly("Acme uses Lucene for search.");
+            assertThat(texts(registry.contentRetriever("globex").retrieve(Query.from("lucene"))))
+                    .containsExactly("Globex uses Lucene for analytics.");
+            assertThat(registry.openTenantCount()).isEqualTo(2);
+
+            registry.embeddingStore("acme").removeAll();
+            assertThat(registry.contentRetriever("acme").retrieve(Query.from("lucene")))
+                    .isEmpty();
+            assertThat(registry.contentRetriever("globex").retrieve(Query.from("lucene")))
+                    .hasSize(1);
+        }
+
+        assertThatThrownBy(() -> TenantRegistry.builder().build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void leastRecentlyUsedEviction() throws Exception {
+
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .directories(this::directory)
+                .maxOpenTenants(2)
+                .build()) {
+            for (String tenantId : List.of("a", "b", "c")) {
+                registry.embeddingStore(tenantId)
+                        .add((Embedding) null, TextSegment.from("Lucene content of tenant " + tenantId));
+            }
+            assertThat(registry.openTenantCount()).isEqualTo(2);
+            // The least recently used tenant was closed, and released its index
+            assertReleased(directories.get("a"));
+
+            // A closed tenant is opened again with its content
+            ContentRetriever contentRetriever = registry.contentRetriever("a");
+            assertThat(texts(contentRetriever.retrieve(Query.from("lucene"))))
+                    .containsExactly("Lucene content of tenant a");
+            assertThat(registry.openTenantCount()).isEqualTo(2);
+            assertReleased(directories.get("b"));
+        }
+    }
+
+    @Test
+    public void reopenWhileEvicting() throws Exception {
+
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .directories(this::directory)
+                .maxOpenTenants(1)
+                .build()) {
+            // Each tenant is evicted by the other, while it is opened again on another thread
+            ExecutorService executorService = Executors.newFixedThreadPool(2);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (List<String> tenantIds : List.of(List.of("a", "b"), List.of("b", "a"))) {
+                    futures.add(executorService.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            registry.embeddingStore(tenantIds.get(i % 2))
+                                    .add((Embedding) null, TextSegment.from("Lucene content " + i));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executorService.shutdown();
+            }
+            assertThat(registry.contentRetriever("a").retrieve(Query.from("lucene")))
+                    .isNotEmpty();
+        }
+    }
+
+    @Test
+    public void idleEviction() throws Exception {
+
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .directories(this::directory)
+                .idleTimeout(Duration.ofMillis(100))
+                .build()) {
+            registry.embeddingStore("acme").add((Embedding) null, TextSegment.from("Acme uses Lucene for search."));
+            assertThat(registry.openTenantCount()).isEqualTo(1);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (registry.openTenantCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(registry.openTenantCount()).isZero();
+            assertReleased(directories.get("acme"));
+            assertThat(registry.contentRetriever("acme").retrieve(Query.from("lucene")))
+                    .hasSize(1);
+        }
+    }
+
+    @Test
+    public void sharedIndex() throws Exception {
+
+        Directory directory = directory("shared");
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .sharedStore(LuceneEmbeddingStore.builder().directory(directory).build())
+                .partitionField("customer")
+                .build()) {
+            EmbeddingStore<TextSegment> acme = registry.embeddingStore("acme");
+            EmbeddingStore<TextSegment> globex = registry.embeddingStore("globex");
+            acme.add((Embedding) null, TextSegment.from("Acme uses Lucene for search.", Metadata.from("year", "2024")));
+            globex.add((Embedding) null, TextSegment.from("Globex uses Lucene for analytics."));
+
+            List<Content> results = registry.contentRetriever("acme").retrieve(Query.from("lucene"));
+            assertThat(texts(results)).containsExactly("Acme uses Lucene for search.");
+            assertThat(results.get(0).textSegment().metadata().getString("customer"))
+                    .isEqualTo("acme");
+            assertThat(results.get(0).textSegment().metadata().getString("year"))
+                    .isEqualTo("2024");
+
+            acme.removeAll();
+            assertThat(registry.contentRetriever("acme").retrieve(Query.from("lucene")))
+                    .isEmpty();
+            assertThat(texts(registry.contentRetriever("globex").retrieve(Query.from("lucene"))))
+                    .containsExactly("Globex uses Lucene for analytics.");
+
+            assertThatThrownBy(() -> acme.add(Embedding.from(new float[] {1, 0, 0})))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertReleased(directory);
+    }
+
+    @Test
+    public void sharedIndexWithRetrieverFilter() throws Exception {
+
+        Directory directory = directory("shared");
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .sharedStore(LuceneEmbeddingStore.builder().directory(directory).build())
+                .contentRetrievers(builder -> builder.filter(metadataKey("year").isEqualTo("2024")))
+                .build()) {
+            EmbeddingStore<TextSegment> acme = registry.embeddingStore("acme");
+            EmbeddingStore<TextSegment> globex = registry.embeddingStore("globex");
+            acme.add(
+                    (Embedding) null,
+                    TextSegment.from("Acme uses Lucene for search.", new Metadata().put("year", "2024")));
+            acme.add(
+                    (Embedding) null,
+                    TextSegment.from("Acme used Lucene for logs.", new Metadata().put("year", "2023")));
+            globex.add(
+                    (Embedding) null,
+                    TextSegment.from("Globex uses Lucene for analytics.", new Metadata().put("year", "2024")));
+
+            // The configured filter applies within the partition of each tenant
+            assertThat(texts(registry.contentRetriever("acme").retrieve(Query.from("lucene"))))
+                    .containsExactly("Acme uses Lucene for search.");
+            assertThat(texts(registry.contentRetriever("globex").retrieve(Query.from("lucene"))))
+                    .containsExactly("Globex uses Lucene for analytics.");
+        }
+    }
+
+    @Test
+    public void sharedIndexIdsAreScoped() throws Exception {
+
+        Directory directory = directory("shared");
+        try (TenantRegistry registry = TenantRegistry.builder()
+                .sharedStore(LuceneEmbeddingStore.builder().directory(directory).build())
+                .build()) {
+            EmbeddingStore<TextSegment> acme = registry.embeddingStore("acme");
+            EmbeddingStore<TextSegment> globex = registry.embeddingStore("globex");
+            acme.addAll(List.of("1"), null, List.of(TextSegment.from("Acme uses Lucene for search.")));
+
+            // Another tenant cannot remove content by id
+            globex.remove("1");
+            globex.removeAll(List.of("1"));
+            assertThat(texts(registry.contentRetriever("acme").retrieve(Query.from("lucene"))))
+                    .containsExactly("Acme uses Lucene for search.");
+
+            // Nor replace it, since ids are scoped to the tenant
+            globex.addAll(List.of("1"), null, List.of(TextSegment.from("Globex uses Lucene for analytics.")));
+            assertThat(texts(registry.contentRetriever("acme").retrieve(Query.from("lucene"))))
+                    .containsExactly("Acme uses Lucene for search.");
+            assertThat(texts(registry.contentRetriever("globex").retrieve(Query.from("lucene"))))
+                    .containsExactly("Globex uses Lucene for analytics.");
+
+            // Content is replaced and removed within a tenant
+            acme.addAll(List.of("1"), null, List.of(TextSegment.from("Acme uses Lucene for retrieval.")));
+            assertThat(texts(registry.contentRetriever("acme").retrieve(Query.from("lucene"))))
+                    .containsExactly("Acme uses Lucene for retrieval.");
+            acme.remove("1");
+            assertThat(registry.contentRetriever("acme").retrieve(Query.from("lucene")))
+                    .isEmpty();
+            assertThat(registry.contentRetriever("globex").retrieve(Query.from("lucene")))
+                    .hasSize(1);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Directory directory : directories.values()) {
+            directory.close();
+        }
+        directories.clear();
+    }
+
+    // Directories outlive tenants, so that content can be read again after a tenant is closed
+    private Directory directory(String tenantId) {
+        Directory directory = directories.computeIfAbsent(tenantId, id -> DirectoryFactory.heapDirectory(0));
+        return new FilterDirectory(directory) {
+            @Override
+            public void close() {
+                // Closed after the test
+            }
+        };
+    }
+
+    private static void assertReleased(Directory directory) throws Exception {
+        try (Lock lock = directory.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+            lock.ensureValid();
+        }
+    }
+
+    private static List<String> texts(List<Content> results) {
+        return results.stream().map(content -> content.textSegment().text()).toList();
+    }
+}
@@ -0,0 +1,131 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.TokenBudgetStrategy;
+import dev.langchain4j.rag.content.retriever.lucene.TokenEstimator;
+import dev.langchain4j.rag.query.Query;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TokenBudgetTest {
+
+    private final EmbeddingModel embeddingModel = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            return Response.from(textSegments.stream()
+                    .map(textSegment -> Embedding.from(new float[] {1, 0}))
+                    .collect(Collectors.toList()));
+        }
+    };
+    // Count one token for every word
+    private final TokenEstimator wordCount = new TokenEstimator() {
+        @Override
+        public int estimate(String text) {
+            return text == null || text.isBlank() ? 0 : text.trim().split("\\s+").length;
+        }
+
+        @Override
+        public String name() {
+            return "words";
+        }
+    };
+
+    private Directory directory;
+    private LuceneEmbeddingStore indexer;
+
+    @Test
+    public void fillBudgetPastOversizedHits() throws Exception {
+
+        add("a", 25, new float[] {1, 0});
+        add("b", 10, new float[] {0.9f, 0.1f});
+        add("c", 10, new float[] {0.8f, 0.2f});
+
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.GREEDY, 2, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("b", "c");
+        }
+    }
+
+    @Test
+    public void knapsack() throws Exception {
+
+        add("a", 12, new float[] {1, 0});
+        add("b", 10, new float[] {0.9f, 0.1f});
+        add("c", 10, new float[] {0.8f, 0.2f});
+
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.GREEDY, 3, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("a");
+        }
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.KNAPSACK, 3, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("b", "c");
+        }
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.KNAPSACK, 1, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("a");
+        }
+    }
+
+    @Test
+    public void skipEmbeddingsWithoutContent() throws Exception {
+
+        indexer.add(Embedding.from(new float[] {1, 0}));
+        add("a", 5, new float[] {0.9f, 0.1f});
+        add("b", 5, new float[] {0.8f, 0.2f});
+
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.KNAPSACK, 2, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("a", "b");
+        }
+        try (LuceneContentRetriever contentRetriever = retriever(TokenBudgetStrategy.GREEDY, 2, 20)) {
+            assertThat(names(contentRetriever.retrieve(Query.from("query")))).containsExactly("a", "b");
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+        indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .tokenEstimator(wordCount)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        indexer.close();
+        directory.close();
+    }
+
+    private void add(String name, int words, float[] vector) {
+        TextSegment textSegment = TextSegment.from("word ".repeat(words), Metadata.from("name", name));
+        indexer.add(Embedding.from(vector), textSegment);
+    }
+
+    private List<String> names(List<Content> results) {
+        return results.stream()
+                .map(content -> content.textSegment().metadata().getString("name"))
+                .collect(Collectors.toList());
+    }
+
+    private LuceneContentRetriever retriever(TokenBudgetStrategy strategy, int maxResults, int maxTokens) {
+        return LuceneContentRetriever.builder()
+                .embeddingStore(indexer)
+                .embeddingModel(embeddingModel)
+                .tokenEstimator(wordCount)
+                .tokenBudgetStrategy(strategy)
+                .maxResults(maxResults)
+                .maxTokens(maxTokens)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.TokenEstimator;
+import dev.langchain4j.rag.content.retriever.lucene.TokenEstimatorFactory;
+import dev.langchain4j.rag.query.Query;
+import java.util.List;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import test.dev.langchain4j.rag.content.retriever.utility.TextEmbedding;
+
+public class TokenEstimatorTest {
+
+    private Directory directory;
+
+    @Test
+    public void approximateCloseToExact() {
+
+        TokenEstimator exact = TokenEstimatorFactory.cl100k();
+        TokenEstimator approximate = TokenEstimatorFactory.approximate();
+
+        for (String resource : new String[] {"hitDoc1.txt", "hitDoc2.txt", "hitDoc3.txt", "missDoc1.txt"}) {
+            String text = TextEmbedding.fromResource(resource).text().text();
+            int exactCount = exact.estimate(text);
+            assertThat(approximate.estimate(text)).isBetween((int) (exactCount * 0.5), exactCount * 2);
+        }
+
+        assertThat(approximate.estimate(null)).isZero();
+        assertThat(approximate.estimate("")).isZero();
+        assertThat(approximate.estimate("   ")).isZero();
+    }
+
+    @Test
+    public void encodings() {
+
+        assertThat(TokenEstimatorFactory.cl100k().name()).isEqualTo("jtokkit:cl100k_base");
+        assertThat(TokenEstimatorFactory.encoding(EncodingType.O200K_BASE).name())
+                .isEqualTo("jtokkit:o200k_base");
+        assertThat(TokenEstimatorFactory.cl100k().estimate("Lucene is a powerful search library."))
+                .isPositive();
+        // Special tokens do not cause failures
+        assertThat(TokenEstimatorFactory.cl100k().estimate("<|endoftext|>")).isPositive();
+    }
+
+    @Test
+    public void recordedInIndex() throws Exception {
+
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                        .directory(directory)
+                        .tokenEstimator(TokenEstimatorFactory.approximate())
+                        .build();
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .directory(directory)
+                        .tokenEstimator(TokenEstimatorFactory.approximate())
+                        .maxTokens(10)
+                        .build()) {
+
+            indexer.add(TextSegment.from("Lucene is a powerful search library."));
+            indexer.add(TextSegment.from("Lucene is a library that is used by many search engines."));
+
+            List<Content> results = contentRetriever.retrieve(Query.from("lucene"));
+            assertThat(results).hasSize(1);
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertThat(reader.getIndexCommit().getUserData())
+                    .containsEntry("token-estimator", TokenEstimatorFactory.APPROXIMATE_NAME);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directory.close();
+    }
+}
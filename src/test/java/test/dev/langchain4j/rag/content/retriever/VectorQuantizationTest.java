@@ -0,0 +1,167 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneDocumentFields;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.VectorQuantization;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.lucene.codecs.perfield.PerFieldKnnVectorsFormat;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class VectorQuantizationTest {
+
+    private static final String EMBEDDING_FIELD_NAME = LuceneDocumentFields.EMBEDDING_FIELD_NAME.fieldName();
+
+    private Directory directory;
+
+    @Test
+    public void int4() throws Exception {
+        assertQuantized(VectorQuantization.INT4);
+    }
+
+    @Test
+    public void int8() throws Exception {
+        assertQuantized(VectorQuantization.INT8);
+    }
+
+    @Test
+    public void notQuantized() throws Exception {
+        assertQuantized(VectorQuantization.NONE);
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertThat(vectorsFormat(reader)).isEqualTo("Lucene99HnswVectorsFormat");
+        }
+    }
+
+    @Test
+    public void rescoreInt4() throws Exception {
+
+        float[][] vectors = vectors();
+        float[] queryVector = vectors[7].clone();
+        queryVector[0] = queryVector[0] + 0.1f;
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(queryVector))
+                .maxResults(5)
+                .build();
+
+        List<EmbeddingMatch<TextSegment>> quantizedMatches;
+        List<EmbeddingMatch<TextSegment>> rescoredMatches;
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .vectorQuantization(VectorQuantization.INT4)
+                .build()) {
+            add(indexer, vectors);
+            quantizedMatches = indexer.search(request).matches();
+        }
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .rescoreOversample(4)
+                .build()) {
+            rescoredMatches = indexer.search(request).matches();
+        }
+
+        // Quantized scores are approximate, and rescored scores are exact
+        assertThat(quantizedMatches).anySatisfy(match -> assertThat(match.score())
+                .isNotCloseTo(exactScore(queryVector, vectors, match), within(1e-6)));
+        assertThat(rescoredMatches).hasSize(5).allSatisfy(match -> assertThat(match.score())
+                .isCloseTo(exactScore(queryVector, vectors, match), within(1e-6)));
+        assertThat(rescoredMatches.get(0).embeddingId()).isEqualTo("7");
+        for (int i = 1; i < rescoredMatches.size(); i++) {
+            assertThat(rescoredMatches.get(i).score())
+                    .isLessThanOrEqualTo(rescoredMatches.get(i - 1).score());
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        directory = DirectoryFactory.tempDirectory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        directory.close();
+    }
+
+    private void assertQuantized(VectorQuantization vectorQuantization) throws Exception {
+
+        float[][] vectors = vectors();
+        try (LuceneEmbeddingStore indexer = LuceneEmbeddingStore.builder()
+                .directory(directory)
+                .vectorQuantization(vectorQuantization)
+                .build()) {
+            add(indexer, vectors);
+        }
+
+        // An embedding store without a quantization setting keeps the recorded quantization
+        try (LuceneEmbeddingStore indexer =
+                LuceneEmbeddingStore.builder().directory(directory).build()) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(vectors[7]))
+                    .maxResults(5)
+                    .build();
+            List<EmbeddingMatch<TextSegment>> matches = indexer.search(request).matches();
+            assertThat(matches).hasSize(5);
+            assertThat(matches.get(0).embeddingId()).isEqualTo("7");
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertThat(reader.getIndexCommit().getUserData())
+                    .containsEntry("vector-quantization", vectorQuantization.name());
+            if (vectorQuantization != VectorQuantization.NONE) {
+                assertThat(vectorsFormat(reader)).isEqualTo("Lucene99HnswScalarQuantizedVectorsFormat");
+            }
+        }
+    }
+
+    private static void add(LuceneEmbeddingStore indexer, float[][] vectors) {
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> textSegments = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            ids.add(String.valueOf(i));
+            embeddings.add(Embedding.from(vectors[i]));
+            textSegments.add(TextSegment.from("Vector number " + i));
+        }
+        indexer.addAll(ids, embeddings, textSegments);
+    }
+
+    private static double exactScore(float[] queryVector, float[][] vectors, EmbeddingMatch<TextSegment> match) {
+        return VectorSimilarityFunction.EUCLIDEAN.compare(queryVector, vectors[Integer.parseInt(match.embeddingId())]);
+    }
+
+    private static float[][] vectors() {
+        Random random = new Random(42);
+        float[][] vectors = new float[200][16];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = random.nextFloat() * 2 - 1;
+            }
+        }
+        return vectors;
+    }
+
+    private String vectorsFormat(DirectoryReader reader) {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(EMBEDDING_FIELD_NAME);
+            if (fieldInfo != null) {
+                return fieldInfo.getAttribute(PerFieldKnnVectorsFormat.PER_FIELD_FORMAT_KEY);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,137 @@
+package test.dev.langchain4j.rag.content.retriever;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.retriever.lucene.DirectoryFactory;
+import dev.langchain4j.rag.content.retriever.lucene.IndexWarmer;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneContentRetriever;
+import dev.langchain4j.rag.content.retriever.lucene.LuceneEmbeddingStore;
+import dev.langchain4j.rag.content.retriever.lucene.RetrievalResultCache;
+import dev.langchain4j.rag.query.Query;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WarmUpTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void notWarmed() throws Exception {
+
+        try (LuceneContentRetriever contentRetriever =
+                LuceneContentRetriever.builder().build()) {
+            assertThat(contentRetriever.isReady()).isTrue();
+            assertThat(contentRetriever.warmUp()).isTrue();
+            assertThat(contentRetriever.isReady()).isTrue();
+        }
+    }
+
+    @Test
+    public void preload() throws Exception {
+
+        try (Directory directory = DirectoryFactory.fsDirectory(tempDir.resolve("index"), "vec", "tim", "cfs")) {
+            assertThat(directory).isInstanceOf(MMapDirectory.class);
+
+            try (LuceneEmbeddingStore indexer =
+                            LuceneEmbeddingStore.builder().directory(directory).build();
+                    LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                            .embeddingStore(indexer)
+                            .build()) {
+                indexer.add(TextSegment.from("Lucene preloads index files."));
+                assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(1);
+            }
+        }
+    }
+
+    @Test
+    public void warmUntilLatencyIsStable() throws Exception {
+
+        // Each round is twice as fast as the one before, until latency settles at the fourth round
+        long[] roundMillis = {640, 320, 160, 80, 80, 80};
+        AtomicInteger rounds = new AtomicInteger();
+        EmbeddingModel warmingEmbeddingModel = new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                try {
+                    Thread.sleep(roundMillis[rounds.getAndIncrement()]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Response.from(textSegments.stream()
+                        .map(textSegment -> Embedding.from(new float[] {1, 0}))
+                        .collect(Collectors.toList()));
+            }
+        };
+
+        IndexWarmer indexWarmer =
+                IndexWarmer.builder().queries(List.of("lucene")).maxRounds(3).build();
+        try (Directory directory = DirectoryFactory.tempDirectory();
+                LuceneEmbeddingStore indexer =
+                        LuceneEmbeddingStore.builder().directory(directory).build();
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .embeddingStore(indexer)
+                        .embeddingModel(warmingEmbeddingModel)
+                        .indexWarmer(indexWarmer)
+                        .build()) {
+
+            indexer.add(Embedding.from(new float[] {1, 0}), TextSegment.from("Lucene is a powerful search library."));
+
+            // Faster rounds are not stable, even though they are within the tolerance over the previous round
+            assertThat(contentRetriever.warmUp()).isFalse();
+            assertThat(rounds).hasValue(3);
+            assertThat(contentRetriever.isReady()).isFalse();
+
+            // Warming again continues until latency settles
+            assertThat(contentRetriever.warmUp()).isTrue();
+            assertThat(rounds).hasValue(5);
+            assertThat(contentRetriever.isReady()).isTrue();
+        }
+    }
+
+    @Test
+    public void warmUp() throws Exception {
+
+        Path querySample = tempDir.resolve("queries.txt");
+        Files.write(querySample, List.of("lucene", "", "search library"));
+        IndexWarmer indexWarmer = IndexWarmer.builder()
+                .queries(List.of("segment", " "))
+                .querySample(querySample)
+                .latencyTolerance(100)
+                .maxRounds(3)
+                .build();
+        assertThat(indexWarmer.queries()).containsExactly("segment", "lucene", "search library");
+
+        RetrievalResultCache resultCache = RetrievalResultCache.builder().build();
+        try (Directory directory = DirectoryFactory.tempDirectory();
+                LuceneEmbeddingStore indexer =
+                        LuceneEmbeddingStore.builder().directory(directory).build();
+                LuceneContentRetriever contentRetriever = LuceneContentRetriever.builder()
+                        .embeddingStore(indexer)
+                        .resultCache(resultCache)
+                        .indexWarmer(indexWarmer)
+                        .build()) {
+
+            indexer.add(TextSegment.from("Lucene is a powerful search library."));
+            assertThat(contentRetriever.isReady()).isFalse();
+
+            contentRetriever.warmUp();
+
+            assertThat(contentRetriever.isReady()).isTrue();
+            // Warming queries do not fill the cache of results
+            assertThat(resultCache.size()).isZero();
+            assertThat(contentRetriever.retrieve(Query.from("lucene"))).hasSize(1);
+        }
+    }
+}